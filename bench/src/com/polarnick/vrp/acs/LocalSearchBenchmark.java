@@ -0,0 +1,65 @@
+package com.polarnick.vrp.acs;
+
+import com.polarnick.vrp.acs.colonies.helpers.LocalSearch;
+import com.polarnick.vrp.bench.Instances;
+import com.polarnick.vrp.model.Route;
+import com.polarnick.vrp.model.VRProblem;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local search of the nearest neighbourhood solution up to a local optimum,
+ * the {@code moves} secondary result is the number of the moves checked per second.
+ * The {@code R2} instances have long horizons and large vehicles, so their tours are several times longer
+ * than the ones of the {@code RANDOM} instances.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalSearchBenchmark {
+
+    @Param({"100", "400"})
+    public int customersNumber;
+
+    @Param({"RANDOM", "R2"})
+    public String instance;
+
+    private Route initialSolution;
+    private LocalSearch localSearch;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long moves;
+    }
+
+    @Setup
+    public void setUp() {
+        VRProblem problem = instance.equals("RANDOM") ? Instances.generateRandom(customersNumber, 239)
+                : Instances.generateSolomonLike(Instances.Family.valueOf(instance), customersNumber, 239);
+        this.initialSolution = MACSVRPTW.calculateNearestNeighbourhoodHeuristic(problem);
+        this.localSearch = new LocalSearch(this.initialSolution.problem);
+    }
+
+    @Benchmark
+    public int[] improve(Counters counters) {
+        long movesBefore = this.localSearch.getMovesEvaluated();
+        int[] nodes = this.localSearch.improve(this.initialSolution.toArray());
+        counters.moves += this.localSearch.getMovesEvaluated() - movesBefore;
+        return nodes;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LocalSearchBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.polarnick.vrp.acs;
+
+import com.polarnick.vrp.bench.Instances;
+import com.polarnick.vrp.model.Route;
+import com.polarnick.vrp.model.VRProblem;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction of a route of the nearest neighbourhood solution (the residual only or with the tour aggregates)
+ * and the delta evaluation of moves on it.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteBenchmark {
+
+    private static final int MOVES_NUMBER = 1024;
+
+    @Param({"100", "1000"})
+    public int customersNumber;
+
+    private Route route;
+    private int[] nodes;
+    private int[] positions1;
+    private int[] positions2;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        VRProblem problem = Instances.generateRandom(customersNumber, 239);
+        this.route = MACSVRPTW.calculateNearestNeighbourhoodHeuristic(problem);
+        this.nodes = this.route.toArray();
+        this.route.getTourCost(0);
+
+        Random random = new Random(239);
+        this.positions1 = new int[MOVES_NUMBER];
+        this.positions2 = new int[MOVES_NUMBER];
+        for (int k = 0; k < MOVES_NUMBER; k++) {
+            this.positions1[k] = randomCustomerPosition(random);
+            this.positions2[k] = randomCustomerPosition(random);
+        }
+        this.next = 0;
+    }
+
+    private int randomCustomerPosition(Random random) {
+        int position;
+        do {
+            position = random.nextInt(this.route.size());
+        } while (this.route.problem.isDepot[this.route.getNode(position)]);
+        return position;
+    }
+
+    @Benchmark
+    public double construct() {
+        return new Route(this.route.problem, this.nodes).getResidual();
+    }
+
+    @Benchmark
+    public double constructWithTours() {
+        return new Route(this.route.problem, this.nodes).getTourCost(0);
+    }
+
+    @Benchmark
+    public Route.Delta evaluateRemoval() {
+        this.next = (this.next + 1) % MOVES_NUMBER;
+        return this.route.evaluateRemoval(this.positions1[this.next]);
+    }
+
+    @Benchmark
+    public Route.Delta evaluateExchange() {
+        this.next = (this.next + 1) % MOVES_NUMBER;
+        return this.route.evaluateExchange(this.positions1[this.next], this.positions2[this.next]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RouteBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
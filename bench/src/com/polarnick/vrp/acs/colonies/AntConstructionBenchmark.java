@@ -0,0 +1,74 @@
+package com.polarnick.vrp.acs.colonies;
+
+import com.polarnick.vrp.acs.colonies.helpers.AntWorkspace;
+import com.polarnick.vrp.acs.colonies.helpers.MinVehiclesRouteStorage;
+import com.polarnick.vrp.acs.colonies.helpers.Params;
+import com.polarnick.vrp.acs.model.AntColonyProblem;
+import com.polarnick.vrp.bench.Instances;
+import com.polarnick.vrp.model.VRProblem;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tour construction of a single ant. Run with the GC profiler ({@link #main}) to see the allocation rate:
+ * {@code gc.alloc.rate.norm} should stay at zero bytes per operation in the steady state.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AntConstructionBenchmark {
+
+    @Param({"100", "1000"})
+    public int customersNumber;
+
+    @Param({"0", "20"})
+    public int candidateListSize;
+
+    private MinDistanceACS colony;
+    private AntWorkspace workspace;
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        VRProblem problem = Instances.generateRandom(customersNumber, 239);
+        int vehiclesNumber = Math.max(1, customersNumber / 10);
+        AntColonyProblem acProblem = AntColonyProblem.buildProblem(problem, vehiclesNumber);
+        Params params = new Params(0.9, 1, 0.1, 1.0 / customersNumber).withCandidateListSize(candidateListSize);
+        this.colony = new MinDistanceACS(acProblem, 1, new MinVehiclesRouteStorage(), 239, params);
+        for (double[] row: this.colony.state.pheromone) {
+            Arrays.fill(row, params.pheromoneBaseValue);
+        }
+        this.workspace = new AntWorkspace(acProblem, params);
+        this.random = new Random(239);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.colony.stop();
+    }
+
+    @Benchmark
+    public int constructTour() {
+        return this.colony.constructTour(this.workspace, this.random);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AntConstructionBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+}
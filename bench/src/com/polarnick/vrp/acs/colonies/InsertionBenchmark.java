@@ -0,0 +1,72 @@
+package com.polarnick.vrp.acs.colonies;
+
+import com.polarnick.vrp.acs.colonies.helpers.AntWorkspace;
+import com.polarnick.vrp.acs.colonies.helpers.MinVehiclesRouteStorage;
+import com.polarnick.vrp.acs.colonies.helpers.Params;
+import com.polarnick.vrp.acs.model.AntColonyProblem;
+import com.polarnick.vrp.bench.Instances;
+import com.polarnick.vrp.model.VRProblem;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insertion procedure on the tours of an ACS-VEH ant, which has too few vehicles and leaves many customers unrouted.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertionBenchmark {
+
+    private static final int TOURS_NUMBER = 16;
+
+    @Param({"100", "1000"})
+    public int customersNumber;
+
+    private AntColonyProblem problem;
+    private int[][] tours;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        VRProblem problem = Instances.generateRandom(customersNumber, 239);
+        int vehiclesNumber = Math.max(1, customersNumber / 20);
+        this.problem = AntColonyProblem.buildProblem(problem, vehiclesNumber);
+        Params params = new Params(0.9, 1, 0.1, 1.0 / customersNumber);
+        MinVehiclesACS colony = new MinVehiclesACS(this.problem, 1, new MinVehiclesRouteStorage(), 239, params);
+        for (double[] row: colony.state.pheromone) {
+            Arrays.fill(row, params.pheromoneBaseValue);
+        }
+        AntWorkspace workspace = new AntWorkspace(this.problem, params);
+        Random random = new Random(239);
+        this.tours = new int[TOURS_NUMBER][];
+        for (int k = 0; k < TOURS_NUMBER; k++) {
+            int nodesNumber = colony.constructTour(workspace, random);
+            this.tours[k] = Arrays.copyOf(workspace.nodes, nodesNumber);
+        }
+        colony.stop();
+        this.next = 0;
+    }
+
+    @Benchmark
+    public int[] insertionProcedure() {
+        int[] tour = this.tours[this.next];
+        this.next = (this.next + 1) % TOURS_NUMBER;
+        return AbstractACS.insertionProcedure(tour, this.problem);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(InsertionBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
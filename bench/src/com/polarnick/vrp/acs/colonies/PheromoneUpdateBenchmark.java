@@ -0,0 +1,58 @@
+package com.polarnick.vrp.acs.colonies;
+
+import com.polarnick.vrp.acs.colonies.helpers.MinVehiclesRouteStorage;
+import com.polarnick.vrp.acs.colonies.helpers.Params;
+import com.polarnick.vrp.acs.model.AntColonyProblem;
+import com.polarnick.vrp.acs.model.AntColonyState;
+import com.polarnick.vrp.bench.Instances;
+import com.polarnick.vrp.model.Route;
+import com.polarnick.vrp.model.VRProblem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of whole generations (all the ants of the colony build their tours concurrently)
+ * with the different ways of applying the local pheromone updates.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PheromoneUpdateBenchmark {
+
+    @Param({"10", "32", "64"})
+    public int antsNumber;
+
+    @Param({"UNSYNCHRONIZED", "BUFFERED", "ATOMIC"})
+    public AntColonyState.PheromoneUpdate pheromoneUpdate;
+
+    @Param({"200"})
+    public int customersNumber;
+
+    private MinDistanceACS colony;
+
+    @Setup
+    public void setUp() {
+        VRProblem problem = Instances.generateRandom(customersNumber, 239);
+        AntColonyProblem acProblem = AntColonyProblem.buildProblem(problem, Math.max(1, customersNumber / 10));
+        Params params = new Params(0.9, 1, 0.1, 1.0 / customersNumber).withPheromoneUpdate(pheromoneUpdate);
+        this.colony = new MinDistanceACS(acProblem, antsNumber, new MinVehiclesRouteStorage(), 239, params);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.colony.stop();
+    }
+
+    @Benchmark
+    public List<Route> generation() {
+        return this.colony.runAnts();
+    }
+
+}
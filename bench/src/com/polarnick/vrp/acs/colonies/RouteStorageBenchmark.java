@@ -0,0 +1,90 @@
+package com.polarnick.vrp.acs.colonies;
+
+import com.polarnick.vrp.acs.colonies.helpers.AntWorkspace;
+import com.polarnick.vrp.acs.colonies.helpers.MinVehiclesRouteStorage;
+import com.polarnick.vrp.acs.colonies.helpers.Params;
+import com.polarnick.vrp.acs.model.AntColonyProblem;
+import com.polarnick.vrp.bench.Instances;
+import com.polarnick.vrp.model.Route;
+import com.polarnick.vrp.model.VRProblem;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared best route storage under contention: several threads suggest ant routes with a few different vehicles
+ * numbers, as both colonies of an iteration do, or read the best route with the minimal vehicles number,
+ * as ACS-VEH does each generation. The storage starts empty each iteration, so the first suggestions publish.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class RouteStorageBenchmark {
+
+    private static final int ROUTES_NUMBER = 256;
+
+    @Param({"100", "1000"})
+    public int customersNumber;
+
+    private Route[] routes;
+    private MinVehiclesRouteStorage storage;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next = new Random().nextInt(ROUTES_NUMBER);
+    }
+
+    @Setup
+    public void setUp() {
+        VRProblem problem = Instances.generateRandom(customersNumber, 239);
+        int vehiclesNumber = Math.max(1, customersNumber / 10);
+        Params params = new Params(0.9, 1, 0.1, 1.0 / customersNumber);
+        Random random = new Random(239);
+        this.routes = new Route[ROUTES_NUMBER];
+        for (int extraVehicles = 0; extraVehicles < 4; extraVehicles++) {
+            AntColonyProblem acProblem = AntColonyProblem.buildProblem(problem, vehiclesNumber + extraVehicles);
+            MinDistanceACS colony = new MinDistanceACS(acProblem, 1, new MinVehiclesRouteStorage(), 239, params);
+            for (double[] row: colony.state.pheromone) {
+                Arrays.fill(row, params.pheromoneBaseValue);
+            }
+            AntWorkspace workspace = new AntWorkspace(acProblem, params);
+            for (int k = extraVehicles; k < ROUTES_NUMBER; k += 4) {
+                int nodesNumber = colony.constructTour(workspace, random);
+                this.routes[k] = new Route(acProblem, Arrays.copyOf(workspace.nodes, nodesNumber));
+            }
+            colony.stop();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetStorage() {
+        this.storage = new MinVehiclesRouteStorage(this.routes[0]);
+    }
+
+    @Benchmark
+    public boolean suggestBestRoute(Cursor cursor) {
+        cursor.next = (cursor.next + 1) % ROUTES_NUMBER;
+        return this.storage.suggestBestRoute(this.routes[cursor.next]);
+    }
+
+    @Benchmark
+    public Route getMinVehiclesBestRoute() {
+        return this.storage.getBestRoute(this.storage.getMinVehiclesNumber());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RouteStorageBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.polarnick.vrp.acs.colonies;
+
+import com.polarnick.vrp.acs.colonies.helpers.MinVehiclesRouteStorage;
+import com.polarnick.vrp.acs.colonies.helpers.Params;
+import com.polarnick.vrp.acs.model.AntColonyProblem;
+import com.polarnick.vrp.bench.Instances;
+import com.polarnick.vrp.model.VRProblem;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Constructed tours per second of a colony running on its own (with the global updates) in the generations schedule
+ * versus the pipelined one, see the {@code tours} secondary result.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ScheduleBenchmark {
+
+    @Param({"BARRIER", "PIPELINED"})
+    public AbstractACS.Schedule schedule;
+
+    @Param({"10", "32"})
+    public int antsNumber;
+
+    @Param({"200"})
+    public int customersNumber;
+
+    private VRProblem problem;
+    private MinDistanceACS colony;
+    private Thread colonyThread;
+    private long toursBefore;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long tours;
+    }
+
+    @Setup
+    public void setUp() {
+        this.problem = Instances.generateRandom(customersNumber, 239);
+    }
+
+    @Setup(Level.Iteration)
+    public void startColony() {
+        AntColonyProblem acProblem = AntColonyProblem.buildProblem(problem, Math.max(1, customersNumber / 10));
+        Params params = new Params(0.9, 1, 0.1, 1.0 / customersNumber).withSchedule(schedule);
+        MinVehiclesRouteStorage storage = new MinVehiclesRouteStorage();
+        this.colony = new MinDistanceACS(acProblem, antsNumber, storage, 239, params);
+        // any route of the colony will do as the initial best one, it is only needed for the global updates
+        storage.suggestBestRoute(this.colony.runAnts().get(0));
+        this.colonyThread = new Thread(this.colony);
+        this.colonyThread.start();
+        this.toursBefore = this.colony.getToursNumber();
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopColony() throws InterruptedException {
+        this.colony.stop();
+        this.colonyThread.join();
+    }
+
+    @Benchmark
+    public void colony(Counters counters) throws InterruptedException {
+        Thread.sleep(10);
+        counters.tours = this.colony.getToursNumber() - this.toursBefore;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ScheduleBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
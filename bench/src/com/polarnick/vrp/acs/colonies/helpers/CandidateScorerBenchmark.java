@@ -0,0 +1,62 @@
+package com.polarnick.vrp.acs.colonies.helpers;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scoring of the candidates of a single construction step, compared with the {@code Math.pow} per candidate
+ * the colonies used before.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CandidateScorerBenchmark {
+
+    @Param({"100", "1000"})
+    public int candidatesNumber;
+
+    @Param({"1", "2", "3", "2.5"})
+    public double heuristicValueImportance;
+
+    private double[] pheromones;
+    private int[] distances;
+    private double[] values;
+    private CandidateScorer scorer;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(239);
+        this.pheromones = new double[candidatesNumber];
+        this.distances = new int[candidatesNumber];
+        for (int k = 0; k < candidatesNumber; k++) {
+            this.pheromones[k] = random.nextDouble();
+            this.distances[k] = 1 + random.nextInt(10000);
+        }
+        this.values = new double[candidatesNumber];
+        this.scorer = CandidateScorer.create(heuristicValueImportance);
+    }
+
+    @Benchmark
+    public double[] scorer() {
+        System.arraycopy(this.pheromones, 0, this.values, 0, this.candidatesNumber);
+        this.scorer.score(this.values, this.distances, this.candidatesNumber);
+        return this.values;
+    }
+
+    @Benchmark
+    public double[] pow() {
+        for (int k = 0; k < this.candidatesNumber; k++) {
+            double attractiveness = 1.0 / this.distances[k];
+            this.values[k] = this.pheromones[k] * Math.pow(attractiveness, this.heuristicValueImportance);
+        }
+        return this.values;
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.polarnick.vrp.acs.colonies.helpers;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single exploration step: prepare the selector for fresh values and sample one candidate.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CandidateSelectorBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int candidatesNumber;
+
+    @Param({"LINEAR", "CUMULATIVE", "GUMBEL", "TOP_K"})
+    public CandidateSelector.Rule rule;
+
+    private double[] values;
+    private double valuesSum;
+    private CandidateSelector selector;
+    private Random random;
+
+    @Setup
+    public void setUp() {
+        Random generator = new Random(239);
+        this.values = new double[candidatesNumber];
+        for (int i = 0; i < candidatesNumber; i++) {
+            this.values[i] = generator.nextDouble() / (1 + generator.nextInt(100));
+            this.valuesSum += this.values[i];
+        }
+        this.selector = CandidateSelector.create(rule, candidatesNumber);
+        this.random = new Random(239);
+    }
+
+    @Benchmark
+    public int select() {
+        return this.selector.select(this.values, this.candidatesNumber, this.valuesSum, this.random);
+    }
+
+    /**
+     * Values reused for several samples, the preparation is amortized.
+     */
+    @Benchmark
+    @OperationsPerInvocation(16)
+    public int prepareOnceSample16() {
+        this.selector.prepare(this.values, this.candidatesNumber, this.valuesSum);
+        int result = 0;
+        for (int i = 0; i < 16; i++) {
+            result += this.selector.sample(this.random);
+        }
+        return result;
+    }
+
+}
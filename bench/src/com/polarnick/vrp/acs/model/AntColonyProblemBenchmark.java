@@ -0,0 +1,51 @@
+package com.polarnick.vrp.acs.model;
+
+import com.polarnick.vrp.bench.Instances;
+import com.polarnick.vrp.model.DistanceMatrix;
+import com.polarnick.vrp.model.VRProblem;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building of a colony problem from scratch: the distance matrix of the given backend, the time window
+ * and the insertion indices, and the per-node arrays.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AntColonyProblemBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int customersNumber;
+
+    @Param({"DOUBLE", "FLOAT", "OFF_HEAP"})
+    public DistanceMatrix.Backend backend;
+
+    private VRProblem problem;
+
+    @Setup
+    public void setUp() {
+        this.problem = Instances.generateRandom(customersNumber, 239);
+    }
+
+    @Benchmark
+    public AntColonyProblem buildProblem() {
+        VRProblem problem = new VRProblem(this.problem.depot, this.problem.customers, this.problem.vehicleCapacity);
+        problem.setDistanceMatrix(this.backend);
+        return AntColonyProblem.buildProblem(problem, Math.max(1, customersNumber / 10));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AntColonyProblemBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.polarnick.vrp.bench;
+
+import com.polarnick.vrp.acs.BatchSolver;
+import com.polarnick.vrp.acs.SolveOptions;
+import com.polarnick.vrp.model.Route;
+import com.polarnick.vrp.model.VRProblem;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Solves a batch of generated instances (see {@link Instances.Family}) with {@link BatchSolver} in one JVM
+ * and reports the throughput in jobs per minute. Options (all optional):
+ * <pre>
+ *     --jobs 100  --families C1,R1,RC1  --size 25  --time 1 (seconds per job)
+ *     --parallelism &lt;processors&gt;  --running &lt;processors&gt; (jobs solved at the same time)
+ * </pre>
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class BatchRunner {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        int jobsNumber = Integer.parseInt(options.getOrDefault("jobs", "100"));
+        String[] families = options.getOrDefault("families", "C1,R1,RC1").split(",");
+        int customersNumber = Integer.parseInt(options.getOrDefault("size", "25"));
+        long timeLimitMs = Math.round(1000 * Double.parseDouble(options.getOrDefault("time", "1")));
+        int processors = Runtime.getRuntime().availableProcessors();
+        int parallelism = Integer.parseInt(options.getOrDefault("parallelism", Integer.toString(processors)));
+        int running = Integer.parseInt(options.getOrDefault("running", Integer.toString(processors)));
+
+        Logger.getLogger("").setLevel(Level.WARNING);
+        List<CompletableFuture<Route>> results = new ArrayList<>(jobsNumber);
+        long start = System.nanoTime();
+        try (BatchSolver batch = new BatchSolver(parallelism, running, BatchSolver.Policy.FAIR)) {
+            for (int job = 0; job < jobsNumber; job++) {
+                Instances.Family family = Instances.Family.valueOf(families[job % families.length].trim());
+                VRProblem problem = Instances.generateSolomonLike(family, customersNumber, job);
+                results.add(batch.submit(problem, new SolveOptions(timeLimitMs).withSeed(job)));
+            }
+            long vehiclesNumber = 0;
+            for (CompletableFuture<Route> result: results) {
+                vehiclesNumber += result.get().getVehiclesNumber();
+            }
+            double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+            System.out.println(jobsNumber + " jobs of " + customersNumber + " customers in " + elapsedSeconds + " s: "
+                    + batch.getJobsPerMinute() + " jobs per minute, " + (double) vehiclesNumber / jobsNumber + " vehicles per job");
+        }
+    }
+
+}
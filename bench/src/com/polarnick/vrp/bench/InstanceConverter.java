@@ -0,0 +1,46 @@
+package com.polarnick.vrp.bench;
+
+import com.polarnick.vrp.model.BinaryInstance;
+import com.polarnick.vrp.model.InstanceParser;
+import com.polarnick.vrp.model.VRProblem;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Converts a text instance (see {@link InstanceParser}) to a {@link BinaryInstance}:
+ * <pre>
+ *     InstanceConverter &lt;input&gt; &lt;output&gt; [--candidates &lt;size&gt;] [--matrix]
+ * </pre>
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class InstanceConverter {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: InstanceConverter <input> <output> [--candidates <size>] [--matrix]");
+            System.exit(1);
+        }
+        int candidateListSize = 0;
+        boolean withMatrix = false;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--candidates")) {
+                candidateListSize = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--matrix")) {
+                withMatrix = true;
+            } else {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+        }
+        Path output = Paths.get(args[1]);
+        long start = System.nanoTime();
+        VRProblem problem = VRProblem.readFromFile(args[0]);
+        BinaryInstance.write(output, problem, candidateListSize, withMatrix);
+        System.out.println("Converted " + (problem.customersNumber + 1) + " stops to " + output + " (" + Files.size(output)
+                + " bytes) in " + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.polarnick.vrp.bench;
+
+import com.polarnick.vrp.model.Stop;
+import com.polarnick.vrp.model.VRProblem;
+
+import java.util.Random;
+
+/**
+ * Generator of random Solomon-like instances for benchmarks: customers are spread over a square
+ * that grows with their number, time windows are placed so that each customer is reachable
+ * directly from the depot and the vehicle can always return in time.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class Instances {
+
+    public static final int SERVICE_TIME = 10;
+    public static final int VEHICLE_CAPACITY = 200;
+
+    /**
+     * Families of the Solomon and Gehring-Homberger instances. Customers of C instances are clustered, of R instances
+     * are spread uniformly, RC instances mix both. Type 1 instances have short scheduling horizons and small vehicles,
+     * so tours are short, type 2 instances allow long tours.
+     */
+    public enum Family {
+        C1(true, false, true), C2(true, false, false),
+        R1(false, true, true), R2(false, true, false),
+        RC1(true, true, true), RC2(true, true, false);
+
+        private final boolean clustered;
+        private final boolean random;
+        private final boolean shortHorizon;
+
+        Family(boolean clustered, boolean random, boolean shortHorizon) {
+            this.clustered = clustered;
+            this.random = random;
+            this.shortHorizon = shortHorizon;
+        }
+    }
+
+    public static VRProblem generateRandom(int customersNumber, long seed) {
+        Random random = new Random(seed);
+        double side = 100.0 * Math.max(1.0, Math.sqrt(customersNumber / 100.0));
+        int horizon = (int) Math.ceil(10 * side);
+
+        Stop[] stops = new Stop[customersNumber + 1];
+        Stop depot = new Stop("Depot", side / 2, side / 2, 0, 0, horizon, 0);
+        stops[0] = depot;
+        for (int i = 1; i <= customersNumber; i++) {
+            double x = random.nextInt((int) side + 1);
+            double y = random.nextInt((int) side + 1);
+            int demand = 1 + random.nextInt(30);
+            Stop customer = new Stop("C" + i, x, y, demand, 0, 0, SERVICE_TIME);
+            int distance = (int) Math.ceil(customer.calcDistanceTo(depot));
+            int earliest = distance;
+            int latest = horizon - distance - SERVICE_TIME;
+            int width = 30 + random.nextInt(Math.max(1, (latest - earliest) / 4));
+            int center = earliest + random.nextInt(Math.max(1, latest - earliest));
+            int fromT = Math.max(earliest, center - width / 2);
+            int toT = Math.min(latest, fromT + width);
+            stops[i] = new Stop(customer.name, x, y, demand, fromT, toT, SERVICE_TIME);
+        }
+        return new VRProblem(stops, VEHICLE_CAPACITY);
+    }
+
+    /**
+     * Generates an instance with the characteristics of the family: horizons, vehicle capacities and service times
+     * are the ones of the 100 customers Solomon instances, the square grows with the number of customers
+     * as in the Gehring-Homberger extension.
+     */
+    public static VRProblem generateSolomonLike(Family family, int customersNumber, long seed) {
+        Random random = new Random(seed);
+        double side = 100.0 * Math.max(1.0, Math.sqrt(customersNumber / 100.0));
+        boolean onlyClustered = family.clustered && !family.random;
+        int serviceTime = onlyClustered ? 90 : 10;
+        int capacity = family.shortHorizon ? 200 : (onlyClustered ? 700 : 1000);
+        double horizonFactor = family.shortHorizon ? (onlyClustered ? 12.4 : 2.3) : (onlyClustered ? 33.9 : 10.0);
+        int horizon = (int) Math.ceil(horizonFactor * side);
+
+        int clustersNumber = Math.max(1, customersNumber / 10);
+        double[] clustersX = new double[clustersNumber];
+        double[] clustersY = new double[clustersNumber];
+        for (int k = 0; k < clustersNumber; k++) {
+            clustersX[k] = random.nextDouble() * side;
+            clustersY[k] = random.nextDouble() * side;
+        }
+
+        Stop[] stops = new Stop[customersNumber + 1];
+        Stop depot = new Stop("Depot", Math.round(side / 2), Math.round(side / 2), 0, 0, horizon, 0);
+        stops[0] = depot;
+        for (int i = 1; i <= customersNumber; i++) {
+            boolean clustered = family.clustered && (!family.random || i % 2 == 0);
+            double x;
+            double y;
+            if (clustered) {
+                int cluster = random.nextInt(clustersNumber);
+                x = clustersX[cluster] + random.nextGaussian() * side / 40;
+                y = clustersY[cluster] + random.nextGaussian() * side / 40;
+            } else {
+                x = random.nextDouble() * side;
+                y = random.nextDouble() * side;
+            }
+            x = Math.round(Math.min(side, Math.max(0, x)));
+            y = Math.round(Math.min(side, Math.max(0, y)));
+            int demand = 1 + random.nextInt(family.shortHorizon ? 30 : 40);
+            Stop customer = new Stop("C" + i, x, y, demand, 0, 0, serviceTime);
+            int distance = (int) Math.ceil(customer.calcDistanceTo(depot));
+            int earliest = distance;
+            int latest = Math.max(earliest, horizon - distance - serviceTime);
+            double widthShare = family.shortHorizon ? 0.05 + 0.15 * random.nextDouble() : 0.1 + 0.4 * random.nextDouble();
+            int width = Math.max(10, (int) (widthShare * horizon));
+            int center = earliest + random.nextInt(latest - earliest + 1);
+            int fromT = Math.max(earliest, center - width / 2);
+            int toT = Math.min(latest, fromT + width);
+            stops[i] = new Stop(customer.name, x, y, demand, fromT, toT, serviceTime);
+        }
+        return new VRProblem(stops, capacity);
+    }
+
+}
@@ -0,0 +1,205 @@
+package com.polarnick.vrp.bench;
+
+import com.polarnick.vrp.acs.MACSVRPTW;
+import com.polarnick.vrp.acs.colonies.MinDistanceACS;
+import com.polarnick.vrp.acs.colonies.helpers.Params;
+import com.polarnick.vrp.model.Route;
+import com.polarnick.vrp.model.VRProblem;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs {@link MACSVRPTW} with a time limit on the instance families (see {@link Instances.Family}) of several sizes,
+ * or on the instance files of a directory, with several seeds and numbers of distance colonies (islands, see
+ * {@link Params#islandsNumber}) each. Writes three CSV files to the output directory:
+ * <ul>
+ *     <li>{@code runs.csv} - a line per run: time to the first feasible solution, to the best vehicles number
+ *     and to the best residual, and the generations of the colonies per second;</li>
+ *     <li>{@code trace.csv} - each improvement of each run with its time, for residual over wall-clock curves;</li>
+ *     <li>{@code targets.csv} - time to target of each run, the target of an instance is the best vehicles number
+ *     of all its runs with a residual within the target gap of the best one.</li>
+ * </ul>
+ * Times are in milliseconds since the start of the run. Options (all optional):
+ * <pre>
+ *     --families C1,C2,R1,R2,RC1,RC2  --sizes 25,50,100,200,400,600,800,1000  --instances &lt;dir&gt;
+ *     --seeds 3  --time 10 (seconds per run)  --islands 1  --migration-interval 1  --migration ELITE_ROUTE
+ *     --target-gap 0.02  --out results
+ * </pre>
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class SolverRunner {
+
+    private static final long INSTANCE_SEED = 239;
+
+    private static class Run {
+        private final int islandsNumber;
+        private final long seed;
+        private final List<Improvement> improvements;
+
+        private Run(int islandsNumber, long seed, List<Improvement> improvements) {
+            this.islandsNumber = islandsNumber;
+            this.seed = seed;
+            this.improvements = improvements;
+        }
+    }
+
+    private static class Improvement {
+        private final long timeNanos;
+        private final int vehiclesNumber;
+        private final double residual;
+
+        private Improvement(long timeNanos, int vehiclesNumber, double residual) {
+            this.timeNanos = timeNanos;
+            this.vehiclesNumber = vehiclesNumber;
+            this.residual = residual;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        int seedsNumber = Integer.parseInt(options.getOrDefault("seeds", "3"));
+        long timeLimitMs = Math.round(1000 * Double.parseDouble(options.getOrDefault("time", "10")));
+        File outDir = new File(options.getOrDefault("out", "results"));
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            throw new IOException("Can not create directory " + outDir);
+        }
+
+        Map<String, VRProblem> instances = new LinkedHashMap<>();
+        if (options.containsKey("instances")) {
+            File[] files = new File(options.get("instances")).listFiles(File::isFile);
+            if (files == null) {
+                throw new IOException("Not a directory: " + options.get("instances"));
+            }
+            Arrays.sort(files);
+            for (File file: files) {
+                instances.put(file.getName(), VRProblem.readFromFile(file.getPath()));
+            }
+        } else {
+            for (String family: options.getOrDefault("families", "C1,C2,R1,R2,RC1,RC2").split(",")) {
+                for (String size: options.getOrDefault("sizes", "25,50,100,200,400,600,800,1000").split(",")) {
+                    int customersNumber = Integer.parseInt(size.trim());
+                    instances.put(family.trim() + "_" + customersNumber, Instances.generateSolomonLike(
+                            Instances.Family.valueOf(family.trim()), customersNumber, INSTANCE_SEED));
+                }
+            }
+        }
+
+        int migrationInterval = Integer.parseInt(options.getOrDefault("migration-interval", "1"));
+        MinDistanceACS.Migration migration = MinDistanceACS.Migration.valueOf(options.getOrDefault("migration", "ELITE_ROUTE"));
+        double targetGap = Double.parseDouble(options.getOrDefault("target-gap", "0.02"));
+
+        Logger.getLogger("").setLevel(Level.WARNING);
+        try (PrintWriter runs = new PrintWriter(new File(outDir, "runs.csv"));
+             PrintWriter trace = new PrintWriter(new File(outDir, "trace.csv"));
+             PrintWriter targets = new PrintWriter(new File(outDir, "targets.csv"))) {
+            runs.println("instance,customers,islands,seed,time_limit_ms,first_feasible_ms,vehicles,best_vehicles_ms,residual,best_residual_ms,"
+                    + "generations,generations_per_second");
+            trace.println("instance,islands,seed,time_ms,vehicles,residual");
+            targets.println("instance,islands,seed,target_vehicles,target_residual,time_to_target_ms");
+            for (Map.Entry<String, VRProblem> instance: instances.entrySet()) {
+                List<Run> instanceRuns = new ArrayList<>();
+                for (String islands: options.getOrDefault("islands", "1").split(",")) {
+                    Params params = MACSVRPTW.DEFAULT_PARAMS.withIslands(Integer.parseInt(islands.trim()), migrationInterval, migration);
+                    for (int seed = 1; seed <= seedsNumber; seed++) {
+                        instanceRuns.add(run(instance.getKey(), instance.getValue(), seed, params, timeLimitMs, runs, trace));
+                        runs.flush();
+                        trace.flush();
+                    }
+                }
+                writeTimesToTarget(instance.getKey(), instanceRuns, targetGap, targets);
+                targets.flush();
+            }
+        }
+    }
+
+    private static void writeTimesToTarget(String name, List<Run> runs, double targetGap, PrintWriter targets) {
+        Improvement best = null;
+        for (Run run: runs) {
+            for (Improvement improvement: run.improvements) {
+                if (best == null || improvement.vehiclesNumber < best.vehiclesNumber
+                        || (improvement.vehiclesNumber == best.vehiclesNumber && improvement.residual < best.residual)) {
+                    best = improvement;
+                }
+            }
+        }
+        if (best == null) {
+            return;
+        }
+        double targetResidual = best.residual * (1 + targetGap);
+        for (Run run: runs) {
+            String timeToTarget = "";
+            for (Improvement improvement: run.improvements) {
+                if (improvement.vehiclesNumber <= best.vehiclesNumber && improvement.residual <= targetResidual) {
+                    timeToTarget = Long.toString(toMs(improvement.timeNanos));
+                    break;
+                }
+            }
+            targets.println(name + "," + run.islandsNumber + "," + run.seed + "," + best.vehiclesNumber + "," + targetResidual + "," + timeToTarget);
+            System.out.println(name + " islands " + run.islandsNumber + " seed " + run.seed + ": time to target "
+                    + (timeToTarget.isEmpty() ? "-" : timeToTarget + " ms"));
+        }
+    }
+
+    private static Run run(String name, VRProblem problem, long seed, Params params, long timeLimitMs,
+                           PrintWriter runs, PrintWriter trace) throws InterruptedException {
+        List<Improvement> improvements = Collections.synchronizedList(new ArrayList<>());
+        long start = System.nanoTime();
+        MACSVRPTW solver = new MACSVRPTW(problem, seed, null, null, params);
+        solver.addDistanceImprovedCallback((Route oldRoute, Route route) ->
+                improvements.add(new Improvement(System.nanoTime() - start, route.getVehiclesNumber(), route.getResidual())));
+        Thread solverThread = new Thread(solver, "MACS-VRPTW " + name);
+        solverThread.start();
+        solverThread.join(timeLimitMs);
+        solver.stop();
+        solverThread.join();
+        long elapsedNanos = System.nanoTime() - start;
+        long generations = solver.getGenerationsNumber();
+
+        String prefix = name + "," + problem.customersNumber + "," + params.islandsNumber + "," + seed + "," + timeLimitMs + ",";
+        Run run = new Run(params.islandsNumber, seed, new ArrayList<>(improvements));
+        Improvement first = null;
+        Improvement bestVehicles = null;
+        Improvement best = null;
+        synchronized (improvements) {
+            for (Improvement improvement: improvements) {
+                trace.println(name + "," + params.islandsNumber + "," + seed + "," + toMs(improvement.timeNanos) + "," + improvement.vehiclesNumber + "," + improvement.residual);
+                if (first == null) {
+                    first = improvement;
+                }
+                if (bestVehicles == null || improvement.vehiclesNumber < bestVehicles.vehiclesNumber) {
+                    bestVehicles = improvement;
+                }
+                if (best == null || improvement.vehiclesNumber < best.vehiclesNumber
+                        || (improvement.vehiclesNumber == best.vehiclesNumber && improvement.residual < best.residual)) {
+                    best = improvement;
+                }
+            }
+        }
+        if (best == null) {
+            runs.println(prefix + ",,,,," + generations + "," + generations * 1e9 / elapsedNanos);
+            return run;
+        }
+        runs.println(prefix + toMs(first.timeNanos) + "," + best.vehiclesNumber + "," + toMs(bestVehicles.timeNanos) + "," + best.residual + "," + toMs(best.timeNanos) + ","
+                + generations + "," + generations * 1e9 / elapsedNanos);
+        System.out.println(name + " islands " + params.islandsNumber + " seed " + seed + ": " + best.vehiclesNumber
+                + " vehicles, residual " + best.residual + ", " + generations + " generations");
+        return run;
+    }
+
+    private static long toMs(long nanos) {
+        return nanos / 1000000;
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.polarnick.vrp.model;
+
+import com.polarnick.vrp.acs.model.AntColonyProblem;
+import com.polarnick.vrp.bench.Instances;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup of a solve: from an instance file to a colony problem with candidate lists, for a text file
+ * and for a binary instance with the precomputed candidate lists and matrix. The files are in the page cache.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinaryInstanceBenchmark {
+
+    private static final int CANDIDATE_LIST_SIZE = 20;
+
+    @Param({"1000", "5000"})
+    public int customersNumber;
+
+    private Path textPath;
+    private Path binaryPath;
+
+    @Setup
+    public void setUp() throws IOException {
+        VRProblem problem = Instances.generateRandom(customersNumber, 239);
+        this.textPath = Files.createTempFile("instance", ".txt");
+        try (PrintWriter out = new PrintWriter(this.textPath.toFile())) {
+            out.println("capacity " + problem.vehicleCapacity);
+            for (Stop stop: DistanceMatrix.toStops(problem.depot, problem.customers)) {
+                out.println((int) stop.x + " " + (int) stop.y + " " + stop.demand + " " + stop.fromT + " " + stop.toT + " "
+                        + stop.delayT + " " + stop.name);
+            }
+        }
+        this.binaryPath = Files.createTempFile("instance", ".bin");
+        BinaryInstance.write(this.binaryPath, problem, CANDIDATE_LIST_SIZE, true);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(this.textPath);
+        Files.delete(this.binaryPath);
+    }
+
+    private AntColonyProblem prepare(VRProblem problem) {
+        problem.getCandidateLists(CANDIDATE_LIST_SIZE);
+        return AntColonyProblem.buildProblem(problem, Math.max(1, customersNumber / 10));
+    }
+
+    @Benchmark
+    public AntColonyProblem text() throws IOException {
+        return prepare(VRProblem.readFromFile(this.textPath.toString()));
+    }
+
+    @Benchmark
+    public AntColonyProblem binary() throws IOException {
+        return prepare(BinaryInstance.read(this.binaryPath));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BinaryInstanceBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.polarnick.vrp.model;
+
+import com.polarnick.vrp.bench.Instances;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of a generated instance in both formats from memory, compared with the line by line
+ * {@code StringTokenizer} parser used before. The {@code bytes} secondary result is the parse throughput in bytes per second.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstanceParserBenchmark {
+
+    @Param({"1000", "50000"})
+    public int customersNumber;
+
+    private String linesText;
+    private ByteBuffer linesBytes;
+    private ByteBuffer solomonBytes;
+    private InstanceParser parser;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long bytes;
+    }
+
+    @Setup
+    public void setUp() {
+        VRProblem problem = Instances.generateRandom(customersNumber, 239);
+        Stop[] stops = DistanceMatrix.toStops(problem.depot, problem.customers);
+        StringBuilder lines = new StringBuilder();
+        lines.append("capacity ").append(problem.vehicleCapacity).append('\n');
+        for (Stop stop: stops) {
+            lines.append((int) stop.x).append(' ').append((int) stop.y).append(' ').append(stop.demand).append(' ')
+                    .append(stop.fromT).append(' ').append(stop.toT).append(' ').append(stop.delayT).append(' ')
+                    .append(stop.name).append('\n');
+        }
+        StringBuilder solomon = new StringBuilder();
+        solomon.append("RANDOM\n\nVEHICLE\nNUMBER     CAPACITY\n  ").append(customersNumber).append("  ").append(problem.vehicleCapacity)
+                .append("\n\nCUSTOMER\nCUST NO.  XCOORD.   YCOORD.    DEMAND   READY TIME  DUE DATE   SERVICE   TIME\n\n");
+        for (int i = 0; i < stops.length; i++) {
+            Stop stop = stops[i];
+            solomon.append(String.format("%5d %10d %10d %10d %10d %10d %10d\n",
+                    i, (int) stop.x, (int) stop.y, stop.demand, stop.fromT, stop.toT, stop.delayT));
+        }
+        this.linesText = lines.toString();
+        this.linesBytes = toDirectBuffer(this.linesText);
+        this.solomonBytes = toDirectBuffer(solomon.toString());
+        this.parser = new InstanceParser();
+    }
+
+    private static ByteBuffer toDirectBuffer(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer;
+    }
+
+    @Benchmark
+    public VRProblem parseLines(Counters counters) {
+        counters.bytes += this.linesBytes.remaining();
+        return this.parser.parse(this.linesBytes, -1);
+    }
+
+    @Benchmark
+    public VRProblem parseSolomon(Counters counters) {
+        counters.bytes += this.solomonBytes.remaining();
+        return this.parser.parse(this.solomonBytes, -1);
+    }
+
+    @Benchmark
+    public VRProblem stringTokenizerLines(Counters counters) {
+        counters.bytes += this.linesText.length();
+        int vehiclesCapacity = -1;
+        List<Stop> stops = new ArrayList<>();
+        for (String line: this.linesText.split("\n")) {
+            StringTokenizer tok = new StringTokenizer(line);
+            String token = tok.nextToken();
+            if (token.equals("capacity")) {
+                vehiclesCapacity = Integer.parseInt(tok.nextToken());
+            } else {
+                int x = Integer.parseInt(token);
+                int y = Integer.parseInt(tok.nextToken());
+                int demand = Integer.parseInt(tok.nextToken());
+                int from = Integer.parseInt(tok.nextToken());
+                int to = Integer.parseInt(tok.nextToken());
+                int delay = Integer.parseInt(tok.nextToken());
+                stops.add(new Stop(tok.nextToken(), x, y, demand, from, to, delay));
+            }
+        }
+        return new VRProblem(stops.toArray(new Stop[stops.size()]), vehiclesCapacity);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(InstanceParserBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
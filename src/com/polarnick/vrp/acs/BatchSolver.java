@@ -0,0 +1,238 @@
+package com.polarnick.vrp.acs;
+
+import com.polarnick.vrp.acs.colonies.helpers.SolverScheduler;
+import com.polarnick.vrp.model.Route;
+import com.polarnick.vrp.model.VRProblem;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Solves many problems in one JVM: the ants of all the jobs run on one {@link SolverScheduler}, so the worker threads
+ * are bounded by its parallelism, and at most {@code maxRunningJobs} jobs are solved at the same time.
+ * The running jobs share the workers equally, as each colony keeps the same number of ants in flight.
+ * Each job gets the time limit of its options from the moment it starts (see {@link MACSVRPTW#solve}),
+ * the pending jobs are started in the order of the {@link Policy}. The solves are started on a thread of the batch,
+ * so neither the submitting thread nor the one completing the previous job runs them.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class BatchSolver implements AutoCloseable {
+
+    public enum Policy {
+        /**
+         * Jobs are started in the order of submission, priorities are ignored.
+         */
+        FAIR,
+        /**
+         * Jobs with higher priority are started first, jobs with the same priority in the order of submission.
+         * Running jobs are not preempted.
+         */
+        PRIORITY,
+    }
+
+    private static class Job {
+        private final VRProblem problem;
+        private final SolveOptions options;
+        private final int priority;
+        private final long sequenceNumber;
+        private final CompletableFuture<Route> result;
+
+        private Job(VRProblem problem, SolveOptions options, int priority, long sequenceNumber) {
+            this.problem = problem;
+            this.options = options;
+            this.priority = priority;
+            this.sequenceNumber = sequenceNumber;
+            this.result = new CompletableFuture<>();
+        }
+    }
+
+    public final Policy policy;
+    public final int maxRunningJobs;
+
+    private final SolverScheduler scheduler;
+    private final boolean ownsScheduler;
+    private final ExecutorService starter;
+    private final PriorityQueue<Job> pendingJobs;
+    private final List<Job> runningJobs;
+    private long submittedJobsNumber;
+    private long completedJobsNumber;
+    private long firstStartNanos;
+    private boolean closed;
+
+    /**
+     * Creates a scheduler of its own with the given parallelism, it is stopped by {@link #close()}.
+     */
+    public BatchSolver(int parallelism, int maxRunningJobs, Policy policy) {
+        this(new SolverScheduler(SolverScheduler.Mode.FORK_JOIN, parallelism), true, maxRunningJobs, policy);
+    }
+
+    public BatchSolver(SolverScheduler scheduler, int maxRunningJobs, Policy policy) {
+        this(scheduler, false, maxRunningJobs, policy);
+    }
+
+    private BatchSolver(SolverScheduler scheduler, boolean ownsScheduler, int maxRunningJobs, Policy policy) {
+        if (maxRunningJobs <= 0) {
+            throw new IllegalArgumentException("Max running jobs number should be positive: " + maxRunningJobs);
+        }
+        this.policy = policy;
+        this.maxRunningJobs = maxRunningJobs;
+        this.scheduler = scheduler;
+        this.ownsScheduler = ownsScheduler;
+        this.starter = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "MACS-VRPTW batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Comparator<Job> order = Comparator.comparingLong((Job job) -> job.sequenceNumber);
+        if (policy == Policy.PRIORITY) {
+            order = Comparator.comparingInt((Job job) -> -job.priority).thenComparing(order);
+        }
+        this.pendingJobs = new PriorityQueue<>(order);
+        this.runningJobs = new ArrayList<>();
+        this.submittedJobsNumber = 0;
+        this.completedJobsNumber = 0;
+        this.firstStartNanos = -1;
+        this.closed = false;
+    }
+
+    public CompletableFuture<Route> submit(VRProblem problem, SolveOptions options) {
+        return this.submit(problem, options, 0);
+    }
+
+    /**
+     * The scheduler of the options is replaced with the one of the batch. Cancelling the result cancels the job,
+     * whether it is pending or running.
+     *
+     * @param priority matters with {@link Policy#PRIORITY} only, higher is more urgent.
+     * @throws RejectedExecutionException if the batch solver is closed.
+     */
+    public CompletableFuture<Route> submit(VRProblem problem, SolveOptions options, int priority) {
+        Job job;
+        synchronized (this) {
+            if (this.closed) {
+                throw new RejectedExecutionException("Batch solver is closed!");
+            }
+            job = new Job(problem, options.withScheduler(this.scheduler), priority, this.submittedJobsNumber++);
+            this.pendingJobs.add(job);
+        }
+        // releases the slot of a cancelled job, the solved ones release it before completing the result
+        job.result.whenComplete((Route route, Throwable e) -> this.finished(job));
+        this.startPendingJobs();
+        return job.result;
+    }
+
+    private void startPendingJobs() {
+        List<Job> startedJobs = new ArrayList<>();
+        synchronized (this) {
+            while (!this.closed && this.runningJobs.size() < this.maxRunningJobs && !this.pendingJobs.isEmpty()) {
+                Job job = this.pendingJobs.poll();
+                if (this.firstStartNanos == -1) {
+                    this.firstStartNanos = System.nanoTime();
+                }
+                this.runningJobs.add(job);
+                startedJobs.add(job);
+            }
+        }
+        for (Job job: startedJobs) {
+            try {
+                this.starter.execute(() -> this.start(job));
+            } catch (RejectedExecutionException e) {
+                // the batch is closed meanwhile, the job is cancelled by close()
+                job.result.cancel(false);
+            }
+        }
+    }
+
+    private void start(Job job) {
+        if (job.result.isDone()) {
+            return;
+        }
+        CompletableFuture<Route> solving;
+        try {
+            solving = MACSVRPTW.solve(job.problem, job.options);
+        } catch (Throwable e) {
+            this.finished(job);
+            job.result.completeExceptionally(e);
+            return;
+        }
+        // the slot is freed before the result is completed, so whoever waits for the result sees the batch updated
+        solving.whenComplete((Route route, Throwable e) -> {
+            this.finished(job);
+            if (e != null) {
+                job.result.completeExceptionally(e);
+            } else {
+                job.result.complete(route);
+            }
+        });
+        job.result.whenComplete((Route route, Throwable e) -> solving.cancel(false));
+    }
+
+    private void finished(Job job) {
+        synchronized (this) {
+            if (this.pendingJobs.remove(job)) {
+                return;
+            }
+            if (!this.runningJobs.remove(job)) {
+                return;
+            }
+            this.completedJobsNumber += 1;
+        }
+        this.startPendingJobs();
+    }
+
+    public synchronized int getPendingJobsNumber() {
+        return this.pendingJobs.size();
+    }
+
+    public synchronized int getRunningJobsNumber() {
+        return this.runningJobs.size();
+    }
+
+    /**
+     * @return number of the jobs that were started and are finished (successfully, exceptionally or cancelled).
+     */
+    public synchronized long getCompletedJobsNumber() {
+        return this.completedJobsNumber;
+    }
+
+    /**
+     * @return completed jobs per minute since the first job was started.
+     */
+    public synchronized double getJobsPerMinute() {
+        if (this.firstStartNanos == -1) {
+            return 0.0;
+        }
+        return this.completedJobsNumber * 60e9 / Math.max(1, System.nanoTime() - this.firstStartNanos);
+    }
+
+    /**
+     * Rejects new jobs and cancels the pending and running ones. The own scheduler is stopped.
+     */
+    @Override
+    public void close() {
+        List<Job> jobs;
+        synchronized (this) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            jobs = new ArrayList<>(this.pendingJobs);
+            jobs.addAll(this.runningJobs);
+        }
+        for (Job job: jobs) {
+            job.result.cancel(false);
+        }
+        this.starter.shutdown();
+        if (this.ownsScheduler) {
+            this.scheduler.stop();
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.polarnick.vrp.acs;
+
+import com.polarnick.vrp.model.Route;
+
+/**
+ * Better solution found by {@link MACSVRPTW}, as published by {@link MACSVRPTW#getImprovements()}.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class Improvement {
+
+    public final int vehiclesNumber;
+    /**
+     * Total distance of the solution.
+     */
+    public final double residual;
+    /**
+     * Time since the solver was created.
+     */
+    public final long elapsedNanos;
+    /**
+     * Whether it is the first solution with this vehicles number, the initial solution included.
+     */
+    public final boolean vehiclesNumberImproved;
+    /**
+     * The solution itself, routes are immutable.
+     */
+    public final Route route;
+
+    public Improvement(Route route, long elapsedNanos, boolean vehiclesNumberImproved) {
+        this.vehiclesNumber = route.getVehiclesNumber();
+        this.residual = route.getResidual();
+        this.elapsedNanos = elapsedNanos;
+        this.vehiclesNumberImproved = vehiclesNumberImproved;
+        this.route = route;
+    }
+
+    @Override
+    public String toString() {
+        return "Improvement{vehicles=" + vehiclesNumber + " residual=" + residual + " elapsed=" + elapsedNanos / 1000000 + "ms}";
+    }
+
+}
@@ -0,0 +1,191 @@
+package com.polarnick.vrp.acs;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publisher of the improvements of a solver. {@link #submit} never blocks: each subscriber has a buffer
+ * of {@code bufferSize} improvements, and if the subscriber does not keep up, the oldest buffered improvement is dropped
+ * to make room for the new one (the latest improvements are the interesting ones). The subscribers are signalled
+ * on the executor, one task at a time per subscriber.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class ImprovementPublisher implements Flow.Publisher<Improvement>, AutoCloseable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 16;
+
+    private final Executor executor;
+    private final int bufferSize;
+    private final CopyOnWriteArrayList<BufferedSubscription> subscriptions;
+    private volatile boolean closed;
+
+    public ImprovementPublisher(Executor executor, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size should be positive: " + bufferSize);
+        }
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.subscriptions = new CopyOnWriteArrayList<>();
+        this.closed = false;
+    }
+
+    /**
+     * Subscribers that come after {@link #close()} are completed at once, the earlier improvements are not replayed.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super Improvement> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber is null!");
+        }
+        BufferedSubscription subscription = new BufferedSubscription(subscriber);
+        this.subscriptions.add(subscription);
+        if (this.closed) {
+            subscription.complete();
+        }
+        subscription.schedule();
+    }
+
+    public void submit(Improvement improvement) {
+        for (BufferedSubscription subscription: this.subscriptions) {
+            subscription.offer(improvement);
+        }
+    }
+
+    /**
+     * Completes the subscribers after the improvements buffered for them.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        for (BufferedSubscription subscription: this.subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    public int getSubscribersNumber() {
+        return this.subscriptions.size();
+    }
+
+    private class BufferedSubscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super Improvement> subscriber;
+        private final ArrayDeque<Improvement> buffer;
+        private final AtomicLong demand;
+        private final AtomicInteger pendingSignals;
+        private boolean subscribed;
+        private boolean completed;
+        private Throwable requestError;
+        private volatile boolean cancelled;
+
+        private BufferedSubscription(Flow.Subscriber<? super Improvement> subscriber) {
+            this.subscriber = subscriber;
+            this.buffer = new ArrayDeque<>(bufferSize);
+            this.demand = new AtomicLong();
+            this.pendingSignals = new AtomicInteger();
+            this.subscribed = false;
+            this.completed = false;
+            this.requestError = null;
+            this.cancelled = false;
+        }
+
+        private void offer(Improvement improvement) {
+            synchronized (this) {
+                if (this.completed) {
+                    return;
+                }
+                if (this.buffer.size() == bufferSize) {
+                    this.buffer.pollFirst();
+                }
+                this.buffer.addLast(improvement);
+            }
+            this.schedule();
+        }
+
+        private void complete() {
+            synchronized (this) {
+                this.completed = true;
+            }
+            this.schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                synchronized (this) {
+                    this.requestError = new IllegalArgumentException("Non-positive request: " + n);
+                }
+            } else {
+                this.demand.accumulateAndGet(n, (long demand, long added) -> demand + added < 0 ? Long.MAX_VALUE : demand + added);
+            }
+            this.schedule();
+        }
+
+        @Override
+        public void cancel() {
+            this.cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        private void schedule() {
+            if (this.pendingSignals.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        /**
+         * Signals the subscriber, only one thread at a time runs it.
+         */
+        @Override
+        public void run() {
+            int pending = this.pendingSignals.get();
+            do {
+                try {
+                    this.signal();
+                } catch (Throwable e) {
+                    // the subscriber violated the rule 2.13 by throwing, it is not signalled anymore
+                    this.cancel();
+                }
+                pending = this.pendingSignals.addAndGet(-pending);
+            } while (pending != 0);
+        }
+
+        private void signal() {
+            if (!this.subscribed) {
+                this.subscribed = true;
+                this.subscriber.onSubscribe(this);
+            }
+            while (!this.cancelled) {
+                Improvement improvement;
+                Throwable error;
+                boolean done;
+                synchronized (this) {
+                    error = this.requestError;
+                    improvement = this.demand.get() > 0 ? this.buffer.pollFirst() : null;
+                    done = this.completed && this.buffer.isEmpty();
+                }
+                if (error != null) {
+                    this.cancel();
+                    this.subscriber.onError(error);
+                } else if (improvement != null) {
+                    this.demand.decrementAndGet();
+                    this.subscriber.onNext(improvement);
+                } else if (done) {
+                    this.cancel();
+                    this.subscriber.onComplete();
+                } else {
+                    break;
+                }
+            }
+        }
+    }
+
+}
@@ -1,9 +1,12 @@
 package com.polarnick.vrp.acs;
 
+import com.polarnick.vrp.acs.colonies.AbstractACS;
 import com.polarnick.vrp.acs.colonies.MinDistanceACS;
 import com.polarnick.vrp.acs.colonies.MinVehiclesACS;
 import com.polarnick.vrp.acs.colonies.helpers.MinVehiclesRouteStorage;
 import com.polarnick.vrp.acs.colonies.helpers.Params;
+import com.polarnick.vrp.acs.colonies.helpers.SolverScheduler;
+import com.polarnick.vrp.acs.metrics.SolverMetrics;
 import com.polarnick.vrp.acs.model.AntColonyProblem;
 import com.polarnick.vrp.model.Route;
 import com.polarnick.vrp.model.Stop;
@@ -11,8 +14,8 @@ import com.polarnick.vrp.model.VRProblem;
 import com.polarnick.vrp.utils.Stoppable;
 
 import java.util.*;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Future;
+import java.util.concurrent.*;
+import java.util.function.Function;
 import java.util.logging.Logger;
 
 /**
@@ -20,23 +23,144 @@ import java.util.logging.Logger;
  */
 public class MACSVRPTW implements Runnable, Stoppable {
 
+    public static final int ANTS_NUMBER = 10;
+
+    /**
+     * Parameters of the colonies by default, the pheromone base value is derived from the initial solution.
+     */
+    public static final Params DEFAULT_PARAMS = new Params(0.9, 1, 0.1, 0.0);
+
+    private static final ScheduledExecutorService deadlines = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "MACS-VRPTW deadlines");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final VRProblem problem;
     private final Random random;
     private final MinVehiclesRouteStorage globalBestStorage;
     private final Logger logger;
+    private final SolverScheduler scheduler;
+    private final boolean ownsScheduler;
+    private final ExecutorService callbacksDispatcher;
+    private final SolverMetrics metrics;
+    private final Params params;
+    private final ImprovementPublisher improvements;
+    private final long startNanos;
     private volatile boolean stopped;
 
-    private CountDownLatch currentVehiclesNumberDecreasedCDL;
+    private volatile CountDownLatch currentVehiclesNumberDecreasedCDL;
+
+    private final Object toursLock = new Object();
+    private long finishedToursNumber;
+    private AbstractACS[] currentColonies;
 
     public MACSVRPTW(VRProblem problem, long seed) {
+        this(problem, seed, null);
+    }
+
+    /**
+     * @param scheduler scheduler to run the ants of all the colonies on, if it is null the solver creates its own one
+     *                  for all the available processors and stops it when it finishes.
+     */
+    public MACSVRPTW(VRProblem problem, long seed, SolverScheduler scheduler) {
+        this(problem, seed, scheduler, null);
+    }
+
+    /**
+     * @param metrics metrics to record the colonies and the improvements to, null to keep the metrics off.
+     */
+    public MACSVRPTW(VRProblem problem, long seed, SolverScheduler scheduler, SolverMetrics metrics) {
+        this(problem, seed, scheduler, metrics, DEFAULT_PARAMS);
+    }
+
+    /**
+     * @param params parameters of the colonies (see {@link #DEFAULT_PARAMS}), including the number of the distance
+     *               colonies, the pheromone base value is ignored as it is derived from the initial solution.
+     */
+    public MACSVRPTW(VRProblem problem, long seed, SolverScheduler scheduler, SolverMetrics metrics, Params params) {
         this.problem = problem;
+        this.params = params;
+        this.ownsScheduler = scheduler == null;
+        this.scheduler = scheduler != null ? scheduler
+                : new SolverScheduler(SolverScheduler.Mode.FORK_JOIN, Runtime.getRuntime().availableProcessors());
         this.random = new Random(seed);
         this.logger = Logger.getLogger("MACS-VRPTW");
         this.stopped = false;
         this.globalBestStorage = new MinVehiclesRouteStorage();
+        this.metrics = metrics;
+        this.startNanos = System.nanoTime();
+        this.improvements = new ImprovementPublisher(ForkJoinPool.commonPool(), ImprovementPublisher.DEFAULT_BUFFER_SIZE);
+        this.globalBestStorage.addDistanceImprovedCallback((Route oldRoute, Route newRoute) ->
+                this.improvements.submit(new Improvement(newRoute, System.nanoTime() - this.startNanos, oldRoute == null)));
+        if (metrics != null) {
+            this.globalBestStorage.addVehiclesImprovedCallback(metrics::vehiclesImproved);
+            this.globalBestStorage.addDistanceImprovedCallback(metrics::distanceImproved);
+        }
+        this.callbacksDispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "MACS-VRPTW callbacks");
+            thread.setDaemon(true);
+            return thread;
+        });
         this.currentVehiclesNumberDecreasedCDL = null;
     }
 
+    /**
+     * Solves the problem on a thread of its own. The future is completed with the best solution found when the time
+     * limit of the options expires or as soon as a target of the options is reached. At the deadline the best solution
+     * is taken by a timer without waiting for the colonies or the callbacks of the solver, and the future is completed
+     * on a thread of the solve, so its dependent stages never delay the deadlines of other solves. If there is
+     * no solution at the deadline (the initial one is not constructed yet), the future is completed with
+     * {@link TimeoutException}.
+     * <p>
+     * Once the future is done, including cancellation, the solver is stopped: the ants give up their tours within a step
+     * of the construction or a pass of the local search, and the scheduler of the solver (unless it is the one of
+     * the options) is shut down.
+     */
+    public static CompletableFuture<Route> solve(VRProblem problem, SolveOptions options) {
+        MACSVRPTW solver = new MACSVRPTW(problem, options.seed, options.scheduler, options.metrics, options.params);
+        CompletableFuture<Route> result = new CompletableFuture<>();
+        solver.addDistanceImprovedCallback((Route oldRoute, Route newRoute) -> {
+            if (options.isTargetReached(newRoute)) {
+                result.complete(newRoute);
+            }
+        });
+        ScheduledFuture<?> deadline = deadlines.schedule(() -> solver.completeWithBestRoute(result, options),
+                options.timeLimitMillis, TimeUnit.MILLISECONDS);
+        result.whenComplete((Route route, Throwable e) -> {
+            deadline.cancel(false);
+            solver.stop();
+        });
+        // the timer is shared by all the solves, so the dependents of the caller run on a thread of this solve instead
+        CompletableFuture<Route> published = result.thenApplyAsync(Function.identity(), runnable -> {
+            Thread thread = new Thread(runnable, "MACS-VRPTW result");
+            thread.setDaemon(true);
+            thread.start();
+        });
+        // cancelling the future of the caller stops the solve
+        published.whenComplete((Route route, Throwable e) -> result.cancel(false));
+
+        Thread thread = new Thread(() -> {
+            try {
+                solver.run();
+                solver.completeWithBestRoute(result, options);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }, "MACS-VRPTW");
+        thread.start();
+        return published;
+    }
+
+    private void completeWithBestRoute(CompletableFuture<Route> result, SolveOptions options) {
+        Route route = this.getCurrentBestRoute();
+        if (route != null) {
+            result.complete(route);
+        } else {
+            result.completeExceptionally(new TimeoutException("No solution in " + options.timeLimitMillis + " ms"));
+        }
+    }
+
     protected static int findNearest(VRProblem problem, Stop curStop, int curLoad, int curTime,
                                      Stop[] customers, boolean[] visited, Stop depot) {
         int minI = -1;
@@ -93,36 +217,107 @@ public class MACSVRPTW implements Runnable, Stoppable {
         } while (true);
 
         int vehiclesNumber = routes.size();
-        List<Integer> singleRoute = new ArrayList<>(vehiclesNumber + 1 + problem.customersNumber);
+        int[] singleRoute = new int[routes.isEmpty() ? 0 : vehiclesNumber + 1 + problem.customersNumber];
+        int nodesNumber = 0;
         int depotIndex = 0;
         for (Deque<Integer> route : routes) {
-            singleRoute.add(depotIndex);
+            singleRoute[nodesNumber++] = depotIndex;
             for (int i : route) {
-                singleRoute.add(vehiclesNumber + 1 + i);
+                singleRoute[nodesNumber++] = vehiclesNumber + 1 + i;
             }
             depotIndex += 1;
         }
         if (routes.size() != 0) {
-            singleRoute.add(depotIndex);
+            singleRoute[nodesNumber++] = depotIndex;
         }
 
-        AntColonyProblem acProblem = new AntColonyProblem(vehiclesNumber, problem.vehicleCapacity, problem.depot, problem.customers);
+        AntColonyProblem acProblem = AntColonyProblem.buildProblem(problem, vehiclesNumber);
         return new Route(acProblem, singleRoute);
     }
 
+    /**
+     * The callback is called when the solver finds a solution with fewer vehicles than before, the first one is
+     * the initial solution. Callbacks should be added before the solver is run.
+     */
+    public void addVehiclesImprovedCallback(MinVehiclesRouteStorage.Callback vehiclesImproved) {
+        this.globalBestStorage.addVehiclesImprovedCallback(vehiclesImproved);
+    }
+
+    /**
+     * The callback is called when the solver finds a better solution, including ones with fewer vehicles.
+     * Callbacks should be added before the solver is run.
+     */
+    public void addDistanceImprovedCallback(MinVehiclesRouteStorage.Callback distanceImproved) {
+        this.globalBestStorage.addDistanceImprovedCallback(distanceImproved);
+    }
+
+    /**
+     * @return number of tours constructed by the ants of all the colonies so far.
+     */
+    public long getToursNumber() {
+        synchronized (this.toursLock) {
+            long toursNumber = this.finishedToursNumber;
+            if (this.currentColonies != null) {
+                for (AbstractACS colony: this.currentColonies) {
+                    toursNumber += colony.getToursNumber();
+                }
+            }
+            return toursNumber;
+        }
+    }
+
+    /**
+     * @return number of generations of all the colonies so far, each of {@link #ANTS_NUMBER} tours.
+     */
+    public long getGenerationsNumber() {
+        return this.getToursNumber() / ANTS_NUMBER;
+    }
+
+    /**
+     * Each better solution is published to the subscribers, including the initial one and the ones with fewer vehicles.
+     * The colonies never wait for the subscribers: a slow subscriber loses the oldest of its buffered improvements.
+     * The subscribers are completed when the solver finishes.
+     */
+    public Flow.Publisher<Improvement> getImprovements() {
+        return this.improvements;
+    }
+
+    /**
+     * @return metrics of the solver, null if they are off.
+     */
+    public SolverMetrics getMetrics() {
+        return this.metrics;
+    }
+
     public Route getCurrentBestRoute() {
         return this.globalBestStorage.getBestRoute(this.globalBestStorage.getMinVehiclesNumber());
     }
 
     @Override
     public void run() {
+        try {
+            this.solveIterations();
+        } finally {
+            if (this.ownsScheduler) {
+                this.scheduler.stop();
+            }
+            this.callbacksDispatcher.shutdown();
+            try {
+                this.callbacksDispatcher.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.improvements.close();
+        }
+    }
+
+    private void solveIterations() {
         Route initialSolution = calculateNearestNeighbourhoodHeuristic(problem);
         this.logger.info("Initial solution calculated: " + initialSolution);
         this.globalBestStorage.suggestBestRoute(initialSolution);
 
-        int antsNumber = 10;
         double pheromoneBaseValue = 1.0 / (problem.customers.length * initialSolution.getResidual());
-        Params params = new Params(0.9, 1, 0.1, pheromoneBaseValue);
+        Params params = this.params.withPheromoneBaseValue(pheromoneBaseValue);
         int iterationNum = 1;
         do {
             int vehiclesNumber = globalBestStorage.getMinVehiclesNumber();
@@ -134,44 +329,75 @@ public class MACSVRPTW implements Runnable, Stoppable {
             if (isStopped()) {
                 return;
             }
-            MinVehiclesRouteStorage routeStorage = new MinVehiclesRouteStorage(globalBest);
-
-            routeStorage.addVehiclesImprovedCallback((Route oldRoute, Route newRoute) -> vehiclesNumberDecreasedCDL.countDown());
+            MinVehiclesRouteStorage routeStorage = new MinVehiclesRouteStorage(globalBest, callbacksDispatcher);
 
+            // callbacks are run by the single dispatcher thread in order, so the global storage is up to date
+            // by the time the vehicles number decrease is signalled
             routeStorage.addDistanceImprovedCallback((Route oldRoute, Route newRoute) -> globalBestStorage.suggestBestRoute(newRoute));
             routeStorage.addVehiclesImprovedCallback((Route oldRoute, Route newRoute) -> globalBestStorage.suggestBestRoute(newRoute));
 
+            routeStorage.addVehiclesImprovedCallback((Route oldRoute, Route newRoute) -> vehiclesNumberDecreasedCDL.countDown());
+
             routeStorage.addDistanceImprovedCallback((Route oldRoute, Route newRoute) ->
-                    logger.info("Distance improved: " + oldRoute.getResidual() + " -> " + newRoute.getResidual() + " " + newRoute));
+                    logger.info("Distance improved: " + (oldRoute == null ? "none" : oldRoute.getResidual()) + " -> " + newRoute.getResidual() + " " + newRoute));
             routeStorage.addVehiclesImprovedCallback((Route oldRoute, Route newRoute) ->
                     logger.info("Vehicles number improved: " + oldRoute.getVehiclesNumber() + " (" + oldRoute.getResidual() + ") -> "
                             + newRoute.getVehiclesNumber() + " (" + newRoute.getResidual() + ")" + " " + newRoute));
 
-            AntColonyProblem minimizeDistance = new AntColonyProblem(vehiclesNumber, problem.vehicleCapacity, problem.depot, problem.customers);
-            MinDistanceACS acsMinDistance = new MinDistanceACS(minimizeDistance, antsNumber, routeStorage, random.nextLong(), params);
+            AntColonyProblem minimizeDistance = AntColonyProblem.buildProblem(problem, vehiclesNumber);
+            MinDistanceACS[] acsMinDistance = new MinDistanceACS[params.islandsNumber];
+            for (int island = 0; island < params.islandsNumber; island++) {
+                acsMinDistance[island] = new MinDistanceACS(minimizeDistance, ANTS_NUMBER, routeStorage, random.nextLong(), params, scheduler,
+                        metrics == null ? null : metrics.getColonyMetrics(MinDistanceACS.COLONY_NAME));
+            }
 
-            AntColonyProblem improveVehiclesNumber = new AntColonyProblem(vehiclesNumber - 1, problem.vehicleCapacity, problem.depot, problem.customers);
-            MinVehiclesACS acsMinVehicles = new MinVehiclesACS(improveVehiclesNumber, antsNumber, routeStorage, random.nextLong(), params);
+            AntColonyProblem improveVehiclesNumber = AntColonyProblem.buildProblem(problem, vehiclesNumber - 1);
+            MinVehiclesACS acsMinVehicles = new MinVehiclesACS(improveVehiclesNumber, ANTS_NUMBER, routeStorage, random.nextLong(), params, scheduler,
+                    metrics == null ? null : metrics.getColonyMetrics(MinVehiclesACS.COLONY_NAME));
 
-            Thread acsDist = new Thread(acsMinDistance);
+            AbstractACS[] colonies = Arrays.copyOf(acsMinDistance, params.islandsNumber + 1, AbstractACS[].class);
+            colonies[params.islandsNumber] = acsMinVehicles;
+            synchronized (this.toursLock) {
+                this.currentColonies = colonies;
+            }
+
+            Thread[] acsDist = new Thread[params.islandsNumber];
+            for (int island = 0; island < params.islandsNumber; island++) {
+                acsDist[island] = new Thread(acsMinDistance[island]);
+                acsDist[island].start();
+            }
             Thread acsVeh = new Thread(acsMinVehicles);
-            acsDist.start();
             if (vehiclesNumber > 1) {
                 acsVeh.start();
             }
             try {
                 vehiclesNumberDecreasedCDL.await();
-                if (isStopped()) {
-                    return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.stop();
+            }
+            for (AbstractACS colony: colonies) {
+                colony.stop();
+            }
+            try {
+                for (Thread thread: acsDist) {
+                    thread.join();
                 }
-                this.logger.info("Vehicles number decreased from " + vehiclesNumber + " to " + globalBestStorage.getMinVehiclesNumber() + "!");
-                acsMinDistance.stop();
-                acsMinVehicles.stop();
-                acsDist.join();
                 acsVeh.join();
             } catch (InterruptedException e) {
-                e.printStackTrace(); // TODO: handle correctly
+                Thread.currentThread().interrupt();
+                this.stop();
             }
+            synchronized (this.toursLock) {
+                for (AbstractACS colony: colonies) {
+                    this.finishedToursNumber += colony.getToursNumber();
+                }
+                this.currentColonies = null;
+            }
+            if (isStopped()) {
+                return;
+            }
+            this.logger.info("Vehicles number decreased from " + vehiclesNumber + " to " + globalBestStorage.getMinVehiclesNumber() + "!");
             iterationNum += 1;
         } while (!this.isStopped());
     }
@@ -188,6 +414,13 @@ public class MACSVRPTW implements Runnable, Stoppable {
         if (currentVehiclesNumberDecreasedCDL != null) {
             currentVehiclesNumberDecreasedCDL.countDown();
         }
+        synchronized (this.toursLock) {
+            if (this.currentColonies != null) {
+                for (AbstractACS colony: this.currentColonies) {
+                    colony.stop();
+                }
+            }
+        }
         return !alreadyStopped;
     }
 }
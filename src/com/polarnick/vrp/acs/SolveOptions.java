@@ -0,0 +1,101 @@
+package com.polarnick.vrp.acs;
+
+import com.polarnick.vrp.acs.colonies.helpers.Params;
+import com.polarnick.vrp.acs.colonies.helpers.SolverScheduler;
+import com.polarnick.vrp.acs.metrics.SolverMetrics;
+import com.polarnick.vrp.model.Route;
+
+/**
+ * Options of {@link MACSVRPTW#solve(com.polarnick.vrp.model.VRProblem, SolveOptions)}.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class SolveOptions {
+
+    public static final long DEFAULT_SEED = 239;
+
+    /**
+     * Wall-clock budget, counted from the call of {@code solve}.
+     */
+    public final long timeLimitMillis;
+    public final long seed;
+    /**
+     * The solver finishes as soon as it finds a solution with at most this number of vehicles, -1 for no target.
+     */
+    public final int targetVehiclesNumber;
+    /**
+     * The solver finishes as soon as it finds a solution with at most this residual (total distance), -1 for no target.
+     * If both targets are set, both of them should be reached.
+     */
+    public final double targetResidual;
+    /**
+     * Scheduler to run the ants on, null for a scheduler of the solver's own.
+     */
+    public final SolverScheduler scheduler;
+    /**
+     * Null to keep the metrics off.
+     */
+    public final SolverMetrics metrics;
+    /**
+     * Parameters of the colonies, see {@link MACSVRPTW#DEFAULT_PARAMS}.
+     */
+    public final Params params;
+
+    public SolveOptions(long timeLimitMillis) {
+        this(timeLimitMillis, DEFAULT_SEED, -1, -1.0, null, null, MACSVRPTW.DEFAULT_PARAMS);
+    }
+
+    private SolveOptions(long timeLimitMillis, long seed, int targetVehiclesNumber, double targetResidual,
+                         SolverScheduler scheduler, SolverMetrics metrics, Params params) {
+        if (timeLimitMillis <= 0) {
+            throw new IllegalArgumentException("Time limit should be positive: " + timeLimitMillis);
+        }
+        this.timeLimitMillis = timeLimitMillis;
+        this.seed = seed;
+        this.targetVehiclesNumber = targetVehiclesNumber;
+        this.targetResidual = targetResidual;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.params = params;
+    }
+
+    public SolveOptions withTimeLimitMillis(long timeLimitMillis) {
+        return new SolveOptions(timeLimitMillis, seed, targetVehiclesNumber, targetResidual, scheduler, metrics, params);
+    }
+
+    public SolveOptions withSeed(long seed) {
+        return new SolveOptions(timeLimitMillis, seed, targetVehiclesNumber, targetResidual, scheduler, metrics, params);
+    }
+
+    public SolveOptions withTargetVehiclesNumber(int targetVehiclesNumber) {
+        return new SolveOptions(timeLimitMillis, seed, targetVehiclesNumber, targetResidual, scheduler, metrics, params);
+    }
+
+    public SolveOptions withTargetResidual(double targetResidual) {
+        return new SolveOptions(timeLimitMillis, seed, targetVehiclesNumber, targetResidual, scheduler, metrics, params);
+    }
+
+    public SolveOptions withScheduler(SolverScheduler scheduler) {
+        return new SolveOptions(timeLimitMillis, seed, targetVehiclesNumber, targetResidual, scheduler, metrics, params);
+    }
+
+    public SolveOptions withMetrics(SolverMetrics metrics) {
+        return new SolveOptions(timeLimitMillis, seed, targetVehiclesNumber, targetResidual, scheduler, metrics, params);
+    }
+
+    public SolveOptions withParams(Params params) {
+        return new SolveOptions(timeLimitMillis, seed, targetVehiclesNumber, targetResidual, scheduler, metrics, params);
+    }
+
+    /**
+     * @return false if no target is set.
+     */
+    public boolean isTargetReached(Route route) {
+        if (targetVehiclesNumber == -1 && targetResidual < 0) {
+            return false;
+        }
+        return (targetVehiclesNumber == -1 || route.getVehiclesNumber() <= targetVehiclesNumber)
+                && (targetResidual < 0 || route.getResidual() <= targetResidual);
+    }
+
+}
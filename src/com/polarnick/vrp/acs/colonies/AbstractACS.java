@@ -1,10 +1,15 @@
 package com.polarnick.vrp.acs.colonies;
 
+import com.polarnick.vrp.acs.colonies.helpers.AntWorkspace;
+import com.polarnick.vrp.acs.colonies.helpers.LocalSearch;
 import com.polarnick.vrp.acs.colonies.helpers.Params;
+import com.polarnick.vrp.acs.colonies.helpers.SolverScheduler;
+import com.polarnick.vrp.acs.metrics.ColonyMetrics;
 import com.polarnick.vrp.acs.model.AntColonyProblem;
 import com.polarnick.vrp.acs.model.AntColonyState;
+import com.polarnick.vrp.model.CandidateLists;
+import com.polarnick.vrp.model.InsertionIndex;
 import com.polarnick.vrp.model.Route;
-import com.polarnick.vrp.model.Stop;
 import com.polarnick.vrp.utils.Stoppable;
 
 import java.util.*;
@@ -17,6 +22,22 @@ import java.util.stream.Collectors;
  */
 public abstract class AbstractACS implements Runnable, Stoppable {
 
+    /**
+     * How the ants of a colony are interleaved with the global pheromone updates.
+     */
+    public enum Schedule {
+        /**
+         * Generations of ants: all the ants are waited for, then their routes are processed and the global update is done.
+         */
+        BARRIER,
+        /**
+         * Steady state: the route of each ant is processed as soon as the ant finishes and a new ant is started at once,
+         * the global update is done after each {@code antsNumber} finished ants. Ants of neighbouring generations
+         * overlap, so the cores are not idle while the slowest ant of a generation finishes.
+         */
+        PIPELINED,
+    }
+
     protected final AntColonyProblem problem;
     protected final AntColonyState state;
     protected final int antsNumber;
@@ -25,25 +46,142 @@ public abstract class AbstractACS implements Runnable, Stoppable {
     protected final Random random;
     protected final boolean withLocalSearch;
     protected final Params params;
+    protected final CandidateLists candidateLists;
+    /**
+     * Null if the metrics are off.
+     */
+    protected final ColonyMetrics metrics;
 
     private volatile boolean stopped;
-    private final ExecutorService executor;
+    private final SolverScheduler scheduler;
+    private final List<Ant> ants;
+    private volatile long toursNumber;
+    private long localUpdatesNanos;
     protected final Logger logger;
 
-    public AbstractACS(AntColonyProblem problem, int antsNumber, String colonyName, long seed, boolean withLocalSearch, Params params) {
+    public AbstractACS(AntColonyProblem problem, int antsNumber, String colonyName, long seed, boolean withLocalSearch, Params params,
+                       SolverScheduler scheduler, ColonyMetrics metrics) {
         this.problem = problem;
-        this.state = new AntColonyState(this.problem);
+        this.state = new AntColonyState(this.problem, params.pheromoneUpdate);
         this.antsNumber = antsNumber;
         this.colonyName = colonyName;
         this.seed = seed;
         this.random = new Random(seed);
         this.withLocalSearch = withLocalSearch;
         this.params = params;
-        this.executor = Executors.newFixedThreadPool(this.antsNumber);
+        this.candidateLists = params.candidateListSize > 0 ? problem.getCandidateLists(params.candidateListSize) : null;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.ants = new ArrayList<>(this.antsNumber);
+        for (int id = 0; id < this.antsNumber; id++) {
+            this.ants.add(new Ant(id, new AntWorkspace(this.problem, this.params)));
+        }
         this.stopped = false;
+        this.toursNumber = 0;
         this.logger = Logger.getLogger(colonyName);
     }
 
+    /**
+     * Evaluates the routes of the finished ants and offers the good ones to the best route storage.
+     * Called from the colony thread only, with all the routes of a generation or with a single route in
+     * {@link Schedule#PIPELINED} schedule.
+     */
+    protected abstract void processRoutes(List<Route> routes);
+
+    /**
+     * Global pheromone update, called from the colony thread once per {@code antsNumber} processed routes.
+     */
+    protected abstract void globalUpdate();
+
+    @Override
+    public void run() {
+        this.logger.info("Starting ACS...");
+        if (this.params.schedule == Schedule.PIPELINED) {
+            this.runPipelined();
+        } else {
+            do {
+                List<Route> routes = this.runAnts();
+                if (routes.isEmpty()) {
+                    continue;
+                }
+                this.processRoutes(routes);
+                this.runGlobalUpdate();
+            } while (!this.isStopped());
+        }
+        this.logger.info("ACS stopped!");
+    }
+
+    private void runPipelined() {
+        CompletionService<Ant> completionService = this.scheduler.newCompletionService();
+        int running = 0;
+        int processed = 0;
+        try {
+            for (Ant ant: this.ants) {
+                this.submit(completionService, ant);
+                running += 1;
+            }
+            while (running > 0) {
+                Future<Ant> future = completionService.poll(100, TimeUnit.MILLISECONDS);
+                if (future == null) {
+                    if (this.scheduler.isStopped()) {
+                        throw new RejectedExecutionException();
+                    }
+                    continue;
+                }
+                running -= 1;
+                Ant ant = future.get();
+                if (this.state.pheromoneUpdate == AntColonyState.PheromoneUpdate.BUFFERED) {
+                    this.applyLocalUpdates(ant.workspace);
+                }
+                if (ant.getRoute() != null) {
+                    this.toursNumber += 1;
+                    this.processRoutes(Collections.singletonList(ant.getRoute()));
+                    processed += 1;
+                }
+                if (processed == this.antsNumber) {
+                    this.runGlobalUpdate();
+                    processed = 0;
+                }
+                if (!this.isStopped()) {
+                    this.submit(completionService, ant);
+                    running += 1;
+                }
+            }
+        } catch (InterruptedException | RejectedExecutionException | CancellationException e) {
+            logger.info("Scheduler is stopped, stopping ACS...");
+            this.stop();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            this.stop();
+        }
+    }
+
+    private void runGlobalUpdate() {
+        if (this.metrics == null) {
+            this.globalUpdate();
+            return;
+        }
+        long start = System.nanoTime();
+        this.globalUpdate();
+        this.metrics.recordGeneration(System.nanoTime() - start + this.localUpdatesNanos);
+        this.localUpdatesNanos = 0;
+    }
+
+    private void submit(CompletionService<Ant> completionService, Ant ant) {
+        ant.reset(this.random.nextLong());
+        completionService.submit(() -> {
+            ant.call();
+            return ant;
+        });
+    }
+
+    /**
+     * @return number of the tours constructed by the ants of the colony so far.
+     */
+    public long getToursNumber() {
+        return this.toursNumber;
+    }
+
     public boolean stop() {
         boolean alreadyStopped = this.stopped;
         this.stopped = true;
@@ -56,25 +194,29 @@ public abstract class AbstractACS implements Runnable, Stoppable {
     }
 
     public List<Route> runAnts() {
-        List<Ant> ants = new ArrayList<>(this.antsNumber);
-        for (int id = 0; id < this.antsNumber; id++) {
-            long antSeed = this.random.nextLong();
-            Ant ant = new Ant(id, antSeed);
-            ants.add(ant);
+        for (Ant ant: this.ants) {
+            ant.reset(this.random.nextLong());
         }
 //        logger.info(antsNumber + " ants started...");
         try {
-            List<Future<Route>> results = this.executor.invokeAll(ants);
+            List<Future<Route>> results = this.scheduler.invokeAll(this.ants);
             for (Future<Route> future: results) {
                 future.get();
             }
-        } catch (InterruptedException e) {
-            e.printStackTrace(); // TODO: handle it correctly
+            if (this.state.pheromoneUpdate == AntColonyState.PheromoneUpdate.BUFFERED) {
+                for (Ant ant: this.ants) {
+                    this.applyLocalUpdates(ant.workspace);
+                }
+            }
+        } catch (InterruptedException | RejectedExecutionException | CancellationException e) {
+            logger.info("Scheduler is stopped, stopping ACS...");
+            this.stop();
         } catch (ExecutionException e) {
             e.printStackTrace();
         }
         List<Route> routes = new ArrayList<>(this.antsNumber);
-        routes.addAll(ants.stream().map(Ant::getRoute).collect(Collectors.toList()));
+        routes.addAll(this.ants.stream().map(Ant::getRoute).filter(Objects::nonNull).collect(Collectors.toList()));
+        this.toursNumber += routes.size();
         return routes;
     }
 
@@ -84,145 +226,317 @@ public abstract class AbstractACS implements Runnable, Stoppable {
 
     protected void updatePheromone(Route route) {
         int prevI = -1;
-        for (int curI: route) {
+        for (int position = 0; position < route.size(); position++) {
+            int curI = route.getNode(position);
             if (prevI == -1) {
                 prevI = curI;
                 continue;
             }
 
-            state.pheromone[prevI][curI] = (1 - params.pheromoneFading) * state.pheromone[prevI][curI] + params.pheromoneFading / route.getResidual();
+            state.updatePheromone(prevI, curI, params.pheromoneFading, params.pheromoneFading / route.getResidual());
+        }
+    }
+
+    private void localUpdate(AntWorkspace workspace, int from, int to) {
+        if (state.pheromoneUpdate == AntColonyState.PheromoneUpdate.BUFFERED) {
+            workspace.recordEdge(from, to);
+        } else {
+            state.updatePheromone(from, to, params.pheromoneFading, params.pheromoneFading * params.pheromoneBaseValue);
         }
     }
 
-    protected static LinkedList<Integer> calcCustomersToInsertByDemand(List<Integer> nodes, AntColonyProblem problem) {
+    private void applyLocalUpdates(AntWorkspace workspace) {
+        long start = this.metrics != null ? System.nanoTime() : 0;
+        for (int k = 0; k < workspace.getEdgesNumber(); k++) {
+            state.updatePheromone(workspace.edgesFrom[k], workspace.edgesTo[k],
+                    params.pheromoneFading, params.pheromoneFading * params.pheromoneBaseValue);
+        }
+        workspace.clearEdges();
+        if (this.metrics != null) {
+            this.localUpdatesNanos += System.nanoTime() - start;
+        }
+    }
+
+    private static boolean[] calcVisited(int[] nodes, int nodesNumber, AntColonyProblem problem) {
         boolean[] visited = new boolean[problem.n];
-        int customersLeft = problem.customersNumber;
-        for (int i: nodes) {
+        for (int k = 0; k < nodesNumber; k++) {
+            int i = nodes[k];
             assert !visited[i];
             visited[i] = true;
-            if (!problem.stops[i].isDepot()) {
-                customersLeft -= 1;
-            }
         }
-        Integer[] customersToVisit = new Integer[customersLeft];
-        int nextI = 0;
-        for (int i = 0; i < problem.n; i++) {
-            if (!problem.stops[i].isDepot() && !visited[i]) {
-                customersToVisit[nextI] = i;
-                nextI += 1;
-            }
-        }
-        Arrays.sort(customersToVisit, (i0, i1) -> -(problem.stops[((int) i0)].demand - problem.stops[((int) i1)].demand));
-        return new LinkedList<>(Arrays.asList(customersToVisit));
+        return visited;
     }
 
-    protected static List<Integer> insertionProcedure(List<Integer> nodes, AntColonyProblem problem) {
-        LinkedList<Integer> customersToInsert = new LinkedList<>(calcCustomersToInsertByDemand(nodes, problem));
-        List<Integer> newNodes = new ArrayList<>(nodes.size() + customersToInsert.size());
-        if (nodes.size() == 0) {
-            return newNodes;
-        }
+    protected static int[] insertionProcedure(int[] nodes, AntColonyProblem problem) {
+        return insertionProcedure(nodes, nodes.length, problem);
+    }
 
-        int[] maxT = new int[nodes.size()];
-        int[] reqiuredDemand = new int[nodes.size()];
-        {
-            Stop last = problem.stops[nodes.get(nodes.size() - 1)];
-            assert last.isDepot();
-            maxT[nodes.size() - 1] = last.toT;
-            reqiuredDemand[nodes.size() - 1] = 0;
+    /**
+     * Inserts unvisited customers into the first {@code nodesNumber} nodes wherever time windows and capacity allow,
+     * as evaluated by {@link Route.InsertionPoint}. Into each gap the first fitting customer in the order of demand
+     * (descending, customers with equal demand in the order of their indices) is inserted while there is one.
+     * The customers left are kept in linked lists per time window bucket of {@link InsertionIndex}, so the buckets
+     * that can not fit the gap are skipped.
+     *
+     * @return new array with the resulting nodes.
+     */
+    protected static int[] insertionProcedure(int[] nodes, int nodesNumber, AntColonyProblem problem) {
+        if (nodesNumber == 0) {
+            return new int[0];
         }
-        for (int nextI = nodes.size() - 1; nextI > 0; nextI--) {
-            int prevI = nextI - 1;
-            Stop prev = problem.stops[nodes.get(prevI)];
-            Stop next = problem.stops[nodes.get(nextI)];
-            if (prev.isDepot()) {
-                maxT[prevI] = prev.toT;
-                reqiuredDemand[prevI] = 0;
+        boolean[] visited = calcVisited(nodes, nodesNumber, problem);
+        InsertionIndex index = problem.insertionIndex;
+        int bucketsNumber = index.getBucketsNumber();
+        int[] nextByDemand = new int[index.getCustomersNumber()];
+        int[] prevByDemand = new int[index.getCustomersNumber()];
+        int[] bucketHead = new int[bucketsNumber];
+        int[] bucketTail = new int[bucketsNumber];
+        Arrays.fill(bucketHead, -1);
+        Arrays.fill(bucketTail, -1);
+        int customersLeft = 0;
+        for (int position = 0; position < index.getCustomersNumber(); position++) {
+            if (visited[problem.getCustomerNode(index.getCustomerByDemand(position))]) {
+                continue;
+            }
+            int bucket = index.getBucketByDemand(position);
+            prevByDemand[position] = bucketTail[bucket];
+            nextByDemand[position] = -1;
+            if (bucketTail[bucket] == -1) {
+                bucketHead[bucket] = position;
             } else {
-                maxT[prevI] = Math.min(maxT[nextI] - problem.getTimeDistance(nodes.get(prevI), nodes.get(nextI)) - prev.delayT, prev.toT);
-                reqiuredDemand[prevI] = reqiuredDemand[nextI] + prev.demand;
+                nextByDemand[bucketTail[bucket]] = position;
             }
+            bucketTail[bucket] = position;
+            customersLeft += 1;
         }
 
-        int minTAfterCur = problem.stops[nodes.get(0)].fromT + problem.stops[nodes.get(0)].delayT;
-        int curLoad = problem.vehicleCapacity;
-        for (int i = 0; i < nodes.size() - 1; i++) {
-            int curI = nodes.get(i);
-            int nextI = nodes.get(i + 1);
-            int maxTNext = maxT[i + 1];
-            int requiredDemandNext = reqiuredDemand[i + 1];
-            newNodes.add(curI);
-
-            boolean inserted = false;
-            do {
-                Iterator<Integer> candidateIter = customersToInsert.iterator();
-                inserted = false;
-                while (candidateIter.hasNext()) {
-                    int candidateI = candidateIter.next();
-                    Stop candidate = problem.stops[candidateI];
-
-                    if (curLoad - candidate.demand < requiredDemandNext || candidate.isDepot()) {
+        int[] newNodes = new int[nodesNumber + customersLeft];
+        int newNodesNumber = 0;
+        assert problem.isDepot[nodes[nodesNumber - 1]];
+        // the insertions only change the tours before the gap, which are tracked here, the rest is evaluated by the route
+        Route route = new Route(problem, Arrays.copyOf(nodes, nodesNumber));
+        int curI = nodes[0];
+        int departure = route.getEarliestStart(0) + problem.delayT[curI];
+        int addedLoad = 0;
+        newNodes[newNodesNumber++] = curI;
+        for (int position = 1; position < nodesNumber; position++) {
+            int maxTNext = route.getLatestStart(position);
+            while (customersLeft > 0) {
+                Route.InsertionPoint gap = route.getInsertionPoint(position, curI, departure, addedLoad);
+                int found = -1;
+                for (int bucket = 0; bucket < bucketsNumber; bucket++) {
+                    if (bucketHead[bucket] == -1 || index.getBucketMaxToT(bucket) < departure
+                            || index.getBucketMinFromT(bucket) > maxTNext) {
                         continue;
                     }
-
-                    int minTCandidateStart = Math.max(minTAfterCur + problem.getTimeDistance(curI, candidateI), candidate.fromT);
-                    if (minTCandidateStart > candidate.toT) {
-                        continue;
+                    for (int candidate = bucketHead[bucket]; candidate != -1 && (found == -1 || candidate < found); candidate = nextByDemand[candidate]) {
+                        int candidateI = problem.getCustomerNode(index.getCustomerByDemand(candidate));
+                        if (gap.canInsert(candidateI)) {
+                            found = candidate;
+                            break;
+                        }
                     }
+                }
+                if (found == -1) {
+                    break;
+                }
 
-                    int minTAfterCandidate = minTCandidateStart + candidate.delayT;
-                    int minTNextStart = minTAfterCandidate + problem.getTimeDistance(candidateI, nextI);
-                    if (minTNextStart > maxTNext) {
-                        continue;
-                    }
+                int bucket = index.getBucketByDemand(found);
+                if (prevByDemand[found] == -1) {
+                    bucketHead[bucket] = nextByDemand[found];
+                } else {
+                    nextByDemand[prevByDemand[found]] = nextByDemand[found];
+                }
+                if (nextByDemand[found] == -1) {
+                    bucketTail[bucket] = prevByDemand[found];
+                } else {
+                    prevByDemand[nextByDemand[found]] = prevByDemand[found];
+                }
+                customersLeft -= 1;
 
-                    inserted = true;
-                    candidateIter.remove();
-                    newNodes.add(candidateI);
+                int candidateI = problem.getCustomerNode(index.getCustomerByDemand(found));
+                newNodes[newNodesNumber++] = candidateI;
+                departure = Math.max(departure + problem.getTimeDistance(curI, candidateI), problem.fromT[candidateI])
+                        + problem.delayT[candidateI];
+                addedLoad += problem.demand[candidateI];
+                curI = candidateI;
+            }
 
-                    curI = candidateI;
-                    curLoad -= candidate.demand;
-                    minTAfterCur = minTAfterCandidate;
-                    break;
-                }
-            } while(inserted);
+            int nextI = nodes[position];
+            newNodes[newNodesNumber++] = nextI;
+            if (problem.isDepot[nextI]) {
+                departure = route.getEarliestStart(position) + problem.delayT[nextI];
+                addedLoad = 0;
+            } else {
+                departure = Math.max(departure + problem.getTimeDistance(curI, nextI), problem.fromT[nextI]) + problem.delayT[nextI];
+            }
+            curI = nextI;
+        }
+        return newNodesNumber == newNodes.length ? newNodes : Arrays.copyOf(newNodes, newNodesNumber);
+    }
 
-            Stop next = problem.stops[nextI];
-            curLoad -= next.demand;
-            minTAfterCur = Math.max(minTAfterCur + problem.getTimeDistance(curI, nextI), next.fromT);
-            assert minTAfterCur <= next.toT;
-            assert minTAfterCur <= maxTNext;
+    protected static int[] localSearchProcedure(int[] nodes, AntColonyProblem problem) {
+        return localSearchProcedure(nodes, problem, new LocalSearch(problem));
+    }
 
-            minTAfterCur += next.delayT;
+    /**
+     * Improves the tours with {@link LocalSearch}. The result is kept only if it has smaller residual than {@code nodes},
+     * because the residual is what the colonies compare routes by.
+     */
+    protected static int[] localSearchProcedure(int[] nodes, AntColonyProblem problem, LocalSearch localSearch) {
+        int[] improvedNodes = localSearch.improve(nodes);
+        if (improvedNodes == nodes) {
+            return nodes;
+        }
+        return new Route(problem, improvedNodes).getResidual() < new Route(problem, nodes).getResidual() ? improvedNodes : nodes;
+    }
 
-            if (next.isDepot()) {
-                curLoad = problem.vehicleCapacity;
-                minTAfterCur = next.fromT + next.demand;
+    /**
+     * Adds node {@code i} as a candidate for the next node of the tour if it is feasible (see {@link AntWorkspace#drainCandidates}).
+     *
+     * @return new number of candidates in the workspace.
+     */
+    private int addCandidate(AntWorkspace workspace, int candidatesNumber, int i, int curNode, int curTime, int load) {
+        int stopIndex = problem.getStopIndex(i);
+        if (!workspace.visited[i] && load >= problem.demand[i]
+                && problem.timeWindowIndex.canFollow(problem.getStopIndex(curNode), stopIndex)) {
+            int timeDistance = problem.getTimeDistance(curNode, i);
+            int toT = problem.toT[i];
+            if (toT < curTime + timeDistance) {
+                return candidatesNumber;
+            }
+            int deliveryTime = Math.max(curTime + timeDistance, problem.fromT[i]);
+            if (deliveryTime > problem.timeWindowIndex.getLatestDelivery(stopIndex)) {
+                return candidatesNumber;
             }
+            int distance = (deliveryTime - curTime) * (toT - curTime);
+            distance = Math.max(1, distance - getIgnoresCount(i));
+
+            workspace.addCandidate(i, state.getPheromone(curNode, i), distance);
+            candidatesNumber += 1;
         }
-        newNodes.add(nodes.get(nodes.size() - 1));
-        return newNodes;
+        return candidatesNumber;
     }
 
-    protected static List<Integer> localSearchProcedure(List<Integer> nodes, AntColonyProblem problem) {
-        // TODO: implement
-        return nodes;
+    /**
+     * Builds a tour with the state transition rule and the local pheromone update.
+     * The tour is written to {@code workspace.nodes}, the number of its nodes is returned.
+     * The tour is left unfinished if the colony is stopped meanwhile.
+     */
+    int constructTour(AntWorkspace workspace, Random random) {
+        int[] nodes = workspace.nodes;
+        boolean[] visited = workspace.visited;
+        int[] candidates = workspace.candidates;
+        double[] values = workspace.values;
+        int nodesNumber = 0;
+
+        int startDepot = random.nextInt(problem.vehiclesNumber);
+        nodes[nodesNumber++] = startDepot;
+        visited[startDepot] = true;
+        workspace.resetReachable();
+        workspace.clearEdges();
+
+        int curNode = startDepot;
+        int curTime = problem.fromT[curNode] + problem.delayT[curNode];
+        int load = problem.vehicleCapacity;
+        int vehiclesLeft = problem.vehiclesNumber - 1;
+        while (!this.stopped) {
+            int candidatesNumber = 0;
+            if (candidateLists != null) {
+                for (int stopIndex: candidateLists.get(problem.getStopIndex(curNode))) {
+                    candidatesNumber = addCandidate(workspace, candidatesNumber, problem.getCustomerNode(stopIndex), curNode, curTime, load);
+                }
+                if (candidatesNumber > 0) {
+                    for (int i = 0; i <= problem.vehiclesNumber; i++) {
+                        candidatesNumber = addCandidate(workspace, candidatesNumber, i, curNode, curTime, load);
+                    }
+                }
+            }
+            if (candidatesNumber == 0) {
+                for (int i = 0; i <= problem.vehiclesNumber; i++) {
+                    candidatesNumber = addCandidate(workspace, candidatesNumber, i, curNode, curTime, load);
+                }
+                int end = workspace.getReachableEnd();
+                for (int position = workspace.firstReachable(curTime); position != end; position = workspace.nextReachable(position)) {
+                    int i = problem.getCustomerNode(problem.timeWindowIndex.getCustomerByToT(position));
+                    candidatesNumber = addCandidate(workspace, candidatesNumber, i, curNode, curTime, load);
+                }
+            }
+            if (candidatesNumber == 0) {
+                break;
+            }
+            // the scan order depends on the time windows, so candidates are taken in the order of their indices
+            candidatesNumber = workspace.drainCandidates();
+            workspace.scorer.score(values, workspace.distances, candidatesNumber);
+
+            double valuesSum = 0;
+            double maxValue = 0;
+            int maxIndex = -1;
+            for (int k = 0; k < candidatesNumber; k++) {
+                double value = values[k];
+                valuesSum += value;
+                if (maxIndex == -1 || value > maxValue) {
+                    maxValue = value;
+                    maxIndex = k;
+                }
+            }
+
+            int candidateIndex;
+            if (random.nextDouble() < params.exploitationP) {
+                candidateIndex = maxIndex;
+            } else {
+                candidateIndex = workspace.selector.select(values, candidatesNumber, valuesSum, random);
+            }
+
+            int from = curNode;
+            int to = candidates[candidateIndex];
+            localUpdate(workspace, from, to);
+
+            nodes[nodesNumber++] = to;
+            visited[to] = true;
+            workspace.removeReachable(problem.getStopIndex(to));
+
+            curTime = Math.max(curTime + problem.getTimeDistance(from, to), problem.fromT[to]);
+            curNode = to;
+            load -= problem.demand[to];
+
+            if (problem.isDepot[to]) {
+                curTime = problem.fromT[to] + problem.delayT[to];
+                load = problem.vehicleCapacity;
+                workspace.restartReachable();
+                if (vehiclesLeft == 0) {
+                    break;
+                }
+                vehiclesLeft -= 1;
+            }
+        }
+        workspace.clearVisited(nodesNumber);
+        return nodesNumber;
     }
 
     private class Ant implements Runnable, Callable<Route> {
 
         private final int id;
+        private final AntWorkspace workspace;
+        private final LocalSearch localSearch;
         private final Random random;
         private Route resultRoute;
         private final Logger logger;
 
-        public Ant(int id, long seed) {
+        public Ant(int id, AntWorkspace workspace) {
             this.id = id;
-            this.random = new Random(seed);
+            this.workspace = workspace;
+            this.localSearch = withLocalSearch ? new LocalSearch(problem, Integer.MAX_VALUE, AbstractACS.this) : null;
+            this.random = new Random();
             this.resultRoute = null;
             this.logger = Logger.getLogger("Ant #" + id);
         }
 
+        public void reset(long seed) {
+            this.random.setSeed(seed);
+            this.resultRoute = null;
+        }
+
         public Route getRoute() {
             return this.resultRoute;
         }
@@ -238,87 +552,28 @@ public abstract class AbstractACS implements Runnable, Stoppable {
 
         @Override
         public Route call() throws Exception {
-            List<Integer> nodes = new ArrayList<>(problem.n);
-            boolean[] visited = new boolean[problem.n];
-
-            int startDepot = this.random.nextInt(problem.vehiclesNumber);
-            nodes.add(startDepot);
-            visited[startDepot] = true;
-
-            int curNode = startDepot;
-            int curTime = problem.stops[curNode].fromT + problem.stops[curNode].delayT;
-            int load = problem.vehicleCapacity;
-            int vehiclesLeft = problem.vehiclesNumber - 1;
-            while (true) {
-                List<Integer> candidates = new ArrayList<>(problem.n);
-                List<Double> values = new ArrayList<>(problem.n);
-                double valuesSum = 0;
-                double maxValue = 0;
-                int maxIndex = -1;
-                for (int i = 0; i < problem.n; i++) {
-                    Stop candidate = problem.stops[i];
-                    if (!visited[i] && load >= candidate.demand && candidate.toT >= curTime + problem.distances[curNode][i]) {
-                        int deliveryTime = Math.max(curTime + problem.getTimeDistance(curNode, i), candidate.fromT);
-                        if (deliveryTime + candidate.delayT + candidate.calcDistanceTo(problem.depot) > problem.depot.toT) {
-                            continue;
-                        }
-                        int distance = (deliveryTime - curTime) * (candidate.toT - curTime);
-                        distance = Math.max(1, distance - getIgnoresCount(i));
-
-                        candidates.add(i);
-                        double attractiveness = 1.0 / distance;
-                        double value = state.pheromone[curNode][i] * Math.pow(attractiveness, params.heuristicValueImportance);
-                        values.add(value);
-                        valuesSum += value;
-                        if (maxIndex == -1 || value > maxValue) {
-                            maxValue = value;
-                            maxIndex = values.size() - 1;
-                        }
-                    }
-                }
-
-                if (candidates.isEmpty()) {
-                    break;
-                }
-
-                int candidateIndex = 0;
-                if (this.random.nextDouble() < params.exploitationP) {
-                    candidateIndex = maxIndex;
-                } else {
-                    double p = this.random.nextDouble();
-                    while (candidateIndex < values.size() - 1 && p > values.get(candidateIndex) / valuesSum) {
-                        candidateIndex += 1;
-                        p -= values.get(candidateIndex) / valuesSum;
-                    }
-                }
-
-                int from = curNode;
-                int to = candidates.get(candidateIndex);
-                state.pheromone[from][to] = (1 - params.pheromoneFading) * state.pheromone[from][to] + params.pheromoneFading * params.pheromoneBaseValue;
-
-                nodes.add(to);
-                visited[to] = true;
-
-                curTime = Math.max(curTime + problem.getTimeDistance(from, to), problem.stops[to].fromT);
-                curNode = to;
-                load -= problem.stops[to].demand;
-
-                if (problem.stops[to].isDepot()) {
-                    curTime = problem.stops[to].fromT + problem.stops[to].delayT;
-                    load = problem.vehicleCapacity;
-                    if (vehiclesLeft == 0) {
-                        break;
-                    }
-                    vehiclesLeft -= 1;
-                }
+            long constructionStart = metrics != null ? System.nanoTime() : 0;
+            int nodesNumber = constructTour(this.workspace, this.random);
+            if (isStopped()) {
+                return null;
             }
 //            logger.info("Insertion procedure...");
-            nodes = insertionProcedure(nodes, problem);
+            long insertionStart = metrics != null ? System.nanoTime() : 0;
+            int[] nodes = insertionProcedure(this.workspace.nodes, nodesNumber, problem);
+            long localSearchStart = metrics != null ? System.nanoTime() : 0;
             if (withLocalSearch) {
 //                logger.info("Local search procedure...");
-                nodes = localSearchProcedure(nodes, problem);
+                nodes = localSearchProcedure(nodes, problem, this.localSearch);
+                if (isStopped()) {
+                    return null;
+                }
             }
             this.resultRoute = new Route(problem, nodes);
+            if (metrics != null) {
+                long end = System.nanoTime();
+                metrics.recordTour(insertionStart - constructionStart, localSearchStart - insertionStart,
+                        withLocalSearch ? end - localSearchStart : 0, this.resultRoute.isFeasible());
+            }
             return this.resultRoute;
         }
     }
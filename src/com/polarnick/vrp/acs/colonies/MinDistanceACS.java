@@ -2,6 +2,8 @@ package com.polarnick.vrp.acs.colonies;
 
 import com.polarnick.vrp.acs.colonies.helpers.BestRouteStorage;
 import com.polarnick.vrp.acs.colonies.helpers.Params;
+import com.polarnick.vrp.acs.colonies.helpers.SolverScheduler;
+import com.polarnick.vrp.acs.metrics.ColonyMetrics;
 import com.polarnick.vrp.acs.model.AntColonyProblem;
 import com.polarnick.vrp.model.Route;
 import com.polarnick.vrp.utils.Commons;
@@ -13,36 +15,96 @@ import java.util.List;
  */
 public class MinDistanceACS extends AbstractACS {
 
+    public static final String COLONY_NAME = "ACS-MIN";
+
+    /**
+     * How a colony learns about the routes found by the other colonies of the shared best route storage,
+     * once per {@link Params#migrationInterval} generations. In between the colony only uses its own best route
+     * for the global pheromone update, so several colonies (islands) explore independently.
+     */
+    public enum Migration {
+        /**
+         * The colony adopts the best route of the storage if it is better than its own.
+         */
+        ELITE_ROUTE,
+        /**
+         * The colony keeps its own best route, but the best route of the storage, if it is better,
+         * is deposited to the pheromone too.
+         */
+        PHEROMONE_BLEND,
+    }
+
     private final BestRouteStorage bestRouteStorage;
+    private int iterationNumber;
+    private Route iterationBestRoute;
+    private Route islandBestRoute;
 
     public MinDistanceACS(AntColonyProblem problem, int antsNumber, BestRouteStorage bestRouteStorage, long seed, Params params) {
-        super(problem, antsNumber, "ACS-MIN", seed, true, params);
+        this(problem, antsNumber, bestRouteStorage, seed, params, SolverScheduler.common());
+    }
+
+    public MinDistanceACS(AntColonyProblem problem, int antsNumber, BestRouteStorage bestRouteStorage, long seed, Params params,
+                          SolverScheduler scheduler) {
+        this(problem, antsNumber, bestRouteStorage, seed, params, scheduler, null);
+    }
+
+    /**
+     * @param metrics metrics to record the tours and the generations to, null to keep the metrics off.
+     */
+    public MinDistanceACS(AntColonyProblem problem, int antsNumber, BestRouteStorage bestRouteStorage, long seed, Params params,
+                          SolverScheduler scheduler, ColonyMetrics metrics) {
+        super(problem, antsNumber, COLONY_NAME, seed, true, params, scheduler, metrics);
         this.bestRouteStorage = bestRouteStorage;
+        this.iterationNumber = 0;
+        this.iterationBestRoute = null;
+        this.islandBestRoute = bestRouteStorage.getBestRoute(problem.vehiclesNumber);
     }
 
     @Override
-    public void run() {
-        this.logger.info("Starting ACS...");
-        int iterationNumber = 0;
-        do {
-            List<Route> routes = this.runAnts();
-//            logger.info(antsNumber + " ants finished!");
-            Route newBestRoute = null;
-            for (Route route: routes) {
-                if (route.isFeasible() && (newBestRoute == null || route.getResidual() < newBestRoute.getResidual())) {
-                    newBestRoute = route;
-                }
+    protected void processRoutes(List<Route> routes) {
+        Route newBestRoute = null;
+        for (Route route: routes) {
+            if (route.isFeasible() && (newBestRoute == null || route.getResidual() < newBestRoute.getResidual())) {
+                newBestRoute = route;
             }
-            if (iterationNumber % 1000 == 0) {
-                logger.info("Iteration #" + iterationNumber + " (residual: "+ (newBestRoute == null ? null : newBestRoute.getResidual()) + ")");
-            }
-            iterationNumber += 1;
-            if (newBestRoute != null && newBestRoute.getResidual() < this.bestRouteStorage.getBestRoute(problem.vehiclesNumber).getResidual()) {
+        }
+        if (newBestRoute != null && (this.iterationBestRoute == null || newBestRoute.getResidual() < this.iterationBestRoute.getResidual())) {
+            this.iterationBestRoute = newBestRoute;
+        }
+        if (newBestRoute != null && (this.islandBestRoute == null || newBestRoute.getResidual() < this.islandBestRoute.getResidual())) {
+            this.islandBestRoute = newBestRoute;
+            Route sharedBestRoute = this.bestRouteStorage.getBestRoute(problem.vehiclesNumber);
+            if (sharedBestRoute == null || newBestRoute.getResidual() < sharedBestRoute.getResidual()) {
                 this.bestRouteStorage.suggestBestRoute(newBestRoute);
             }
-            this.updatePheromone(this.bestRouteStorage.getBestRoute(problem.vehiclesNumber));
-        } while (!this.isStopped());
-        this.logger.info("ACS stopped!");
+        }
+    }
+
+    private void migrate() {
+        Route sharedBestRoute = this.bestRouteStorage.getBestRoute(problem.vehiclesNumber);
+        if (sharedBestRoute == null || (this.islandBestRoute != null && sharedBestRoute.getResidual() >= this.islandBestRoute.getResidual())) {
+            return;
+        }
+        if (this.islandBestRoute == null || params.migration == Migration.ELITE_ROUTE) {
+            this.islandBestRoute = sharedBestRoute;
+        } else {
+            this.updatePheromone(sharedBestRoute);
+        }
+    }
+
+    @Override
+    protected void globalUpdate() {
+        if (iterationNumber % 1000 == 0) {
+            logger.info("Iteration #" + iterationNumber + " (residual: "+ (iterationBestRoute == null ? null : iterationBestRoute.getResidual()) + ")");
+        }
+        if (iterationNumber % params.migrationInterval == 0) {
+            this.migrate();
+        }
+        iterationNumber += 1;
+        iterationBestRoute = null;
+        if (this.islandBestRoute != null) {
+            this.updatePheromone(this.islandBestRoute);
+        }
     }
 
 }
@@ -2,35 +2,55 @@ package com.polarnick.vrp.acs.colonies;
 
 import com.polarnick.vrp.acs.colonies.helpers.BestRouteStorage;
 import com.polarnick.vrp.acs.colonies.helpers.Params;
+import com.polarnick.vrp.acs.colonies.helpers.SolverScheduler;
+import com.polarnick.vrp.acs.metrics.ColonyMetrics;
 import com.polarnick.vrp.acs.model.AntColonyProblem;
 import com.polarnick.vrp.model.Route;
-import com.polarnick.vrp.model.Stop;
 import com.polarnick.vrp.utils.Commons;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
 
 /**
  * @author Polyarnyi Nickolay, PolarNick239
  */
 public class MinVehiclesACS extends AbstractACS {
 
+    public static final String COLONY_NAME = "ACS-VEH";
+
     private final BestRouteStorage bestRouteStorage;
     private final int[] skippedSolutions;
+    private Route currentSolution;
+    private int iterationNumber;
+    private Route iterationBestRoute;
 
     public MinVehiclesACS(AntColonyProblem problem, int antsNumber, BestRouteStorage bestRouteStorage, long seed, Params params) {
-        super(problem, antsNumber, "ACS-VEH", seed, false, params);
+        this(problem, antsNumber, bestRouteStorage, seed, params, SolverScheduler.common());
+    }
+
+    public MinVehiclesACS(AntColonyProblem problem, int antsNumber, BestRouteStorage bestRouteStorage, long seed, Params params,
+                          SolverScheduler scheduler) {
+        this(problem, antsNumber, bestRouteStorage, seed, params, scheduler, null);
+    }
+
+    /**
+     * @param metrics metrics to record the tours and the generations to, null to keep the metrics off.
+     */
+    public MinVehiclesACS(AntColonyProblem problem, int antsNumber, BestRouteStorage bestRouteStorage, long seed, Params params,
+                          SolverScheduler scheduler, ColonyMetrics metrics) {
+        super(problem, antsNumber, COLONY_NAME, seed, false, params, scheduler, metrics);
         this.bestRouteStorage = bestRouteStorage;
         this.skippedSolutions = new int[this.problem.n];
+        this.currentSolution = null;
+        this.iterationNumber = 0;
+        this.iterationBestRoute = null;
     }
 
     private void updateSkippedNodes(List<Route> routes) {
         for (Route route: routes) {
             boolean[] was = new boolean[this.problem.n];
-            for (int node: route) {
-                was[node] = true;
+            for (int position = 0; position < route.size(); position++) {
+                was[route.getNode(position)] = true;
             }
             for (int i = 0; i < this.problem.n; i++) {
                 if (!was[i]) {
@@ -45,31 +65,34 @@ public class MinVehiclesACS extends AbstractACS {
     }
 
     private Route calculateNearestNeighbourhoodHeuristic() {
-        List<Integer> nodes = new ArrayList<>(problem.n);
+        int[] nodes = new int[problem.n];
+        int nodesNumber = 0;
         boolean[] visited = new boolean[problem.n];
 
         int startNode = random.nextInt(problem.vehiclesNumber);
         visited[startNode] = true;
-        nodes.add(startNode);
+        nodes[nodesNumber++] = startNode;
 
         int curNode = startNode;
-        int curTime = problem.stops[curNode].fromT + problem.stops[curNode].delayT;
+        int curTime = problem.fromT[curNode] + problem.delayT[curNode];
         int load = problem.vehicleCapacity;
+        int vehiclesLeft = problem.vehiclesNumber;
         while (true) {
             int minI = -1;
             double minDistanceT = -1.0;
 
             for (int i = problem.n - 1; i >= 0; i--) {
-                Stop candidate = problem.stops[i];
-                if (candidate.isDepot() && minI != -1) {
+                if (problem.isDepot[i] && minI != -1) {
                     continue;
                 }
-                if (!visited[i] && load >= candidate.demand && candidate.toT >= curTime + problem.getTimeDistance(curNode, i)) {
-                    int afterCandidateT = Math.max(curTime + problem.getTimeDistance(curNode, i), candidate.fromT) + candidate.delayT;
+                if (!visited[i] && load >= problem.demand[i]
+                        && problem.timeWindowIndex.canFollow(problem.getStopIndex(curNode), problem.getStopIndex(i))
+                        && problem.toT[i] >= curTime + problem.getTimeDistance(curNode, i)) {
+                    int afterCandidateT = Math.max(curTime + problem.getTimeDistance(curNode, i), problem.fromT[i]) + problem.delayT[i];
                     if (afterCandidateT + problem.getTimeDistance(i, 0) > problem.depot.toT) {
                         continue;
                     }
-                    double distanceT = Math.max(curTime + problem.distances[curNode][i], candidate.fromT) - curTime;
+                    double distanceT = Math.max(curTime + problem.getDistance(curNode, i), problem.fromT[i]) - curTime;
                     if (minI == -1 || distanceT < minDistanceT) {
                         minI = i;
                         minDistanceT = distanceT;
@@ -82,24 +105,28 @@ public class MinVehiclesACS extends AbstractACS {
             }
 
             visited[minI] = true;
-            nodes.add(minI);
+            nodes[nodesNumber++] = minI;
 
-            Stop target = problem.stops[minI];
+            curTime = Math.max(curTime + problem.getTimeDistance(curNode, minI), problem.fromT[minI]) + problem.delayT[minI];
             curNode = minI;
-            curTime = Math.max(curTime + problem.getTimeDistance(curNode, minI), target.fromT) + target.delayT;
-            load -= target.demand;
-            if (target.isDepot()) {
-                curTime = target.fromT + target.delayT;
+            load -= problem.demand[minI];
+            if (problem.isDepot[minI]) {
+                curTime = problem.fromT[minI] + problem.delayT[minI];
                 load = problem.vehicleCapacity;
+                vehiclesLeft -= 1;
+                if (vehiclesLeft == 0) {
+                    break;
+                }
             }
         }
-        return new Route(problem, nodes);
+        return new Route(problem, Arrays.copyOf(nodes, nodesNumber));
     }
 
     private void updatePheromoneWithDifferentVehiclesNumber(Route route) {
         int prevI = -1;
         int vehs = route.getVehiclesNumber();
-        for (int curI: route) {
+        for (int position = 0; position < route.size(); position++) {
+            int curI = route.getNode(position);
             if (curI >= vehs) {
                 curI = problem.vehiclesNumber + (curI - vehs);
             } else {
@@ -108,7 +135,7 @@ public class MinVehiclesACS extends AbstractACS {
                 }
             }
             if (prevI != -1 && curI != -1) {
-                state.pheromone[prevI][curI] = (1 - params.pheromoneFading) * state.pheromone[prevI][curI] + params.pheromoneFading / route.getResidual();
+                state.updatePheromone(prevI, curI, params.pheromoneFading, params.pheromoneFading / route.getResidual());
             }
             prevI = curI;
         }
@@ -116,31 +143,38 @@ public class MinVehiclesACS extends AbstractACS {
 
     @Override
     public void run() {
-        this.logger.info("Starting ACS...");
-        int iterationNumber = 0;
-        Route currentSolution = this.calculateNearestNeighbourhoodHeuristic();
-        do {
-            List<Route> routes = this.runAnts();
-            this.updateSkippedNodes(routes);
+        this.currentSolution = this.calculateNearestNeighbourhoodHeuristic();
+        super.run();
+    }
 
-            Route newBestRoute = Commons.getMaximum(routes, (Route r0, Route r1) -> r0.getCustomersNumber() - r1.getCustomersNumber());
+    @Override
+    protected void processRoutes(List<Route> routes) {
+        this.updateSkippedNodes(routes);
 
-            if (iterationNumber % 1000 == 0) {
-                logger.info("Iteration #" + iterationNumber + " (residual: " + newBestRoute.getResidual() + ")");
-            }
-            iterationNumber += 1;
+        Route newBestRoute = Commons.getMaximum(routes, (Route r0, Route r1) -> r0.getCustomersNumber() - r1.getCustomersNumber());
+        if (this.iterationBestRoute == null || newBestRoute.getCustomersNumber() > this.iterationBestRoute.getCustomersNumber()) {
+            this.iterationBestRoute = newBestRoute;
+        }
 
-            if (newBestRoute.getCustomersNumber() > currentSolution.getCustomersNumber()) {
-                currentSolution = newBestRoute;
-                Arrays.fill(this.skippedSolutions, 0);
-                if (currentSolution.isFeasible()) {
-                    this.bestRouteStorage.suggestBestRoute(newBestRoute);
-                }
+        if (newBestRoute.getCustomersNumber() > currentSolution.getCustomersNumber()) {
+            currentSolution = newBestRoute;
+            Arrays.fill(this.skippedSolutions, 0);
+            if (currentSolution.isFeasible()) {
+                this.bestRouteStorage.suggestBestRoute(newBestRoute);
             }
-            this.updatePheromoneWithDifferentVehiclesNumber(this.bestRouteStorage.getBestRoute(this.bestRouteStorage.getMinVehiclesNumber()));
-            this.updatePheromone(currentSolution);
-        } while (!this.isStopped());
-        this.logger.info("ACS stopped!");
+        }
+    }
+
+    @Override
+    protected void globalUpdate() {
+        if (iterationNumber % 1000 == 0) {
+            logger.info("Iteration #" + iterationNumber + " (residual: " + iterationBestRoute.getResidual() + ")");
+        }
+        iterationNumber += 1;
+        iterationBestRoute = null;
+
+        this.updatePheromoneWithDifferentVehiclesNumber(this.bestRouteStorage.getBestRoute(this.bestRouteStorage.getMinVehiclesNumber()));
+        this.updatePheromone(currentSolution);
     }
 
 }
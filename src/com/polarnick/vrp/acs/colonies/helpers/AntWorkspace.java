@@ -0,0 +1,165 @@
+package com.polarnick.vrp.acs.colonies.helpers;
+
+import com.polarnick.vrp.acs.model.AntColonyProblem;
+import com.polarnick.vrp.model.TimeWindowIndex;
+
+/**
+ * Scratch buffers of a single ant worker. They are sized once for the problem and reused
+ * across construction steps, ants and generations, so building a tour allocates nothing.
+ * <p>
+ * Besides the tour itself, the workspace keeps the reachable customers that are not visited yet as a linked list
+ * ordered by the ends of their time windows (see {@link TimeWindowIndex}). Within a vehicle trip time only grows,
+ * so the customers whose time windows are already closed are skipped until the vehicle returns to the depot.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class AntWorkspace {
+
+    public final int[] nodes;
+    public final boolean[] visited;
+
+    public final int[] candidates;
+    public final double[] values;
+    public final int[] distances;
+    public final CandidateScorer scorer;
+    public final CandidateSelector selector;
+
+    public final int[] edgesFrom;
+    public final int[] edgesTo;
+    private int edgesNumber;
+    private final long[] candidateBits;
+    private final double[] candidatePheromones;
+    private final int[] candidateDistances;
+
+    private final TimeWindowIndex index;
+    private final int reachableEnd;
+    private final int[] reachableNext;
+    private final int[] reachablePrev;
+    private int reachableCursor;
+
+    public AntWorkspace(AntColonyProblem problem, Params params) {
+        int n = problem.n;
+        this.nodes = new int[n];
+        this.visited = new boolean[n];
+        this.candidates = new int[n];
+        this.values = new double[n];
+        this.distances = new int[n];
+        this.scorer = CandidateScorer.create(params.heuristicValueImportance);
+        this.selector = CandidateSelector.create(params.selectionRule, n, params.selectionTopK);
+        this.edgesFrom = new int[n];
+        this.edgesTo = new int[n];
+        this.candidateBits = new long[(n + 63) >>> 6];
+        this.candidatePheromones = new double[n];
+        this.candidateDistances = new int[n];
+
+        this.index = problem.timeWindowIndex;
+        this.reachableEnd = this.index.getReachableCustomersNumber();
+        this.reachableNext = new int[this.reachableEnd + 1];
+        this.reachablePrev = new int[this.reachableEnd + 1];
+    }
+
+    public void clearVisited(int nodesNumber) {
+        for (int i = 0; i < nodesNumber; i++) {
+            this.visited[this.nodes[i]] = false;
+        }
+    }
+
+    /**
+     * Records the edge for a deferred local pheromone update.
+     */
+    public void recordEdge(int from, int to) {
+        this.edgesFrom[this.edgesNumber] = from;
+        this.edgesTo[this.edgesNumber] = to;
+        this.edgesNumber += 1;
+    }
+
+    public int getEdgesNumber() {
+        return this.edgesNumber;
+    }
+
+    public void clearEdges() {
+        this.edgesNumber = 0;
+    }
+
+    /**
+     * @param distance heuristic distance to the node, positive.
+     */
+    public void addCandidate(int node, double pheromone, int distance) {
+        this.candidateBits[node >>> 6] |= 1L << node;
+        this.candidatePheromones[node] = pheromone;
+        this.candidateDistances[node] = distance;
+    }
+
+    /**
+     * Moves the candidates added since the previous call to {@link #candidates}, their pheromones to {@link #values}
+     * and their distances to {@link #distances} in the order of their indices, so the order does not depend
+     * on the order the nodes were looked at. The values are then turned into scores by {@link #scorer}.
+     *
+     * @return number of the candidates.
+     */
+    public int drainCandidates() {
+        int candidatesNumber = 0;
+        for (int word = 0; word < this.candidateBits.length; word++) {
+            long bits = this.candidateBits[word];
+            while (bits != 0) {
+                int node = (word << 6) + Long.numberOfTrailingZeros(bits);
+                this.candidates[candidatesNumber] = node;
+                this.values[candidatesNumber] = this.candidatePheromones[node];
+                this.distances[candidatesNumber] = this.candidateDistances[node];
+                candidatesNumber += 1;
+                bits &= bits - 1;
+            }
+            this.candidateBits[word] = 0;
+        }
+        return candidatesNumber;
+    }
+
+    /**
+     * Marks all the reachable customers as not visited, should be called before each tour.
+     */
+    public void resetReachable() {
+        for (int position = 0; position <= this.reachableEnd; position++) {
+            this.reachableNext[position] = position == this.reachableEnd ? 0 : position + 1;
+            this.reachablePrev[position] = position == 0 ? this.reachableEnd : position - 1;
+        }
+        this.restartReachable();
+    }
+
+    /**
+     * Should be called when a vehicle starts its trip from the depot.
+     */
+    public void restartReachable() {
+        this.reachableCursor = this.reachableNext[this.reachableEnd];
+    }
+
+    public void removeReachable(int stopIndex) {
+        int position = this.index.getPositionByToT(stopIndex);
+        if (position == -1) {
+            return;
+        }
+        if (this.reachableCursor == position) {
+            this.reachableCursor = this.reachableNext[position];
+        }
+        this.reachableNext[this.reachablePrev[position]] = this.reachableNext[position];
+        this.reachablePrev[this.reachableNext[position]] = this.reachablePrev[position];
+    }
+
+    /**
+     * @return position of the first not visited customer whose time window is not closed at {@code curTime},
+     * or {@link #getReachableEnd()}. The customers skipped are not looked at again during the current trip.
+     */
+    public int firstReachable(int curTime) {
+        while (this.reachableCursor != this.reachableEnd && this.index.getToTByToT(this.reachableCursor) < curTime) {
+            this.reachableCursor = this.reachableNext[this.reachableCursor];
+        }
+        return this.reachableCursor;
+    }
+
+    public int nextReachable(int position) {
+        return this.reachableNext[position];
+    }
+
+    public int getReachableEnd() {
+        return this.reachableEnd;
+    }
+}
@@ -0,0 +1,108 @@
+package com.polarnick.vrp.acs.colonies.helpers;
+
+/**
+ * Heuristic part of the state transition rule: multiplies the pheromone of each candidate by {@code (1 / distance)^beta},
+ * where beta is {@link Params#heuristicValueImportance}. The candidates of a step are scored at once in a flat loop
+ * over primitive arrays, and {@code Math.pow} is only called for exponents that are not small integers.
+ * <p>
+ * With beta = 1 the values are the same as of {@code Math.pow(1.0 / distance, 1)}, with other integer exponents
+ * they may differ in the last bits.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public abstract class CandidateScorer {
+
+    /**
+     * Largest integer exponent computed with multiplications.
+     */
+    public static final int MAX_INTEGER_EXPONENT = 8;
+
+    /**
+     * Replaces the pheromones in the first {@code valuesNumber} values with the scores of the candidates.
+     *
+     * @param distances heuristic distances of the candidates, positive.
+     */
+    public abstract void score(double[] values, int[] distances, int valuesNumber);
+
+    public static CandidateScorer create(double heuristicValueImportance) {
+        if (heuristicValueImportance == 0.0) {
+            return new PheromoneScorer();
+        } else if (heuristicValueImportance == 1.0) {
+            return new InverseScorer();
+        } else if (heuristicValueImportance == 2.0) {
+            return new InverseSquareScorer();
+        } else if (heuristicValueImportance == Math.rint(heuristicValueImportance)
+                && heuristicValueImportance > 0 && heuristicValueImportance <= MAX_INTEGER_EXPONENT) {
+            return new IntegerPowerScorer((int) heuristicValueImportance);
+        } else {
+            return new PowerScorer(heuristicValueImportance);
+        }
+    }
+
+    private static class PheromoneScorer extends CandidateScorer {
+
+        @Override
+        public void score(double[] values, int[] distances, int valuesNumber) {
+        }
+    }
+
+    private static class InverseScorer extends CandidateScorer {
+
+        @Override
+        public void score(double[] values, int[] distances, int valuesNumber) {
+            for (int k = 0; k < valuesNumber; k++) {
+                double attractiveness = 1.0 / distances[k];
+                values[k] *= attractiveness;
+            }
+        }
+    }
+
+    private static class InverseSquareScorer extends CandidateScorer {
+
+        @Override
+        public void score(double[] values, int[] distances, int valuesNumber) {
+            for (int k = 0; k < valuesNumber; k++) {
+                double attractiveness = 1.0 / distances[k];
+                values[k] *= attractiveness * attractiveness;
+            }
+        }
+    }
+
+    private static class IntegerPowerScorer extends CandidateScorer {
+
+        private final int exponent;
+
+        private IntegerPowerScorer(int exponent) {
+            this.exponent = exponent;
+        }
+
+        @Override
+        public void score(double[] values, int[] distances, int valuesNumber) {
+            for (int k = 0; k < valuesNumber; k++) {
+                double attractiveness = 1.0 / distances[k];
+                double power = attractiveness;
+                for (int i = 1; i < this.exponent; i++) {
+                    power *= attractiveness;
+                }
+                values[k] *= power;
+            }
+        }
+    }
+
+    private static class PowerScorer extends CandidateScorer {
+
+        private final double exponent;
+
+        private PowerScorer(double exponent) {
+            this.exponent = exponent;
+        }
+
+        @Override
+        public void score(double[] values, int[] distances, int valuesNumber) {
+            for (int k = 0; k < valuesNumber; k++) {
+                values[k] *= Math.pow(1.0 / distances[k], this.exponent);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,243 @@
+package com.polarnick.vrp.acs.colonies.helpers;
+
+import java.util.Random;
+
+/**
+ * Exploration part of the state transition rule: picks a candidate with probability proportional to its value.
+ * A selector keeps its own scratch arrays, so it belongs to a single worker (see {@link AntWorkspace}).
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public abstract class CandidateSelector {
+
+    public enum Rule {
+        /**
+         * Linear walk over the values, the one the colonies always used. Note that it subtracts the share
+         * of the next candidate instead of the current one, so it is only roughly proportional.
+         */
+        LINEAR,
+        /**
+         * Binary search over the cumulative sums: O(k) to prepare, O(log k) to sample.
+         */
+        CUMULATIVE,
+        /**
+         * Gumbel-max trick in its exponential form: the candidate with the largest {@code value / Exp(1)} wins.
+         * A single pass without normalization, but one logarithm per candidate.
+         */
+        GUMBEL,
+        /**
+         * Proportional among the {@code topK} largest values only, the rest of the candidates are never explored.
+         * Not equivalent to the proportional rule unless there are at most {@code topK} candidates.
+         */
+        TOP_K,
+    }
+
+    public static final int DEFAULT_TOP_K = 8;
+
+    /**
+     * Prepares the selector for sampling from the first {@code valuesNumber} values.
+     * If they sum to zero, all the candidates are equally probable.
+     */
+    public abstract void prepare(double[] values, int valuesNumber, double valuesSum);
+
+    /**
+     * @return index of the sampled candidate, should be called after {@link #prepare}.
+     */
+    public abstract int sample(Random random);
+
+    public int select(double[] values, int valuesNumber, double valuesSum, Random random) {
+        prepare(values, valuesNumber, valuesSum);
+        return sample(random);
+    }
+
+    public static CandidateSelector create(Rule rule, int capacity) {
+        return create(rule, capacity, DEFAULT_TOP_K);
+    }
+
+    /**
+     * @param topK number of the candidates explored by {@link Rule#TOP_K}, ignored by the other rules.
+     */
+    public static CandidateSelector create(Rule rule, int capacity, int topK) {
+        switch (rule) {
+            case LINEAR:
+                return new LinearSelector();
+            case CUMULATIVE:
+                return new CumulativeSelector(capacity);
+            case GUMBEL:
+                return new GumbelSelector();
+            case TOP_K:
+                return new TopKSelector(topK);
+            default:
+                throw new IllegalArgumentException("Unsupported rule: " + rule);
+        }
+    }
+
+    private static boolean isDegenerate(double valuesSum) {
+        return !(valuesSum > 0) || Double.isInfinite(valuesSum);
+    }
+
+    private static class LinearSelector extends CandidateSelector {
+
+        private double[] values;
+        private int valuesNumber;
+        private double valuesSum;
+
+        @Override
+        public void prepare(double[] values, int valuesNumber, double valuesSum) {
+            this.values = values;
+            this.valuesNumber = valuesNumber;
+            this.valuesSum = valuesSum;
+        }
+
+        @Override
+        public int sample(Random random) {
+            int candidateIndex = 0;
+            double p = random.nextDouble();
+            while (candidateIndex < valuesNumber - 1 && p > values[candidateIndex] / valuesSum) {
+                candidateIndex += 1;
+                p -= values[candidateIndex] / valuesSum;
+            }
+            return candidateIndex;
+        }
+    }
+
+    private static class CumulativeSelector extends CandidateSelector {
+
+        private final double[] cumulative;
+        private int valuesNumber;
+        private boolean uniform;
+
+        CumulativeSelector(int capacity) {
+            this.cumulative = new double[capacity];
+        }
+
+        @Override
+        public void prepare(double[] values, int valuesNumber, double valuesSum) {
+            this.valuesNumber = valuesNumber;
+            this.uniform = isDegenerate(valuesSum);
+            double sum = 0;
+            for (int i = 0; i < valuesNumber; i++) {
+                sum += values[i];
+                this.cumulative[i] = sum;
+            }
+        }
+
+        @Override
+        public int sample(Random random) {
+            if (uniform) {
+                return random.nextInt(valuesNumber);
+            }
+            double p = random.nextDouble() * cumulative[valuesNumber - 1];
+            int lo = 0;
+            int hi = valuesNumber - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (cumulative[mid] > p) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            return lo;
+        }
+    }
+
+    private static class GumbelSelector extends CandidateSelector {
+
+        private double[] values;
+        private int valuesNumber;
+        private boolean uniform;
+
+        @Override
+        public void prepare(double[] values, int valuesNumber, double valuesSum) {
+            this.values = values;
+            this.valuesNumber = valuesNumber;
+            this.uniform = isDegenerate(valuesSum);
+        }
+
+        @Override
+        public int sample(Random random) {
+            if (uniform) {
+                return random.nextInt(valuesNumber);
+            }
+            int best = -1;
+            double bestKey = 0;
+            for (int i = 0; i < valuesNumber; i++) {
+                if (values[i] <= 0) {
+                    continue;
+                }
+                double key = values[i] / -Math.log(1.0 - random.nextDouble());
+                if (best == -1 || key > bestKey) {
+                    best = i;
+                    bestKey = key;
+                }
+            }
+            return best;
+        }
+    }
+
+    private static class TopKSelector extends CandidateSelector {
+
+        private final int[] topIndices;
+        private final double[] topValues;
+        private int topNumber;
+        private double topSum;
+        private int valuesNumber;
+        private boolean uniform;
+
+        TopKSelector(int topK) {
+            if (topK <= 0) {
+                throw new IllegalArgumentException("Top k should be positive: " + topK);
+            }
+            this.topIndices = new int[topK];
+            this.topValues = new double[topK];
+        }
+
+        @Override
+        public void prepare(double[] values, int valuesNumber, double valuesSum) {
+            this.valuesNumber = valuesNumber;
+            this.uniform = isDegenerate(valuesSum);
+            this.topNumber = 0;
+            if (uniform) {
+                return;
+            }
+            int topK = this.topIndices.length;
+            for (int i = 0; i < valuesNumber; i++) {
+                double value = values[i];
+                if (value <= 0 || (this.topNumber == topK && value <= this.topValues[topK - 1])) {
+                    continue;
+                }
+                // insertion into the values sorted in descending order, the earlier candidate wins a tie
+                int position = Math.min(this.topNumber, topK - 1);
+                while (position > 0 && this.topValues[position - 1] < value) {
+                    this.topValues[position] = this.topValues[position - 1];
+                    this.topIndices[position] = this.topIndices[position - 1];
+                    position -= 1;
+                }
+                this.topValues[position] = value;
+                this.topIndices[position] = i;
+                this.topNumber = Math.min(this.topNumber + 1, topK);
+            }
+            this.topSum = 0;
+            for (int k = 0; k < this.topNumber; k++) {
+                this.topSum += this.topValues[k];
+            }
+        }
+
+        @Override
+        public int sample(Random random) {
+            if (uniform) {
+                return random.nextInt(valuesNumber);
+            }
+            double p = random.nextDouble() * this.topSum;
+            for (int k = 0; k < this.topNumber - 1; k++) {
+                p -= this.topValues[k];
+                if (p < 0) {
+                    return this.topIndices[k];
+                }
+            }
+            return this.topIndices[this.topNumber - 1];
+        }
+    }
+
+}
@@ -0,0 +1,599 @@
+package com.polarnick.vrp.acs.colonies.helpers;
+
+import com.polarnick.vrp.acs.model.AntColonyProblem;
+import com.polarnick.vrp.utils.Stoppable;
+
+import java.util.Arrays;
+
+/**
+ * Local search over the tours of a route with relocate, 2-opt* and CROSS-exchange moves between two tours
+ * and Or-opt moves inside a tour. The first move that shortens the total distance and keeps the tours feasible
+ * is applied, until there are no such moves.
+ * <p>
+ * Time windows are hard and the service time is spent at each stop (the vehicle may wait for a time window to open).
+ * For each tour the engine keeps the data of its prefixes, its suffixes and its segments of at most
+ * {@link #MAX_SEGMENT_LENGTH} customers: duration, time warp (how late the service would be), earliest and latest start
+ * of the service at the first stop, load and distance. The data of a concatenation of two subsequences is derived
+ * from theirs in O(1) (see Vidal et al., 2013), and any of the moves is a concatenation of at most four subsequences,
+ * so checking a move does not depend on the lengths of the tours, while the data of a tour takes O(length) time
+ * and memory to rebuild. The only long subsequence in the middle of a move is the one an Or-opt segment jumps over,
+ * its data is accumulated once per segment for all the destinations.
+ * <p>
+ * An engine is not thread safe, it reuses its buffers between the calls of {@link #improve}.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class LocalSearch {
+
+    /**
+     * Longest segment moved by CROSS-exchange and Or-opt moves.
+     */
+    public static final int MAX_SEGMENT_LENGTH = 3;
+
+    private static final double EPS = 1e-9;
+
+    public final AntColonyProblem problem;
+    private final int maxSweeps;
+    private final Stoppable owner;
+
+    private final int tourCapacity;
+    private int toursNumber;
+    private int[][] tours;
+    private int[] lengths;
+    private int[][] duration;
+    private int[][] timeWarp;
+    private int[][] earliest;
+    private int[][] latest;
+    private int[][] load;
+    private double[][] distance;
+    private int[] bufferA;
+    private int[] bufferB;
+
+    private int accDuration;
+    private int accTimeWarp;
+    private int accEarliest;
+    private int accLatest;
+    private int accLoad;
+    private double accDistance;
+    private int accLast;
+
+    private long movesEvaluated;
+    private long searchNanos;
+
+    public LocalSearch(AntColonyProblem problem) {
+        this(problem, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxSweeps limit on the number of passes over all the pairs of tours.
+     */
+    public LocalSearch(AntColonyProblem problem, int maxSweeps) {
+        this(problem, maxSweeps, null);
+    }
+
+    /**
+     * @param owner the search gives up (keeping the moves applied so far) soon after it is stopped, may be null.
+     */
+    public LocalSearch(AntColonyProblem problem, int maxSweeps, Stoppable owner) {
+        this.problem = problem;
+        this.maxSweeps = maxSweeps;
+        this.owner = owner;
+        this.tourCapacity = problem.customersNumber + 2;
+        this.toursNumber = 0;
+        this.tours = new int[0][];
+        this.lengths = new int[0];
+        this.duration = new int[0][];
+        this.timeWarp = new int[0][];
+        this.earliest = new int[0][];
+        this.latest = new int[0][];
+        this.load = new int[0][];
+        this.distance = new double[0][];
+        this.bufferA = new int[this.tourCapacity];
+        this.bufferB = new int[this.tourCapacity];
+        this.movesEvaluated = 0;
+        this.searchNanos = 0;
+    }
+
+    /**
+     * @return number of the moves checked by this engine so far.
+     */
+    public long getMovesEvaluated() {
+        return this.movesEvaluated;
+    }
+
+    /**
+     * @return moves checked per second of the time spent in {@link #improve}.
+     */
+    public double getMovesPerSecond() {
+        return this.searchNanos == 0 ? 0.0 : this.movesEvaluated * 1e9 / this.searchNanos;
+    }
+
+    /**
+     * @param nodes route in the form of the colony: tours of the vehicles separated by the depots.
+     * @return improved route with the same depots and customers, or {@code nodes} itself if no move was applied.
+     */
+    public int[] improve(int[] nodes) {
+        long startTime = System.nanoTime();
+        try {
+            return this.improveRoute(nodes);
+        } finally {
+            this.searchNanos += System.nanoTime() - startTime;
+        }
+    }
+
+    private boolean isOwnerStopped() {
+        return this.owner != null && this.owner.isStopped();
+    }
+
+    private int[] improveRoute(int[] nodes) {
+        if (nodes.length == 0 || !problem.isDepot[nodes[0]] || !problem.isDepot[nodes[nodes.length - 1]]) {
+            return nodes;
+        }
+        this.splitTours(nodes);
+        if (this.toursNumber == 0) {
+            return nodes;
+        }
+
+        boolean anyApplied = false;
+        boolean improved;
+        int sweeps = 0;
+        do {
+            improved = false;
+            for (int r1 = 0; r1 < this.toursNumber; r1++) {
+                if (this.isOwnerStopped()) {
+                    break;
+                }
+                while (this.improveOrOpt(r1)) {
+                    improved = true;
+                }
+                for (int r2 = r1 + 1; r2 < this.toursNumber; r2++) {
+                    while (this.improveRelocate(r1, r2) || this.improveRelocate(r2, r1)
+                            || this.improveTwoOptStar(r1, r2) || this.improveCrossExchange(r1, r2)) {
+                        improved = true;
+                    }
+                }
+            }
+            anyApplied |= improved;
+            sweeps += 1;
+        } while (improved && sweeps < this.maxSweeps && !this.isOwnerStopped());
+
+        if (!anyApplied) {
+            return nodes;
+        }
+        int[] result = new int[nodes.length];
+        int resultLength = 0;
+        int tour = 0;
+        for (int node: nodes) {
+            if (!problem.isDepot[node]) {
+                continue;
+            }
+            result[resultLength++] = node;
+            if (tour < this.toursNumber) {
+                System.arraycopy(this.tours[tour], 1, result, resultLength, this.lengths[tour] - 2);
+                resultLength += this.lengths[tour] - 2;
+                tour += 1;
+            }
+        }
+        assert resultLength == nodes.length;
+        return result;
+    }
+
+    /**
+     * Each tour is stored as its customers between two copies of the first depot of the route,
+     * all the copies of the depot are the same stop.
+     */
+    private void splitTours(int[] nodes) {
+        int depot = nodes[0];
+        int depotsNumber = 0;
+        for (int node: nodes) {
+            if (problem.isDepot[node]) {
+                depotsNumber += 1;
+            }
+        }
+        this.ensureToursCapacity(depotsNumber - 1);
+        this.toursNumber = depotsNumber - 1;
+
+        int tour = -1;
+        for (int node: nodes) {
+            if (problem.isDepot[node]) {
+                if (tour >= 0) {
+                    this.tours[tour][this.lengths[tour]++] = depot;
+                    this.buildData(tour);
+                }
+                tour += 1;
+                if (tour < this.toursNumber) {
+                    this.lengths[tour] = 0;
+                    this.tours[tour][this.lengths[tour]++] = depot;
+                }
+            } else {
+                this.tours[tour][this.lengths[tour]++] = node;
+            }
+        }
+    }
+
+    private void ensureToursCapacity(int toursNumber) {
+        if (this.tours.length >= toursNumber) {
+            return;
+        }
+        int oldToursNumber = this.tours.length;
+        this.tours = Arrays.copyOf(this.tours, toursNumber);
+        this.lengths = Arrays.copyOf(this.lengths, toursNumber);
+        this.duration = Arrays.copyOf(this.duration, toursNumber);
+        this.timeWarp = Arrays.copyOf(this.timeWarp, toursNumber);
+        this.earliest = Arrays.copyOf(this.earliest, toursNumber);
+        this.latest = Arrays.copyOf(this.latest, toursNumber);
+        this.load = Arrays.copyOf(this.load, toursNumber);
+        this.distance = Arrays.copyOf(this.distance, toursNumber);
+        for (int tour = oldToursNumber; tour < toursNumber; tour++) {
+            this.tours[tour] = new int[this.tourCapacity];
+            this.duration[tour] = new int[0];
+            this.timeWarp[tour] = new int[0];
+            this.earliest[tour] = new int[0];
+            this.latest[tour] = new int[0];
+            this.load[tour] = new int[0];
+            this.distance[tour] = new double[0];
+        }
+    }
+
+    /**
+     * The data of a tour is laid out as the prefixes {@code [0, b]} at {@code b}, the suffixes {@code [a, length - 1]}
+     * at {@code length + a} and the segments {@code [a, b]} of at most {@link #MAX_SEGMENT_LENGTH} customers
+     * at {@code 2 * length + a * MAX_SEGMENT_LENGTH + b - a}, followed by the subsequences an Or-opt segment jumps over
+     * (see {@link #getMiddleIndex}).
+     */
+    private int getIndex(int tour, int a, int b) {
+        int length = this.lengths[tour];
+        if (a == 0) {
+            return b;
+        } else if (b == length - 1) {
+            return length + a;
+        } else {
+            assert b - a < MAX_SEGMENT_LENGTH;
+            return 2 * length + a * MAX_SEGMENT_LENGTH + b - a;
+        }
+    }
+
+    /**
+     * @return index of the subsequence between the Or-opt segment and its destination {@code j}.
+     */
+    private int getMiddleIndex(int tour, int j) {
+        return (2 + MAX_SEGMENT_LENGTH) * this.lengths[tour] + j;
+    }
+
+    /**
+     * Computes the data of the prefixes, the suffixes and the short segments of the tour.
+     */
+    private void buildData(int tour) {
+        int length = this.lengths[tour];
+        int size = (3 + MAX_SEGMENT_LENGTH) * length;
+        if (this.duration[tour].length < size) {
+            int capacity = Math.max(size, 2 * this.duration[tour].length);
+            this.duration[tour] = new int[capacity];
+            this.timeWarp[tour] = new int[capacity];
+            this.earliest[tour] = new int[capacity];
+            this.latest[tour] = new int[capacity];
+            this.load[tour] = new int[capacity];
+            this.distance[tour] = new double[capacity];
+        }
+        int[] nodes = this.tours[tour];
+        this.startNode(nodes[0]);
+        this.store(tour, 0);
+        for (int b = 1; b < length; b++) {
+            this.appendNode(nodes[b]);
+            this.store(tour, b);
+        }
+        this.startNode(nodes[length - 1]);
+        this.store(tour, 2 * length - 1);
+        for (int a = length - 2; a >= 0; a--) {
+            this.startNode(nodes[a]);
+            this.append(tour, length + a + 1, nodes[a + 1], nodes[length - 1]);
+            this.store(tour, length + a);
+        }
+        for (int a = 1; a < length - 1; a++) {
+            this.startNode(nodes[a]);
+            this.store(tour, 2 * length + a * MAX_SEGMENT_LENGTH);
+            for (int b = a + 1; b < Math.min(a + MAX_SEGMENT_LENGTH, length - 1); b++) {
+                this.appendNode(nodes[b]);
+                this.store(tour, 2 * length + a * MAX_SEGMENT_LENGTH + b - a);
+            }
+        }
+    }
+
+    private void store(int tour, int index) {
+        this.duration[tour][index] = this.accDuration;
+        this.timeWarp[tour][index] = this.accTimeWarp;
+        this.earliest[tour][index] = this.accEarliest;
+        this.latest[tour][index] = this.accLatest;
+        this.load[tour][index] = this.accLoad;
+        this.distance[tour][index] = this.accDistance;
+    }
+
+    private void startNode(int node) {
+        this.accDuration = problem.delayT[node];
+        this.accTimeWarp = 0;
+        this.accEarliest = problem.fromT[node];
+        this.accLatest = problem.toT[node];
+        this.accLoad = problem.demand[node];
+        this.accDistance = 0.0;
+        this.accLast = node;
+    }
+
+    private void appendNode(int node) {
+        this.append(node, problem.delayT[node], 0, problem.fromT[node], problem.toT[node], problem.demand[node], 0.0, node);
+    }
+
+    /**
+     * Starts the accumulated sequence with the subsequence {@code [a, b]} of the tour.
+     */
+    private void start(int tour, int a, int b) {
+        int index = this.getIndex(tour, a, b);
+        this.accDuration = this.duration[tour][index];
+        this.accTimeWarp = this.timeWarp[tour][index];
+        this.accEarliest = this.earliest[tour][index];
+        this.accLatest = this.latest[tour][index];
+        this.accLoad = this.load[tour][index];
+        this.accDistance = this.distance[tour][index];
+        this.accLast = this.tours[tour][b];
+    }
+
+    /**
+     * Appends the subsequence {@code [a, b]} of the tour to the accumulated sequence, empty if {@code a > b}.
+     */
+    private void append(int tour, int a, int b) {
+        if (a > b) {
+            return;
+        }
+        this.append(tour, this.getIndex(tour, a, b), this.tours[tour][a], this.tours[tour][b]);
+    }
+
+    /**
+     * Appends the subsequence stored at {@code index} of the tour data, from node {@code first} to node {@code last}.
+     */
+    private void append(int tour, int index, int first, int last) {
+        this.append(first, this.duration[tour][index], this.timeWarp[tour][index],
+                this.earliest[tour][index], this.latest[tour][index], this.load[tour][index], this.distance[tour][index],
+                last);
+    }
+
+    private void append(int first, int duration, int timeWarp, int earliest, int latest, int load, double distance, int last) {
+        int travelTime = problem.getTimeDistance(this.accLast, first);
+        int delta = this.accDuration - this.accTimeWarp + travelTime;
+        int deltaWaiting = Math.max(earliest - delta - this.accLatest, 0);
+        int deltaTimeWarp = Math.max(this.accEarliest + delta - latest, 0);
+        this.accDuration += duration + travelTime + deltaWaiting;
+        this.accTimeWarp += timeWarp + deltaTimeWarp;
+        this.accEarliest = Math.max(earliest - delta, this.accEarliest) - deltaWaiting;
+        this.accLatest = Math.min(latest - delta, this.accLatest) + deltaTimeWarp;
+        this.accLoad += load;
+        this.accDistance += problem.getDistance(this.accLast, first) + distance;
+        this.accLast = last;
+    }
+
+    private boolean isAccFeasible() {
+        return this.accTimeWarp == 0 && this.accLoad <= problem.vehicleCapacity;
+    }
+
+    private int getLoad(int tour, int a, int b) {
+        return a > b ? 0 : this.load[tour][this.getIndex(tour, a, b)];
+    }
+
+    private double getDistance(int tour) {
+        return this.distance[tour][this.lengths[tour] - 1];
+    }
+
+    /**
+     * Writes the subsequence {@code [a, b]} of the tour to {@code buffer} from {@code position}.
+     *
+     * @return position after the written nodes.
+     */
+    private int copy(int[] buffer, int position, int tour, int a, int b) {
+        if (a > b) {
+            return position;
+        }
+        System.arraycopy(this.tours[tour], a, buffer, position, b - a + 1);
+        return position + b - a + 1;
+    }
+
+    private void replace(int tour, int[] buffer, int length) {
+        System.arraycopy(buffer, 0, this.tours[tour], 0, length);
+        this.lengths[tour] = length;
+        this.buildData(tour);
+    }
+
+    /**
+     * Moves a customer of tour {@code r1} to tour {@code r2}.
+     */
+    private boolean improveRelocate(int r1, int r2) {
+        int length1 = this.lengths[r1];
+        int length2 = this.lengths[r2];
+        double oldDistance = this.getDistance(r1) + this.getDistance(r2);
+        int load2 = this.getLoad(r2, 0, length2 - 1);
+        for (int i = 1; i < length1 - 1; i++) {
+            if (load2 + problem.demand[this.tours[r1][i]] > problem.vehicleCapacity) {
+                continue;
+            }
+            this.start(r1, 0, i - 1);
+            this.append(r1, i + 1, length1 - 1);
+            this.movesEvaluated += 1;
+            if (!this.isAccFeasible()) {
+                continue;
+            }
+            double newDistance1 = this.accDistance;
+            for (int j = 0; j < length2 - 1; j++) {
+                this.start(r2, 0, j);
+                this.append(r1, i, i);
+                this.append(r2, j + 1, length2 - 1);
+                this.movesEvaluated += 1;
+                if (!this.isAccFeasible() || newDistance1 + this.accDistance >= oldDistance - EPS) {
+                    continue;
+                }
+                int newLength1 = this.copy(this.bufferA, 0, r1, 0, i - 1);
+                newLength1 = this.copy(this.bufferA, newLength1, r1, i + 1, length1 - 1);
+                int newLength2 = this.copy(this.bufferB, 0, r2, 0, j);
+                newLength2 = this.copy(this.bufferB, newLength2, r1, i, i);
+                newLength2 = this.copy(this.bufferB, newLength2, r2, j + 1, length2 - 1);
+                this.replace(r1, this.bufferA, newLength1);
+                this.replace(r2, this.bufferB, newLength2);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Exchanges the ends of two tours.
+     */
+    private boolean improveTwoOptStar(int r1, int r2) {
+        int length1 = this.lengths[r1];
+        int length2 = this.lengths[r2];
+        double oldDistance = this.getDistance(r1) + this.getDistance(r2);
+        for (int i = 0; i < length1 - 1; i++) {
+            int head1 = this.getLoad(r1, 0, i);
+            int tail1 = this.getLoad(r1, i + 1, length1 - 1);
+            for (int j = 0; j < length2 - 1; j++) {
+                if ((i == 0 && j == 0) || (i == length1 - 2 && j == length2 - 2)) {
+                    continue;
+                }
+                if (head1 + this.getLoad(r2, j + 1, length2 - 1) > problem.vehicleCapacity
+                        || this.getLoad(r2, 0, j) + tail1 > problem.vehicleCapacity) {
+                    continue;
+                }
+                this.movesEvaluated += 1;
+                this.start(r1, 0, i);
+                this.append(r2, j + 1, length2 - 1);
+                if (!this.isAccFeasible()) {
+                    continue;
+                }
+                double newDistance1 = this.accDistance;
+                this.start(r2, 0, j);
+                this.append(r1, i + 1, length1 - 1);
+                if (!this.isAccFeasible() || newDistance1 + this.accDistance >= oldDistance - EPS) {
+                    continue;
+                }
+                int newLength1 = this.copy(this.bufferA, 0, r1, 0, i);
+                newLength1 = this.copy(this.bufferA, newLength1, r2, j + 1, length2 - 1);
+                int newLength2 = this.copy(this.bufferB, 0, r2, 0, j);
+                newLength2 = this.copy(this.bufferB, newLength2, r1, i + 1, length1 - 1);
+                this.replace(r1, this.bufferA, newLength1);
+                this.replace(r2, this.bufferB, newLength2);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Exchanges segments of at most {@link #MAX_SEGMENT_LENGTH} customers between two tours.
+     */
+    private boolean improveCrossExchange(int r1, int r2) {
+        int length1 = this.lengths[r1];
+        int length2 = this.lengths[r2];
+        double oldDistance = this.getDistance(r1) + this.getDistance(r2);
+        int load1 = this.getLoad(r1, 0, length1 - 1);
+        int load2 = this.getLoad(r2, 0, length2 - 1);
+        for (int i = 1; i < length1 - 1; i++) {
+            for (int k1 = i; k1 < Math.min(i + MAX_SEGMENT_LENGTH, length1 - 1); k1++) {
+                int segmentLoad1 = this.getLoad(r1, i, k1);
+                for (int j = 1; j < length2 - 1; j++) {
+                    for (int k2 = j; k2 < Math.min(j + MAX_SEGMENT_LENGTH, length2 - 1); k2++) {
+                        int segmentLoad2 = this.getLoad(r2, j, k2);
+                        if (load1 - segmentLoad1 + segmentLoad2 > problem.vehicleCapacity
+                                || load2 - segmentLoad2 + segmentLoad1 > problem.vehicleCapacity) {
+                            continue;
+                        }
+                        this.movesEvaluated += 1;
+                        this.start(r1, 0, i - 1);
+                        this.append(r2, j, k2);
+                        this.append(r1, k1 + 1, length1 - 1);
+                        if (!this.isAccFeasible()) {
+                            continue;
+                        }
+                        double newDistance1 = this.accDistance;
+                        this.start(r2, 0, j - 1);
+                        this.append(r1, i, k1);
+                        this.append(r2, k2 + 1, length2 - 1);
+                        if (!this.isAccFeasible() || newDistance1 + this.accDistance >= oldDistance - EPS) {
+                            continue;
+                        }
+                        int newLength1 = this.copy(this.bufferA, 0, r1, 0, i - 1);
+                        newLength1 = this.copy(this.bufferA, newLength1, r2, j, k2);
+                        newLength1 = this.copy(this.bufferA, newLength1, r1, k1 + 1, length1 - 1);
+                        int newLength2 = this.copy(this.bufferB, 0, r2, 0, j - 1);
+                        newLength2 = this.copy(this.bufferB, newLength2, r1, i, k1);
+                        newLength2 = this.copy(this.bufferB, newLength2, r2, k2 + 1, length2 - 1);
+                        this.replace(r1, this.bufferA, newLength1);
+                        this.replace(r2, this.bufferB, newLength2);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves a segment of at most {@link #MAX_SEGMENT_LENGTH} customers to another place of the same tour.
+     */
+    private boolean improveOrOpt(int r) {
+        int length = this.lengths[r];
+        int[] nodes = this.tours[r];
+        double oldDistance = this.getDistance(r);
+        for (int i = 1; i < length - 1; i++) {
+            // subsequences [j + 1, i - 1] the segment jumps over when it is moved back
+            for (int j = i - 2; j >= 0; j--) {
+                this.startNode(nodes[j + 1]);
+                if (j < i - 2) {
+                    this.append(r, this.getMiddleIndex(r, j + 1), nodes[j + 2], nodes[i - 1]);
+                }
+                this.store(r, this.getMiddleIndex(r, j));
+            }
+            for (int k = i; k < Math.min(i + MAX_SEGMENT_LENGTH, length - 1); k++) {
+                // subsequences [k + 1, j] the segment jumps over when it is moved forward
+                for (int j = k + 1; j < length - 1; j++) {
+                    if (j == k + 1) {
+                        this.startNode(nodes[j]);
+                    } else {
+                        this.appendNode(nodes[j]);
+                    }
+                    this.store(r, this.getMiddleIndex(r, j));
+                }
+                for (int j = 0; j < length - 1; j++) {
+                    if (j >= i - 1 && j <= k) {
+                        continue;
+                    }
+                    this.movesEvaluated += 1;
+                    if (j < i) {
+                        this.start(r, 0, j);
+                        this.append(r, i, k);
+                        this.append(r, this.getMiddleIndex(r, j), nodes[j + 1], nodes[i - 1]);
+                        this.append(r, k + 1, length - 1);
+                    } else {
+                        this.start(r, 0, i - 1);
+                        this.append(r, this.getMiddleIndex(r, j), nodes[k + 1], nodes[j]);
+                        this.append(r, i, k);
+                        this.append(r, j + 1, length - 1);
+                    }
+                    if (this.accTimeWarp != 0 || this.accDistance >= oldDistance - EPS) {
+                        continue;
+                    }
+                    int newLength;
+                    if (j < i) {
+                        newLength = this.copy(this.bufferA, 0, r, 0, j);
+                        newLength = this.copy(this.bufferA, newLength, r, i, k);
+                        newLength = this.copy(this.bufferA, newLength, r, j + 1, i - 1);
+                        newLength = this.copy(this.bufferA, newLength, r, k + 1, length - 1);
+                    } else {
+                        newLength = this.copy(this.bufferA, 0, r, 0, i - 1);
+                        newLength = this.copy(this.bufferA, newLength, r, k + 1, j);
+                        newLength = this.copy(this.bufferA, newLength, r, i, k);
+                        newLength = this.copy(this.bufferA, newLength, r, j + 1, length - 1);
+                    }
+                    this.replace(r, this.bufferA, newLength);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+}
@@ -2,36 +2,71 @@ package com.polarnick.vrp.acs.colonies.helpers;
 
 import com.polarnick.vrp.model.Route;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
+ * Best route per vehicles number, shared by the colonies running concurrently.
+ * <p>
+ * Routes are published with compare-and-set, so a suggested route either replaces the one it was compared with
+ * or is compared again with the newer one. The minimal vehicles number is tracked on each publication.
+ * Callbacks are executed by the dispatcher given to the storage, so the colonies do not wait for the listeners.
+ * Each callback receives the pair of routes of its own publication: with concurrent suggestions and an asynchronous
+ * dispatcher the callbacks of different publications may come in any order.
+ *
  * @author Polyarnyi Nickolay, PolarNick239
  */
 public class MinVehiclesRouteStorage implements BestRouteStorage {
-    private final Map<Integer, Route> bestRoutes;
+
+    private static final Logger logger = Logger.getLogger("MinVehiclesRouteStorage");
+
+    private final ConcurrentMap<Integer, Route> bestRoutes;
+    private final AtomicInteger minVehiclesNumber;
     private final List<Callback> vehiclesImprovedCallbacks;
     private final List<Callback> distanceImprovedCallbacks;
+    private final Executor dispatcher;
 
     public MinVehiclesRouteStorage() {
         this(null);
     }
 
     public MinVehiclesRouteStorage(Route initialSolution) {
-        this.bestRoutes = new HashMap<>();
-        this.vehiclesImprovedCallbacks = new ArrayList<>();
-        this.distanceImprovedCallbacks = new ArrayList<>();
+        this(initialSolution, Runnable::run);
+    }
+
+    /**
+     * @param dispatcher executor of the callbacks, callbacks of a single publication are executed in a single task
+     *                   in the order they were added.
+     */
+    public MinVehiclesRouteStorage(Route initialSolution, Executor dispatcher) {
+        this.bestRoutes = new ConcurrentHashMap<>();
+        this.minVehiclesNumber = new AtomicInteger(-1);
+        this.vehiclesImprovedCallbacks = new CopyOnWriteArrayList<>();
+        this.distanceImprovedCallbacks = new CopyOnWriteArrayList<>();
+        this.dispatcher = dispatcher;
         if (initialSolution != null) {
             this.suggestBestRoute(initialSolution);
         }
     }
 
+    /**
+     * The callback is called when a route with fewer vehicles than all the previous ones is stored,
+     * with the best route of the previous minimal vehicles number (null for the first route).
+     */
     public void addVehiclesImprovedCallback(Callback vehiclesImproved) {
         this.vehiclesImprovedCallbacks.add(vehiclesImproved);
     }
 
+    /**
+     * The callback is called when a route replaces the best route with the same vehicles number
+     * (null if there was no such route).
+     */
     public void addDistanceImprovedCallback(Callback distanceImproved) {
         this.distanceImprovedCallbacks.add(distanceImproved);
     }
@@ -43,39 +78,60 @@ public class MinVehiclesRouteStorage implements BestRouteStorage {
 
     @Override
     public int getMinVehiclesNumber() {
-        int minVehiclesNumber = -1;
-        for (int i: this.bestRoutes.keySet()) {
-            if (minVehiclesNumber == -1 || i < minVehiclesNumber) {
-                minVehiclesNumber = i;
-            }
-        }
-        return minVehiclesNumber;
+        return this.minVehiclesNumber.get();
     }
 
     @Override
     public boolean suggestBestRoute(Route route) {
         int vehiclesNumber = route.getVehiclesNumber();
-        Route bestRoute = this.bestRoutes.get(vehiclesNumber);
-        if (bestRoute == null) {
-            for (Callback callback: this.vehiclesImprovedCallbacks) {
-                callback.callback(bestRoute, route);
-            }
-            if (bestRoute == null || route.getResidual() < bestRoute.getResidual()) {
-                for (Callback callback: this.distanceImprovedCallbacks) {
-                    callback.callback(bestRoute, route);
+        Route bestRoute;
+        while (true) {
+            bestRoute = this.bestRoutes.get(vehiclesNumber);
+            if (bestRoute == null) {
+                if (this.bestRoutes.putIfAbsent(vehiclesNumber, route) == null) {
+                    break;
                 }
+            } else if (route.getResidual() < bestRoute.getResidual()) {
+                if (this.bestRoutes.replace(vehiclesNumber, bestRoute, route)) {
+                    break;
+                }
+            } else {
+                return false;
             }
-            this.bestRoutes.put(vehiclesNumber, route);
-            return true;
-        } else if (route.getResidual() < bestRoute.getResidual()) {
-            for (Callback callback: this.distanceImprovedCallbacks) {
-                callback.callback(bestRoute, route);
+        }
+
+        Route previousMinVehiclesRoute = null;
+        boolean vehiclesImproved = false;
+        if (bestRoute == null) {
+            int previousMinVehiclesNumber = this.minVehiclesNumber.get();
+            while ((previousMinVehiclesNumber == -1 || vehiclesNumber < previousMinVehiclesNumber)
+                    && !this.minVehiclesNumber.compareAndSet(previousMinVehiclesNumber, vehiclesNumber)) {
+                previousMinVehiclesNumber = this.minVehiclesNumber.get();
+            }
+            if (previousMinVehiclesNumber == -1 || vehiclesNumber < previousMinVehiclesNumber) {
+                vehiclesImproved = true;
+                previousMinVehiclesRoute = previousMinVehiclesNumber == -1 ? null : this.bestRoutes.get(previousMinVehiclesNumber);
             }
-            this.bestRoutes.put(vehiclesNumber, route);
-            return true;
-        } else {
-            return false;
         }
+        if (vehiclesImproved && !this.vehiclesImprovedCallbacks.isEmpty()) {
+            this.dispatch(this.vehiclesImprovedCallbacks, previousMinVehiclesRoute, route);
+        }
+        if (!this.distanceImprovedCallbacks.isEmpty()) {
+            this.dispatch(this.distanceImprovedCallbacks, bestRoute, route);
+        }
+        return true;
+    }
+
+    private void dispatch(List<Callback> callbacks, Route oldRoute, Route route) {
+        this.dispatcher.execute(() -> {
+            for (Callback callback: callbacks) {
+                try {
+                    callback.callback(oldRoute, route);
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Route storage callback failed!", e);
+                }
+            }
+        });
     }
 
     public static interface Callback {
@@ -1,5 +1,9 @@
 package com.polarnick.vrp.acs.colonies.helpers;
 
+import com.polarnick.vrp.acs.colonies.AbstractACS;
+import com.polarnick.vrp.acs.colonies.MinDistanceACS;
+import com.polarnick.vrp.acs.model.AntColonyState;
+
 /**
  * @author Polyarnyi Nickolay, PolarNick239
  */
@@ -10,10 +14,88 @@ public class Params {
     public final double pheromoneFading;
     public final double pheromoneBaseValue;
 
+    /**
+     * Number of nearest customers an ant looks at before falling back to all of them, 0 disables candidate lists.
+     */
+    public final int candidateListSize;
+    public final CandidateSelector.Rule selectionRule;
+    /**
+     * Number of the candidates explored with {@link CandidateSelector.Rule#TOP_K}.
+     */
+    public final int selectionTopK;
+    public final AntColonyState.PheromoneUpdate pheromoneUpdate;
+    public final AbstractACS.Schedule schedule;
+
+    /**
+     * Number of the independent distance colonies, each with its own seed, pheromone and best route.
+     */
+    public final int islandsNumber;
+    /**
+     * Number of generations between the migrations of a distance colony, see {@link MinDistanceACS.Migration}.
+     */
+    public final int migrationInterval;
+    public final MinDistanceACS.Migration migration;
+
     public Params(double exploitationP, double heuristicValueImportance, double pheromoneFading, double pheromoneBaseValue) {
+        this(exploitationP, heuristicValueImportance, pheromoneFading, pheromoneBaseValue, 0, CandidateSelector.Rule.LINEAR, CandidateSelector.DEFAULT_TOP_K,
+                AntColonyState.PheromoneUpdate.UNSYNCHRONIZED, AbstractACS.Schedule.BARRIER, 1, 1, MinDistanceACS.Migration.ELITE_ROUTE);
+    }
+
+    private Params(double exploitationP, double heuristicValueImportance, double pheromoneFading, double pheromoneBaseValue,
+                   int candidateListSize, CandidateSelector.Rule selectionRule, int selectionTopK, AntColonyState.PheromoneUpdate pheromoneUpdate,
+                   AbstractACS.Schedule schedule, int islandsNumber, int migrationInterval, MinDistanceACS.Migration migration) {
+        if (islandsNumber <= 0) {
+            throw new IllegalArgumentException("Islands number should be positive: " + islandsNumber);
+        }
+        if (migrationInterval <= 0) {
+            throw new IllegalArgumentException("Migration interval should be positive: " + migrationInterval);
+        }
         this.exploitationP = exploitationP;
         this.heuristicValueImportance = heuristicValueImportance;
         this.pheromoneFading = pheromoneFading;
         this.pheromoneBaseValue = pheromoneBaseValue;
+        this.candidateListSize = candidateListSize;
+        this.selectionRule = selectionRule;
+        this.selectionTopK = selectionTopK;
+        this.pheromoneUpdate = pheromoneUpdate;
+        this.schedule = schedule;
+        this.islandsNumber = islandsNumber;
+        this.migrationInterval = migrationInterval;
+        this.migration = migration;
+    }
+
+    public Params withCandidateListSize(int candidateListSize) {
+        return new Params(exploitationP, heuristicValueImportance, pheromoneFading, pheromoneBaseValue,
+                candidateListSize, selectionRule, selectionTopK, pheromoneUpdate, schedule, islandsNumber, migrationInterval, migration);
+    }
+
+    public Params withSelectionRule(CandidateSelector.Rule selectionRule) {
+        return new Params(exploitationP, heuristicValueImportance, pheromoneFading, pheromoneBaseValue,
+                candidateListSize, selectionRule, selectionTopK, pheromoneUpdate, schedule, islandsNumber, migrationInterval, migration);
+    }
+
+    public Params withSelectionTopK(int selectionTopK) {
+        return new Params(exploitationP, heuristicValueImportance, pheromoneFading, pheromoneBaseValue,
+                candidateListSize, selectionRule, selectionTopK, pheromoneUpdate, schedule, islandsNumber, migrationInterval, migration);
+    }
+
+    public Params withPheromoneUpdate(AntColonyState.PheromoneUpdate pheromoneUpdate) {
+        return new Params(exploitationP, heuristicValueImportance, pheromoneFading, pheromoneBaseValue,
+                candidateListSize, selectionRule, selectionTopK, pheromoneUpdate, schedule, islandsNumber, migrationInterval, migration);
+    }
+
+    public Params withSchedule(AbstractACS.Schedule schedule) {
+        return new Params(exploitationP, heuristicValueImportance, pheromoneFading, pheromoneBaseValue,
+                candidateListSize, selectionRule, selectionTopK, pheromoneUpdate, schedule, islandsNumber, migrationInterval, migration);
+    }
+
+    public Params withPheromoneBaseValue(double pheromoneBaseValue) {
+        return new Params(exploitationP, heuristicValueImportance, pheromoneFading, pheromoneBaseValue,
+                candidateListSize, selectionRule, selectionTopK, pheromoneUpdate, schedule, islandsNumber, migrationInterval, migration);
+    }
+
+    public Params withIslands(int islandsNumber, int migrationInterval, MinDistanceACS.Migration migration) {
+        return new Params(exploitationP, heuristicValueImportance, pheromoneFading, pheromoneBaseValue,
+                candidateListSize, selectionRule, selectionTopK, pheromoneUpdate, schedule, islandsNumber, migrationInterval, migration);
     }
-}
+}
\ No newline at end of file
@@ -0,0 +1,154 @@
+package com.polarnick.vrp.acs.colonies.helpers;
+
+import com.polarnick.vrp.utils.Stoppable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+
+/**
+ * Executor shared by all the colonies of a solver, so the number of worker threads is bounded by the core budget
+ * no matter how many colonies are created while the vehicles number decreases.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class SolverScheduler implements Stoppable {
+
+    public enum Mode {
+        /**
+         * {@link ForkJoinPool} with as many daemon workers as the core budget.
+         */
+        FORK_JOIN,
+        /**
+         * A virtual thread per ant, at most core budget of them run at the same time.
+         * Requires a JVM with virtual threads, otherwise {@link #FORK_JOIN} is used.
+         */
+        VIRTUAL_THREADS,
+    }
+
+    private static volatile SolverScheduler common;
+
+    public final Mode mode;
+    public final int parallelism;
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private volatile boolean stopped;
+
+    public SolverScheduler(Mode mode, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism should be positive: " + parallelism);
+        }
+        ExecutorService virtualThreadsExecutor = mode == Mode.VIRTUAL_THREADS ? createVirtualThreadsExecutor() : null;
+        if (virtualThreadsExecutor != null) {
+            this.mode = Mode.VIRTUAL_THREADS;
+            this.executor = virtualThreadsExecutor;
+            this.permits = new Semaphore(parallelism);
+        } else {
+            this.mode = Mode.FORK_JOIN;
+            this.executor = new ForkJoinPool(parallelism);
+            this.permits = null;
+        }
+        this.parallelism = parallelism;
+        this.stopped = false;
+    }
+
+    /**
+     * @return scheduler for the colonies created without an explicit one, it uses all the available processors
+     * and is never stopped.
+     */
+    public static SolverScheduler common() {
+        SolverScheduler scheduler = common;
+        if (scheduler == null) {
+            synchronized (SolverScheduler.class) {
+                scheduler = common;
+                if (scheduler == null) {
+                    scheduler = new SolverScheduler(Mode.FORK_JOIN, Runtime.getRuntime().availableProcessors());
+                    common = scheduler;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    private static ExecutorService createVirtualThreadsExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            Logger.getLogger("SolverScheduler").warning("Virtual threads are not available, falling back to fork-join pool!");
+            return null;
+        }
+    }
+
+    /**
+     * Runs the tasks and waits for all of them, see {@link ExecutorService#invokeAll}.
+     *
+     * @throws RejectedExecutionException if the scheduler is stopped.
+     */
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+        if (this.permits == null) {
+            return this.executor.invokeAll(tasks);
+        }
+        List<Callable<T>> limitedTasks = new ArrayList<>(tasks.size());
+        for (Callable<T> task: tasks) {
+            limitedTasks.add(() -> {
+                this.permits.acquire();
+                try {
+                    return task.call();
+                } finally {
+                    this.permits.release();
+                }
+            });
+        }
+        return this.executor.invokeAll(limitedTasks);
+    }
+
+    /**
+     * @return completion service that runs its tasks on this scheduler, so a colony can take its ants
+     * one by one as soon as they finish.
+     */
+    public <T> CompletionService<T> newCompletionService() {
+        return new ExecutorCompletionService<>(this::execute);
+    }
+
+    private void execute(Runnable task) {
+        if (this.permits == null) {
+            this.executor.execute(task);
+            return;
+        }
+        this.executor.execute(() -> {
+            this.permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                this.permits.release();
+            }
+        });
+    }
+
+    @Override
+    public boolean isStopped() {
+        return this.stopped;
+    }
+
+    /**
+     * Interrupts the running tasks and releases the worker threads.
+     */
+    @Override
+    public boolean stop() {
+        if (this == common) {
+            throw new UnsupportedOperationException("Common scheduler can not be stopped!");
+        }
+        boolean alreadyStopped = this.stopped;
+        this.stopped = true;
+        this.executor.shutdownNow();
+        return !alreadyStopped;
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.executor.awaitTermination(timeout, unit);
+    }
+
+}
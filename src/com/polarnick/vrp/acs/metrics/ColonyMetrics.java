@@ -0,0 +1,156 @@
+package com.polarnick.vrp.acs.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and timings of a colony kind (all the colonies with the same name of a solver share them): tours of the ants
+ * with the time spent in construction, insertion and local search, and generations with the time of the pheromone update.
+ * Tours are recorded by the ants concurrently, generations by the colony thread.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class ColonyMetrics implements ColonyMetricsMXBean {
+
+    private final String colonyName;
+    private final long startNanos;
+    private final LongAdder toursNumber;
+    private final LongAdder feasibleToursNumber;
+    private final LongAdder generationsNumber;
+
+    public final Histogram construction;
+    public final Histogram insertion;
+    public final Histogram localSearch;
+    public final Histogram pheromoneUpdate;
+
+    public ColonyMetrics(String colonyName) {
+        this(colonyName, System.nanoTime());
+    }
+
+    ColonyMetrics(String colonyName, long startNanos) {
+        this.colonyName = colonyName;
+        this.startNanos = startNanos;
+        this.toursNumber = new LongAdder();
+        this.feasibleToursNumber = new LongAdder();
+        this.generationsNumber = new LongAdder();
+        this.construction = new Histogram();
+        this.insertion = new Histogram();
+        this.localSearch = new Histogram();
+        this.pheromoneUpdate = new Histogram();
+    }
+
+    /**
+     * @param localSearchNanos 0 for the colonies without local search.
+     */
+    public void recordTour(long constructionNanos, long insertionNanos, long localSearchNanos, boolean feasible) {
+        this.toursNumber.increment();
+        if (feasible) {
+            this.feasibleToursNumber.increment();
+        }
+        this.construction.record(constructionNanos);
+        this.insertion.record(insertionNanos);
+        this.localSearch.record(localSearchNanos);
+
+        SolverEvents.Tour event = new SolverEvents.Tour();
+        if (event.shouldCommit()) {
+            event.colony = this.colonyName;
+            event.constructionNanos = constructionNanos;
+            event.insertionNanos = insertionNanos;
+            event.localSearchNanos = localSearchNanos;
+            event.feasible = feasible;
+            event.commit();
+        }
+    }
+
+    /**
+     * @param pheromoneUpdateNanos time of the global pheromone update, with the buffered local updates applied if any.
+     */
+    public void recordGeneration(long pheromoneUpdateNanos) {
+        this.generationsNumber.increment();
+        this.pheromoneUpdate.record(pheromoneUpdateNanos);
+
+        SolverEvents.Generation event = new SolverEvents.Generation();
+        if (event.shouldCommit()) {
+            event.colony = this.colonyName;
+            event.generation = this.generationsNumber.sum();
+            event.pheromoneUpdateNanos = pheromoneUpdateNanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public String getColonyName() {
+        return this.colonyName;
+    }
+
+    @Override
+    public long getToursNumber() {
+        return this.toursNumber.sum();
+    }
+
+    @Override
+    public long getFeasibleToursNumber() {
+        return this.feasibleToursNumber.sum();
+    }
+
+    @Override
+    public double getFeasibleToursRatio() {
+        long toursNumber = this.getToursNumber();
+        return toursNumber == 0 ? 0.0 : (double) this.getFeasibleToursNumber() / toursNumber;
+    }
+
+    @Override
+    public long getGenerationsNumber() {
+        return this.generationsNumber.sum();
+    }
+
+    @Override
+    public double getToursPerSecond() {
+        return this.getToursNumber() * 1e9 / Math.max(1, System.nanoTime() - this.startNanos);
+    }
+
+    @Override
+    public double getGenerationsPerSecond() {
+        return this.getGenerationsNumber() * 1e9 / Math.max(1, System.nanoTime() - this.startNanos);
+    }
+
+    @Override
+    public double getConstructionMeanNanos() {
+        return this.construction.getMean();
+    }
+
+    @Override
+    public long getConstructionP99Nanos() {
+        return this.construction.getPercentile(0.99);
+    }
+
+    @Override
+    public double getInsertionMeanNanos() {
+        return this.insertion.getMean();
+    }
+
+    @Override
+    public long getInsertionP99Nanos() {
+        return this.insertion.getPercentile(0.99);
+    }
+
+    @Override
+    public double getLocalSearchMeanNanos() {
+        return this.localSearch.getMean();
+    }
+
+    @Override
+    public long getLocalSearchP99Nanos() {
+        return this.localSearch.getPercentile(0.99);
+    }
+
+    @Override
+    public double getPheromoneUpdateMeanNanos() {
+        return this.pheromoneUpdate.getMean();
+    }
+
+    @Override
+    public long getPheromoneUpdateP99Nanos() {
+        return this.pheromoneUpdate.getPercentile(0.99);
+    }
+
+}
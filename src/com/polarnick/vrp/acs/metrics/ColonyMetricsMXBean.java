@@ -0,0 +1,40 @@
+package com.polarnick.vrp.acs.metrics;
+
+/**
+ * JMX view of {@link ColonyMetrics}. Rates are averaged since the start of the solver, durations are in nanoseconds.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public interface ColonyMetricsMXBean {
+
+    String getColonyName();
+
+    long getToursNumber();
+
+    long getFeasibleToursNumber();
+
+    double getFeasibleToursRatio();
+
+    long getGenerationsNumber();
+
+    double getToursPerSecond();
+
+    double getGenerationsPerSecond();
+
+    double getConstructionMeanNanos();
+
+    long getConstructionP99Nanos();
+
+    double getInsertionMeanNanos();
+
+    long getInsertionP99Nanos();
+
+    double getLocalSearchMeanNanos();
+
+    long getLocalSearchP99Nanos();
+
+    double getPheromoneUpdateMeanNanos();
+
+    long getPheromoneUpdateP99Nanos();
+
+}
@@ -0,0 +1,79 @@
+package com.polarnick.vrp.acs.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative values (durations in nanoseconds) with a bucket per power of two, so recording a value
+ * is a couple of uncontended additions and percentiles are known up to a factor of two.
+ * Bucket 0 counts zeros, bucket {@code k} counts values in {@code [2^(k-1), 2^k)}.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class Histogram {
+
+    private static final int BUCKETS_NUMBER = Long.SIZE;
+
+    private final LongAdder[] buckets;
+    private final LongAdder count;
+    private final LongAdder sum;
+    private final LongAccumulator max;
+
+    public Histogram() {
+        this.buckets = new LongAdder[BUCKETS_NUMBER];
+        for (int k = 0; k < BUCKETS_NUMBER; k++) {
+            this.buckets[k] = new LongAdder();
+        }
+        this.count = new LongAdder();
+        this.sum = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0);
+    }
+
+    public void record(long value) {
+        value = Math.max(0, value);
+        this.buckets[Long.SIZE - Long.numberOfLeadingZeros(value)].increment();
+        this.count.increment();
+        this.sum.add(value);
+        this.max.accumulate(value);
+    }
+
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    public long getSum() {
+        return this.sum.sum();
+    }
+
+    public long getMax() {
+        return this.max.get();
+    }
+
+    public double getMean() {
+        long count = this.getCount();
+        return count == 0 ? 0.0 : (double) this.getSum() / count;
+    }
+
+    /**
+     * @param quantile from 0 to 1.
+     * @return upper bound of the bucket of the given quantile (but not more than the maximum), 0 if nothing is recorded.
+     */
+    public long getPercentile(double quantile) {
+        long[] counts = new long[BUCKETS_NUMBER];
+        long total = 0;
+        for (int k = 0; k < BUCKETS_NUMBER; k++) {
+            counts[k] = this.buckets[k].sum();
+            total += counts[k];
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int k = 0; k < BUCKETS_NUMBER; k++) {
+            seen += counts[k];
+            if (counts[k] > 0 && seen >= rank) {
+                return Math.min((1L << k) - 1, this.getMax());
+            }
+        }
+        return 0;
+    }
+
+}
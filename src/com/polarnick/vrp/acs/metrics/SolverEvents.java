@@ -0,0 +1,80 @@
+package com.polarnick.vrp.acs.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder events of the solver. Events are only filled in when a recording has them enabled,
+ * {@link Tour} is disabled by default as there are thousands of tours per second.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class SolverEvents {
+
+    private static final String CATEGORY = "MACS-VRPTW";
+
+    @Name("com.polarnick.vrp.Tour")
+    @Label("Ant Tour")
+    @Category(CATEGORY)
+    @Description("Tour constructed by an ant of a colony")
+    @Enabled(false)
+    @StackTrace(false)
+    public static class Tour extends Event {
+
+        @Label("Colony")
+        String colony;
+
+        @Label("Construction")
+        @Timespan
+        long constructionNanos;
+
+        @Label("Insertion")
+        @Timespan
+        long insertionNanos;
+
+        @Label("Local Search")
+        @Timespan
+        long localSearchNanos;
+
+        @Label("Feasible")
+        boolean feasible;
+    }
+
+    @Name("com.polarnick.vrp.Generation")
+    @Label("Colony Generation")
+    @Category(CATEGORY)
+    @Description("Global pheromone update of a colony after a generation of ants")
+    @StackTrace(false)
+    public static class Generation extends Event {
+
+        @Label("Colony")
+        String colony;
+
+        @Label("Generation")
+        long generation;
+
+        @Label("Pheromone Update")
+        @Timespan
+        long pheromoneUpdateNanos;
+    }
+
+    @Name("com.polarnick.vrp.Improvement")
+    @Label("Solution Improvement")
+    @Category(CATEGORY)
+    @Description("Better solution found by the solver")
+    @StackTrace(false)
+    public static class Improvement extends Event {
+
+        @Label("Solver")
+        String solver;
+
+        @Label("Vehicles Number Improved")
+        boolean vehiclesNumberImproved;
+
+        @Label("Vehicles Number")
+        int vehiclesNumber;
+
+        @Label("Residual")
+        double residual;
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.polarnick.vrp.acs.metrics;
+
+import com.polarnick.vrp.model.Route;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a solver: {@link ColonyMetrics} per colony name and the improvements of the best solution.
+ * Metrics are off unless an instance is passed to the solver, then each tour costs a few {@link System#nanoTime()}
+ * calls and uncontended additions. They are exposed through JMX after {@link #register()}, under
+ * {@code com.polarnick.vrp:type=Solver,name=<name>} and {@code com.polarnick.vrp:type=Colony,solver=<name>,name=<colony>},
+ * and as the Flight Recorder events of {@link SolverEvents}.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class SolverMetrics implements SolverMetricsMXBean {
+
+    public static final String DOMAIN = "com.polarnick.vrp";
+
+    private final String solverName;
+    private final long startNanos;
+    private final ConcurrentMap<String, ColonyMetrics> colonies;
+    private final LongAdder vehiclesImprovementsNumber;
+    private final LongAdder distanceImprovementsNumber;
+    private volatile Route bestRoute;
+
+    private final List<ObjectName> registeredNames;
+    private boolean registered;
+
+    public SolverMetrics(String solverName) {
+        this.solverName = solverName;
+        this.startNanos = System.nanoTime();
+        this.colonies = new ConcurrentHashMap<>();
+        this.vehiclesImprovementsNumber = new LongAdder();
+        this.distanceImprovementsNumber = new LongAdder();
+        this.bestRoute = null;
+        this.registeredNames = new ArrayList<>();
+        this.registered = false;
+    }
+
+    /**
+     * @return metrics of the colonies with the given name, created on the first call.
+     */
+    public ColonyMetrics getColonyMetrics(String colonyName) {
+        ColonyMetrics metrics = this.colonies.get(colonyName);
+        if (metrics == null) {
+            synchronized (this) {
+                metrics = this.colonies.get(colonyName);
+                if (metrics == null) {
+                    metrics = new ColonyMetrics(colonyName, this.startNanos);
+                    this.colonies.put(colonyName, metrics);
+                    if (this.registered) {
+                        try {
+                            this.registerBean(metrics, this.colonyObjectName(colonyName));
+                        } catch (JMException e) {
+                            throw new IllegalStateException("Can not register metrics of colony " + colonyName, e);
+                        }
+                    }
+                }
+            }
+        }
+        return metrics;
+    }
+
+    public Collection<ColonyMetrics> getColoniesMetrics() {
+        return this.colonies.values();
+    }
+
+    /**
+     * To be called for each solution with fewer vehicles than before (the initial solution is an improvement too).
+     */
+    public void vehiclesImproved(Route oldRoute, Route newRoute) {
+        this.vehiclesImprovementsNumber.increment();
+        this.improved(newRoute, true);
+    }
+
+    /**
+     * To be called for each better solution, including the ones with fewer vehicles.
+     */
+    public void distanceImproved(Route oldRoute, Route newRoute) {
+        this.distanceImprovementsNumber.increment();
+        this.improved(newRoute, false);
+    }
+
+    private void improved(Route newRoute, boolean vehiclesNumberImproved) {
+        Route bestRoute = this.bestRoute;
+        if (bestRoute == null || newRoute.getVehiclesNumber() < bestRoute.getVehiclesNumber()
+                || (newRoute.getVehiclesNumber() == bestRoute.getVehiclesNumber() && newRoute.getResidual() < bestRoute.getResidual())) {
+            this.bestRoute = newRoute;
+        }
+
+        SolverEvents.Improvement event = new SolverEvents.Improvement();
+        if (event.shouldCommit()) {
+            event.solver = this.solverName;
+            event.vehiclesNumberImproved = vehiclesNumberImproved;
+            event.vehiclesNumber = newRoute.getVehiclesNumber();
+            event.residual = newRoute.getResidual();
+            event.commit();
+        }
+    }
+
+    /**
+     * Registers the solver and its colonies (including the ones created later) in the platform MBean server.
+     */
+    public synchronized void register() throws JMException {
+        if (this.registered) {
+            return;
+        }
+        this.registerBean(this, new ObjectName(DOMAIN + ":type=Solver,name=" + ObjectName.quote(this.solverName)));
+        for (ColonyMetrics metrics: this.colonies.values()) {
+            this.registerBean(metrics, this.colonyObjectName(metrics.getColonyName()));
+        }
+        this.registered = true;
+    }
+
+    public synchronized void unregister() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name: this.registeredNames) {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        }
+        this.registeredNames.clear();
+        this.registered = false;
+    }
+
+    private ObjectName colonyObjectName(String colonyName) throws JMException {
+        return new ObjectName(DOMAIN + ":type=Colony,solver=" + ObjectName.quote(this.solverName) + ",name=" + ObjectName.quote(colonyName));
+    }
+
+    private void registerBean(Object bean, ObjectName name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(bean, name);
+        this.registeredNames.add(name);
+    }
+
+    @Override
+    public String getSolverName() {
+        return this.solverName;
+    }
+
+    @Override
+    public long getUptimeMillis() {
+        return (System.nanoTime() - this.startNanos) / 1000000;
+    }
+
+    @Override
+    public long getVehiclesImprovementsNumber() {
+        return this.vehiclesImprovementsNumber.sum();
+    }
+
+    @Override
+    public long getDistanceImprovementsNumber() {
+        return this.distanceImprovementsNumber.sum();
+    }
+
+    @Override
+    public int getBestVehiclesNumber() {
+        Route bestRoute = this.bestRoute;
+        return bestRoute == null ? -1 : bestRoute.getVehiclesNumber();
+    }
+
+    @Override
+    public double getBestResidual() {
+        Route bestRoute = this.bestRoute;
+        return bestRoute == null ? Double.NaN : bestRoute.getResidual();
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.polarnick.vrp.acs.metrics;
+
+/**
+ * JMX view of {@link SolverMetrics}, the colonies are registered as separate {@link ColonyMetricsMXBean} beans.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public interface SolverMetricsMXBean {
+
+    String getSolverName();
+
+    long getUptimeMillis();
+
+    long getVehiclesImprovementsNumber();
+
+    long getDistanceImprovementsNumber();
+
+    /**
+     * @return vehicles number of the best solution, -1 if there is none yet.
+     */
+    int getBestVehiclesNumber();
+
+    /**
+     * @return residual of the best solution, NaN if there is none yet.
+     */
+    double getBestResidual();
+
+}
@@ -1,9 +1,17 @@
 package com.polarnick.vrp.acs.model;
 
+import com.polarnick.vrp.model.CandidateLists;
+import com.polarnick.vrp.model.DistanceMatrix;
+import com.polarnick.vrp.model.InsertionIndex;
 import com.polarnick.vrp.model.Stop;
+import com.polarnick.vrp.model.TimeWindowIndex;
 import com.polarnick.vrp.model.VRProblem;
 
 /**
+ * Nodes {@code 0..vehiclesNumber} are copies of the depot (one per vehicle plus the final one),
+ * the rest are customers. All the depot copies are mapped to the single depot of the base problem,
+ * so distances are read from the matrix shared by every colony built for it.
+ *
  * @author Polyarnyi Nickolay, PolarNick239
  */
 public class AntColonyProblem {
@@ -16,39 +24,85 @@ public class AntColonyProblem {
     public final Stop depot;
     public final Stop[] stops;
 
-    public final double[][] distances;
+    /**
+     * Fields of {@link #stops} by node, so the hot loops read contiguous arrays instead of the stops.
+     */
+    public final int[] demand;
+    public final int[] fromT;
+    public final int[] toT;
+    public final int[] delayT;
+    public final boolean[] isDepot;
+
+    public final VRProblem baseProblem;
+    public final TimeWindowIndex timeWindowIndex;
+    public final InsertionIndex insertionIndex;
+    private final DistanceMatrix matrix;
 
     public AntColonyProblem(int vehiclesNumber, int vehicleCapacity, Stop depot, Stop[] customers) {
-        this.n = vehiclesNumber + 1 + customers.length;
+        this(new VRProblem(depot, customers, vehicleCapacity), vehiclesNumber);
+    }
+
+    public AntColonyProblem(VRProblem baseProblem, int vehiclesNumber) {
+        this.n = vehiclesNumber + 1 + baseProblem.customersNumber;
         this.vehiclesNumber = vehiclesNumber;
-        this.vehicleCapacity = vehicleCapacity;
-        this.customersNumber = customers.length;
+        this.vehicleCapacity = baseProblem.vehicleCapacity;
+        this.customersNumber = baseProblem.customersNumber;
 
-        this.depot = depot;
+        this.depot = baseProblem.depot;
         this.stops = new Stop[this.n];
         for (int i = 0; i < vehiclesNumber + 1; i++) {
             this.stops[i] = depot;
         }
-        for (int i = 0; i < customers.length; i++) {
-            this.stops[vehiclesNumber + 1 + i] = customers[i];
+        for (int i = 0; i < this.customersNumber; i++) {
+            this.stops[vehiclesNumber + 1 + i] = baseProblem.customers[i];
         }
-
-        this.distances = new double[this.n][this.n];
+        this.demand = new int[this.n];
+        this.fromT = new int[this.n];
+        this.toT = new int[this.n];
+        this.delayT = new int[this.n];
+        this.isDepot = new boolean[this.n];
         for (int i = 0; i < this.n; i++) {
-            for (int j = 0; j < this.n; j++) {
-                double dx = this.stops[i].x - this.stops[j].x;
-                double dy = this.stops[i].y - this.stops[j].y;
-                this.distances[i][j] = Math.sqrt(dx*dx + dy*dy);
-            }
+            this.demand[i] = this.stops[i].demand;
+            this.fromT[i] = this.stops[i].fromT;
+            this.toT[i] = this.stops[i].toT;
+            this.delayT[i] = this.stops[i].delayT;
+            this.isDepot[i] = this.stops[i].isDepot();
         }
+
+        this.baseProblem = baseProblem;
+        this.matrix = baseProblem.getDistanceMatrix();
+        this.timeWindowIndex = baseProblem.getTimeWindowIndex();
+        this.insertionIndex = baseProblem.getInsertionIndex();
+    }
+
+    /**
+     * @return index of the node in the distance matrix of the base problem.
+     */
+    public int getStopIndex(int node) {
+        return node <= this.vehiclesNumber ? 0 : node - this.vehiclesNumber;
+    }
+
+    /**
+     * @return node of the customer with the given index in the distance matrix of the base problem.
+     */
+    public int getCustomerNode(int stopIndex) {
+        return stopIndex + this.vehiclesNumber;
+    }
+
+    public CandidateLists getCandidateLists(int k) {
+        return this.baseProblem.getCandidateLists(k);
+    }
+
+    public double getDistance(int from, int to) {
+        return this.matrix.getDistance(getStopIndex(from), getStopIndex(to));
     }
 
     public int getTimeDistance(int from, int to) {
-        return (int) Math.round(Math.ceil(this.distances[from][to]));
+        return this.matrix.getTimeDistance(getStopIndex(from), getStopIndex(to));
     }
 
     public static AntColonyProblem buildProblem(VRProblem baseProblem, int vehiclesNumber) {
-        return new AntColonyProblem(vehiclesNumber, baseProblem.vehicleCapacity, baseProblem.depot, baseProblem.customers);
+        return new AntColonyProblem(baseProblem, vehiclesNumber);
     }
 
 }
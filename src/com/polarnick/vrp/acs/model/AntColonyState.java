@@ -1,16 +1,69 @@
 package com.polarnick.vrp.acs.model;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 /**
  * @author Polyarnyi Nickolay, PolarNick239
  */
 public class AntColonyState {
 
+    /**
+     * How the local updates of the ants running concurrently reach the pheromone matrix.
+     */
+    public enum PheromoneUpdate {
+        /**
+         * Plain writes straight from the ants, concurrent updates of the same edge may be lost.
+         */
+        UNSYNCHRONIZED,
+        /**
+         * Each ant records its local updates and they are applied at the end of the generation in the order
+         * of the ants, so the result does not depend on the scheduling. Ants see the matrix of the previous generation.
+         */
+        BUFFERED,
+        /**
+         * Lock-free compare-and-set updates straight from the ants, the classic concurrent ACS semantics.
+         */
+        ATOMIC,
+    }
+
+    private static final VarHandle PHEROMONE = MethodHandles.arrayElementVarHandle(double[].class);
+
     public final AntColonyProblem problem;
     public final double[][] pheromone;
+    public final PheromoneUpdate pheromoneUpdate;
 
     public AntColonyState(AntColonyProblem problem) {
+        this(problem, PheromoneUpdate.UNSYNCHRONIZED);
+    }
+
+    public AntColonyState(AntColonyProblem problem, PheromoneUpdate pheromoneUpdate) {
         this.problem = problem;
         this.pheromone = new double[problem.n][problem.n];
+        this.pheromoneUpdate = pheromoneUpdate;
+    }
+
+    public double getPheromone(int from, int to) {
+        if (this.pheromoneUpdate == PheromoneUpdate.ATOMIC) {
+            return (double) PHEROMONE.getOpaque(this.pheromone[from], to);
+        } else {
+            return this.pheromone[from][to];
+        }
+    }
+
+    /**
+     * Sets the pheromone of the edge to {@code (1 - fading) * pheromone + increment}.
+     */
+    public void updatePheromone(int from, int to, double fading, double increment) {
+        double[] row = this.pheromone[from];
+        if (this.pheromoneUpdate == PheromoneUpdate.ATOMIC) {
+            double oldValue;
+            do {
+                oldValue = (double) PHEROMONE.getVolatile(row, to);
+            } while (!PHEROMONE.weakCompareAndSet(row, to, oldValue, (1 - fading) * oldValue + increment));
+        } else {
+            row[to] = (1 - fading) * row[to] + increment;
+        }
     }
 
 }
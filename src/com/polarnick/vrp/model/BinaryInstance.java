@@ -0,0 +1,220 @@
+package com.polarnick.vrp.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Precompiled instance file, loaded by memory mapping instead of parsing and computing.
+ * Layout (little-endian, sections aligned to 8 bytes):
+ * <ul>
+ *     <li>header of {@link #HEADER_BYTES} bytes: magic, version, number of stops, vehicle capacity, flags,
+ *     candidate lists size and the offsets of the candidate lists and of the matrix (0 if absent);</li>
+ *     <li>stops (the depot first): {@code double} x and y, {@code int} demand, from, to and delay arrays,
+ *     {@code int} offsets of the names ({@code stopsNumber + 1} of them) and the UTF-8 names;</li>
+ *     <li>optional candidate lists (see {@link CandidateLists}): {@code int} lengths of the lists and the lists one after another;</li>
+ *     <li>optional travel time matrix in the {@link MappedTimeMatrix} layout, the distances are computed from
+ *     the coordinates of the stops, so they are the same as of the instance the file is written from.</li>
+ * </ul>
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class BinaryInstance {
+
+    public static final int MAGIC = 0x56525049;
+    public static final int VERSION = 2;
+    public static final int HEADER_BYTES = 40;
+
+    private static final int WITH_CANDIDATE_LISTS = 1;
+    private static final int WITH_MATRIX = 2;
+
+    /**
+     * @param candidateListSize size of the candidate lists to precompute, 0 for none.
+     * @param withMatrix whether to precompute the travel time matrix, it takes 4 bytes per pair of stops.
+     */
+    public static void write(Path path, VRProblem problem, int candidateListSize, boolean withMatrix) throws IOException {
+        Stop[] stops = DistanceMatrix.toStops(problem.depot, problem.customers);
+        int stopsNumber = stops.length;
+        byte[][] names = new byte[stopsNumber][];
+        int namesBytes = 0;
+        for (int i = 0; i < stopsNumber; i++) {
+            names[i] = stops[i].name.getBytes(StandardCharsets.UTF_8);
+            namesBytes += names[i].length;
+        }
+
+        long stopsBytes = align((long) stopsNumber * (2 * Double.BYTES + 4 * Integer.BYTES) + (stopsNumber + 1L) * Integer.BYTES + namesBytes);
+        CandidateLists candidateLists = candidateListSize > 0 ? problem.getCandidateLists(candidateListSize) : null;
+        long candidateListsBytes = 0;
+        if (candidateLists != null) {
+            candidateListsBytes = (long) stopsNumber * Integer.BYTES;
+            for (int i = 0; i < stopsNumber; i++) {
+                candidateListsBytes += (long) candidateLists.get(i).length * Integer.BYTES;
+            }
+            candidateListsBytes = align(candidateListsBytes);
+        }
+        if (HEADER_BYTES + stopsBytes + candidateListsBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many stops for a binary instance: " + stopsNumber);
+        }
+        long candidateListsOffset = candidateLists != null ? HEADER_BYTES + stopsBytes : 0;
+        long matrixOffset = withMatrix ? HEADER_BYTES + stopsBytes + candidateListsBytes : 0;
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) (HEADER_BYTES + stopsBytes + candidateListsBytes)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(stopsNumber).putInt(problem.vehicleCapacity)
+                .putInt((candidateLists != null ? WITH_CANDIDATE_LISTS : 0) | (withMatrix ? WITH_MATRIX : 0))
+                .putInt(candidateListSize).putLong(candidateListsOffset).putLong(matrixOffset);
+        for (Stop stop: stops) {
+            buffer.putDouble(stop.x);
+        }
+        for (Stop stop: stops) {
+            buffer.putDouble(stop.y);
+        }
+        for (Stop stop: stops) {
+            buffer.putInt(stop.demand);
+        }
+        for (Stop stop: stops) {
+            buffer.putInt(stop.fromT);
+        }
+        for (Stop stop: stops) {
+            buffer.putInt(stop.toT);
+        }
+        for (Stop stop: stops) {
+            buffer.putInt(stop.delayT);
+        }
+        int nameOffset = 0;
+        for (int i = 0; i <= stopsNumber; i++) {
+            buffer.putInt(nameOffset);
+            nameOffset += i < stopsNumber ? names[i].length : 0;
+        }
+        for (byte[] name: names) {
+            buffer.put(name);
+        }
+        if (candidateLists != null) {
+            buffer.position((int) candidateListsOffset);
+            for (int i = 0; i < stopsNumber; i++) {
+                buffer.putInt(candidateLists.get(i).length);
+            }
+            for (int i = 0; i < stopsNumber; i++) {
+                for (int customer: candidateLists.get(i)) {
+                    buffer.putInt(customer);
+                }
+            }
+        }
+        buffer.position(0);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, buffer.position());
+            }
+            if (withMatrix) {
+                MappedTimeMatrix.write(channel, matrixOffset, stops);
+            }
+        }
+    }
+
+    /**
+     * Maps the instance file, the problem gets the precomputed candidate lists and distance matrix if the file has them.
+     */
+    public static VRProblem read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a binary instance: " + path);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a binary instance: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary instance version: " + version);
+            }
+            int stopsNumber = header.getInt();
+            int vehicleCapacity = header.getInt();
+            int flags = header.getInt();
+            int candidateListSize = header.getInt();
+            long candidateListsOffset = header.getLong();
+            long matrixOffset = header.getLong();
+
+            long end = (flags & WITH_MATRIX) != 0 ? matrixOffset : channel.size();
+            long stopsBytes = (long) stopsNumber * (2 * Double.BYTES + 4 * Integer.BYTES) + (stopsNumber + 1L) * Integer.BYTES;
+            if (stopsNumber <= 0 || end < HEADER_BYTES || end > channel.size() || stopsBytes > end - HEADER_BYTES) {
+                throw new IOException("Corrupted binary instance, " + stopsNumber + " stops in " + channel.size() + " bytes: " + path);
+            }
+            if ((flags & WITH_CANDIDATE_LISTS) != 0
+                    && (candidateListsOffset < HEADER_BYTES + stopsBytes || candidateListsOffset + stopsNumber * (long) Integer.BYTES > end)) {
+                throw new IOException("Corrupted binary instance, candidate lists at " + candidateListsOffset + ": " + path);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, end - HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            double[] x = new double[stopsNumber];
+            double[] y = new double[stopsNumber];
+            int[] demand = new int[stopsNumber];
+            int[] fromT = new int[stopsNumber];
+            int[] toT = new int[stopsNumber];
+            int[] delayT = new int[stopsNumber];
+            int[] nameOffsets = new int[stopsNumber + 1];
+            buffer.asDoubleBuffer().get(x);
+            buffer.position(buffer.position() + stopsNumber * Double.BYTES);
+            buffer.asDoubleBuffer().get(y);
+            buffer.position(buffer.position() + stopsNumber * Double.BYTES);
+            for (int[] array: new int[][]{demand, fromT, toT, delayT, nameOffsets}) {
+                buffer.asIntBuffer().get(array);
+                buffer.position(buffer.position() + array.length * Integer.BYTES);
+            }
+            if (nameOffsets[0] != 0 || nameOffsets[stopsNumber] < 0 || nameOffsets[stopsNumber] > buffer.remaining()) {
+                throw new IOException("Corrupted binary instance, names of " + nameOffsets[stopsNumber] + " bytes: " + path);
+            }
+            byte[] names = new byte[nameOffsets[stopsNumber]];
+            buffer.get(names);
+
+            Stop depot = null;
+            Stop[] customers = new Stop[stopsNumber - 1];
+            for (int i = 0; i < stopsNumber; i++) {
+                String name = new String(names, nameOffsets[i], nameOffsets[i + 1] - nameOffsets[i], StandardCharsets.UTF_8);
+                Stop stop = new Stop(name, x[i], y[i], demand[i], fromT[i], toT[i], delayT[i]);
+                if (i == 0) {
+                    depot = stop;
+                } else {
+                    customers[i - 1] = stop;
+                }
+            }
+            VRProblem problem = new VRProblem(depot, customers, vehicleCapacity);
+
+            if ((flags & WITH_CANDIDATE_LISTS) != 0) {
+                buffer.position((int) (candidateListsOffset - HEADER_BYTES));
+                int[] lengths = new int[stopsNumber];
+                buffer.asIntBuffer().get(lengths);
+                buffer.position(buffer.position() + stopsNumber * Integer.BYTES);
+                long listsBytes = 0;
+                for (int length: lengths) {
+                    if (length < 0 || length > stopsNumber) {
+                        throw new IOException("Corrupted binary instance, candidate list of " + length + " stops: " + path);
+                    }
+                    listsBytes += (long) length * Integer.BYTES;
+                }
+                if (listsBytes > buffer.remaining()) {
+                    throw new IOException("Corrupted binary instance, candidate lists do not fit: " + path);
+                }
+                int[][] lists = new int[stopsNumber][];
+                for (int i = 0; i < stopsNumber; i++) {
+                    lists[i] = new int[lengths[i]];
+                    buffer.asIntBuffer().get(lists[i]);
+                    buffer.position(buffer.position() + lengths[i] * Integer.BYTES);
+                }
+                problem.setCandidateLists(new CandidateLists(candidateListSize, lists));
+            }
+            if ((flags & WITH_MATRIX) != 0) {
+                problem.setDistanceMatrix(MappedTimeMatrix.map(channel, matrixOffset, x, y));
+            }
+            return problem;
+        }
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.polarnick.vrp.model;
+
+import java.util.Arrays;
+
+/**
+ * For every stop (indexed as in {@link DistanceMatrix}) keeps up to {@code k} nearest customers.
+ * Customers are ranked with the time-aware distance the ants use, evaluated at the earliest time an ant can
+ * move on from the stop (see {@link TimeWindowIndex#getEarliestTime}): {@code (deliveryTime - departure) * (to.toT - departure)}.
+ * Customers that can not be served in time even after the earliest departure are never listed.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class CandidateLists {
+
+    public final int k;
+    private final int[][] lists;
+
+    CandidateLists(int k, int[][] lists) {
+        this.k = k;
+        this.lists = lists;
+    }
+
+    public static CandidateLists build(VRProblem problem, int k) {
+        DistanceMatrix matrix = problem.getDistanceMatrix();
+        Stop[] stops = DistanceMatrix.toStops(problem.depot, problem.customers);
+        int[][] lists = new int[stops.length][];
+        long[] keys = new long[problem.customersNumber];
+        for (int from = 0; from < stops.length; from++) {
+            int departure = TimeWindowIndex.getEarliestTime(stops[from]);
+            int keysNumber = 0;
+            for (int to = 1; to < stops.length; to++) {
+                if (to == from) {
+                    continue;
+                }
+                int arrival = departure + matrix.getTimeDistance(from, to);
+                if (arrival > stops[to].toT) {
+                    continue;
+                }
+                long distance = (long) (Math.max(arrival, stops[to].fromT) - departure) * (stops[to].toT - departure);
+                keys[keysNumber] = (Math.min(distance, Integer.MAX_VALUE) << 32) | to;
+                keysNumber += 1;
+            }
+            Arrays.sort(keys, 0, keysNumber);
+            int[] list = new int[Math.min(k, keysNumber)];
+            for (int i = 0; i < list.length; i++) {
+                list[i] = (int) keys[i];
+            }
+            lists[from] = list;
+        }
+        return new CandidateLists(k, lists);
+    }
+
+    /**
+     * @return indices of the nearest customers of the stop, the nearest first.
+     */
+    public int[] get(int stopIndex) {
+        return this.lists[stopIndex];
+    }
+
+}
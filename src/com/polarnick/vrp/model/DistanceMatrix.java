@@ -0,0 +1,73 @@
+package com.polarnick.vrp.model;
+
+/**
+ * Distances and travel times between the stops of a {@link VRProblem}.
+ * Index 0 is the depot, index {@code i + 1} is the customer {@code customers[i]}.
+ * A matrix is immutable and can be shared by any number of colonies.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public abstract class DistanceMatrix {
+
+    public enum Backend {
+        /**
+         * On-heap {@code double} distances, exact. The default one.
+         */
+        DOUBLE,
+        /**
+         * On-heap {@code float} distances, half of the memory of {@link #DOUBLE} for distances.
+         */
+        FLOAT,
+        /**
+         * Off-heap {@code float} distances with long indexing, usable beyond 46k stops.
+         */
+        OFF_HEAP,
+    }
+
+    public final int size;
+
+    protected DistanceMatrix(int size) {
+        this.size = size;
+    }
+
+    public abstract double getDistance(int from, int to);
+
+    public abstract int getTimeDistance(int from, int to);
+
+    public static DistanceMatrix build(Stop depot, Stop[] customers) {
+        return build(depot, customers, Backend.DOUBLE);
+    }
+
+    public static DistanceMatrix build(Stop depot, Stop[] customers, Backend backend) {
+        Stop[] stops = toStops(depot, customers);
+        switch (backend) {
+            case DOUBLE:
+                return new DoubleDistanceMatrix(stops);
+            case FLOAT:
+                return new FloatDistanceMatrix(stops);
+            case OFF_HEAP:
+                return new OffHeapDistanceMatrix(stops);
+            default:
+                throw new IllegalArgumentException("Unsupported backend: " + backend);
+        }
+    }
+
+    public static int toTimeDistance(double distance) {
+        return (int) Math.round(Math.ceil(distance));
+    }
+
+    protected static Stop[] toStops(Stop depot, Stop[] customers) {
+        Stop[] stops = new Stop[customers.length + 1];
+        stops[0] = depot;
+        System.arraycopy(customers, 0, stops, 1, customers.length);
+        return stops;
+    }
+
+    /**
+     * Index of the entry in a flat row-major matrix, it does not fit into {@code int} for more than 46340 stops.
+     */
+    protected static long flatIndex(int size, int from, int to) {
+        return (long) from * size + to;
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.polarnick.vrp.model;
+
+/**
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class DoubleDistanceMatrix extends DistanceMatrix {
+
+    private final double[][] distances;
+    private final int[][] timeDistances;
+
+    DoubleDistanceMatrix(Stop[] stops) {
+        super(stops.length);
+        this.distances = new double[size][size];
+        this.timeDistances = new int[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                double distance = stops[i].calcDistanceTo(stops[j]);
+                int timeDistance = toTimeDistance(distance);
+                this.distances[i][j] = distance;
+                this.distances[j][i] = distance;
+                this.timeDistances[i][j] = timeDistance;
+                this.timeDistances[j][i] = timeDistance;
+            }
+        }
+    }
+
+    @Override
+    public double getDistance(int from, int to) {
+        return this.distances[from][to];
+    }
+
+    @Override
+    public int getTimeDistance(int from, int to) {
+        return this.timeDistances[from][to];
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.polarnick.vrp.model;
+
+/**
+ * Travel times are computed from the exact distances before they are narrowed to {@code float},
+ * so they are identical to the ones of {@link DoubleDistanceMatrix}.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class FloatDistanceMatrix extends DistanceMatrix {
+
+    private final float[][] distances;
+    private final int[][] timeDistances;
+
+    FloatDistanceMatrix(Stop[] stops) {
+        super(stops.length);
+        this.distances = new float[size][size];
+        this.timeDistances = new int[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                double distance = stops[i].calcDistanceTo(stops[j]);
+                int timeDistance = toTimeDistance(distance);
+                this.distances[i][j] = (float) distance;
+                this.distances[j][i] = (float) distance;
+                this.timeDistances[i][j] = timeDistance;
+                this.timeDistances[j][i] = timeDistance;
+            }
+        }
+    }
+
+    @Override
+    public double getDistance(int from, int to) {
+        return this.distances[from][to];
+    }
+
+    @Override
+    public int getTimeDistance(int from, int to) {
+        return this.timeDistances[from][to];
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.polarnick.vrp.model;
+
+import java.util.Arrays;
+
+/**
+ * Order in which the insertion procedure tries customers: by demand in descending order, customers with equal demand
+ * in the order of their indices. Stops are indexed as in {@link DistanceMatrix}, customers with zero demand
+ * are never inserted and are left out.
+ * <p>
+ * The customers are also split into about square root of their number buckets by the ends of their time windows,
+ * so an insertion gap that closes early or opens late can skip whole buckets.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class InsertionIndex {
+
+    private final int[] customersByDemand;
+    private final int[] bucketByDemand;
+    private final int[] bucketMinFromT;
+    private final int[] bucketMaxToT;
+
+    private InsertionIndex(int[] customersByDemand, int[] bucketByDemand, int[] bucketMinFromT, int[] bucketMaxToT) {
+        this.customersByDemand = customersByDemand;
+        this.bucketByDemand = bucketByDemand;
+        this.bucketMinFromT = bucketMinFromT;
+        this.bucketMaxToT = bucketMaxToT;
+    }
+
+    public static InsertionIndex build(VRProblem problem) {
+        Stop[] stops = DistanceMatrix.toStops(problem.depot, problem.customers);
+        int maxDemand = 0;
+        int customersNumber = 0;
+        for (int i = 1; i < stops.length; i++) {
+            if (!stops[i].isDepot()) {
+                maxDemand = Math.max(maxDemand, stops[i].demand);
+                customersNumber += 1;
+            }
+        }
+
+        long[] keys = new long[customersNumber];
+        int keysNumber = 0;
+        for (int i = 1; i < stops.length; i++) {
+            if (!stops[i].isDepot()) {
+                keys[keysNumber++] = ((long) (maxDemand - stops[i].demand) << 32) | i;
+            }
+        }
+        Arrays.sort(keys);
+        int[] customersByDemand = new int[customersNumber];
+        for (int k = 0; k < customersNumber; k++) {
+            customersByDemand[k] = (int) keys[k];
+        }
+
+        for (int k = 0; k < customersNumber; k++) {
+            keys[k] = ((long) stops[customersByDemand[k]].toT << 32) | k;
+        }
+        Arrays.sort(keys);
+        int bucketsNumber = Math.max(1, (int) Math.ceil(Math.sqrt(customersNumber)));
+        int[] bucketByDemand = new int[customersNumber];
+        int[] bucketMinFromT = new int[bucketsNumber];
+        int[] bucketMaxToT = new int[bucketsNumber];
+        Arrays.fill(bucketMinFromT, Integer.MAX_VALUE);
+        Arrays.fill(bucketMaxToT, Integer.MIN_VALUE);
+        for (int k = 0; k < customersNumber; k++) {
+            int position = (int) keys[k];
+            int bucket = (int) ((long) k * bucketsNumber / customersNumber);
+            Stop customer = stops[customersByDemand[position]];
+            bucketByDemand[position] = bucket;
+            bucketMinFromT[bucket] = Math.min(bucketMinFromT[bucket], customer.fromT);
+            bucketMaxToT[bucket] = Math.max(bucketMaxToT[bucket], customer.toT);
+        }
+        return new InsertionIndex(customersByDemand, bucketByDemand, bucketMinFromT, bucketMaxToT);
+    }
+
+    public int getCustomersNumber() {
+        return this.customersByDemand.length;
+    }
+
+    /**
+     * @param position position of the customer in the insertion order.
+     */
+    public int getCustomerByDemand(int position) {
+        return this.customersByDemand[position];
+    }
+
+    public int getBucketByDemand(int position) {
+        return this.bucketByDemand[position];
+    }
+
+    public int getBucketsNumber() {
+        return this.bucketMinFromT.length;
+    }
+
+    /**
+     * @return minimal beginning of the time windows of the customers in the bucket.
+     */
+    public int getBucketMinFromT(int bucket) {
+        return this.bucketMinFromT[bucket];
+    }
+
+    /**
+     * @return maximal end of the time windows of the customers in the bucket.
+     */
+    public int getBucketMaxToT(int bucket) {
+        return this.bucketMaxToT[bucket];
+    }
+
+}
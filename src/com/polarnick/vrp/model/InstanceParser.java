@@ -0,0 +1,321 @@
+package com.polarnick.vrp.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Parser of the instance files. Reads the bytes of a (memory-mapped) buffer token by token straight into primitive arrays
+ * of the stop fields, the stops are created once at the end. Two formats are accepted:
+ * <ul>
+ *     <li>{@link Format#LINES}: a {@code capacity <capacity>} line and a {@code <x> <y> <demand> <from> <to> <delay> <name>}
+ *     line per stop, the depot is the stop with zero demand;</li>
+ *     <li>{@link Format#SOLOMON}: the text format of the Solomon and Gehring-Homberger instances, the name of the instance,
+ *     the {@code VEHICLE} section with the number and the capacity of the vehicles and the {@code CUSTOMER} section
+ *     with a {@code <number> <x> <y> <demand> <ready time> <due date> <service time>} line per stop, the first one is the depot.</li>
+ * </ul>
+ * The format is detected by the first token. Coordinates may be fractional, the other fields are integers.
+ * A parser keeps the statistics of the last input, so it should not be shared between threads.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class InstanceParser {
+
+    public enum Format {
+        LINES,
+        SOLOMON,
+    }
+
+    private static final String CAPACITY_TOKEN = "capacity";
+
+    private ByteBuffer input;
+    private int position;
+    private byte[] token;
+    private int tokenLength;
+
+    private int stopsNumber;
+    private double[] x;
+    private double[] y;
+    private int[] demand;
+    private int[] fromT;
+    private int[] toT;
+    private int[] delayT;
+    private String[] names;
+
+    private Format lastFormat;
+    private long lastBytes;
+    private long lastNanos;
+
+    public InstanceParser() {
+        this.token = new byte[64];
+    }
+
+    public VRProblem parseFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Instance file is too large: " + path + " (" + size + " bytes)");
+            }
+            return this.parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), -1);
+        }
+    }
+
+    public VRProblem parse(String input, int countLimit) {
+        return this.parse(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)), countLimit);
+    }
+
+    /**
+     * @param countLimit maximal number of the stops to read (including the depot), -1 for all of them.
+     */
+    public VRProblem parse(ByteBuffer input, int countLimit) {
+        long start = System.nanoTime();
+        this.input = input;
+        this.position = input.position();
+        int capacityEstimate = Math.max(16, input.remaining() / 32);
+        this.stopsNumber = 0;
+        this.x = new double[capacityEstimate];
+        this.y = new double[capacityEstimate];
+        this.demand = new int[capacityEstimate];
+        this.fromT = new int[capacityEstimate];
+        this.toT = new int[capacityEstimate];
+        this.delayT = new int[capacityEstimate];
+        this.names = new String[capacityEstimate];
+
+        int vehicleCapacity;
+        if (!this.nextToken()) {
+            throw new IllegalArgumentException("Instance is empty!");
+        }
+        if (this.isNumber() || this.tokenEquals(CAPACITY_TOKEN)) {
+            this.lastFormat = Format.LINES;
+            vehicleCapacity = this.parseLines(countLimit);
+        } else {
+            this.lastFormat = Format.SOLOMON;
+            vehicleCapacity = this.parseSolomon(countLimit);
+        }
+
+        Stop[] stops = new Stop[this.stopsNumber];
+        for (int i = 0; i < this.stopsNumber; i++) {
+            stops[i] = new Stop(this.names[i], this.x[i], this.y[i], this.demand[i], this.fromT[i], this.toT[i], this.delayT[i]);
+        }
+        this.lastBytes = input.remaining();
+        this.lastNanos = System.nanoTime() - start;
+        this.input = null;
+        this.x = this.y = null;
+        this.demand = this.fromT = this.toT = this.delayT = null;
+        this.names = null;
+        return new VRProblem(stops, vehicleCapacity);
+    }
+
+    public Format getLastFormat() {
+        return this.lastFormat;
+    }
+
+    public long getLastBytes() {
+        return this.lastBytes;
+    }
+
+    public long getLastNanos() {
+        return this.lastNanos;
+    }
+
+    /**
+     * @return parse throughput of the last input in bytes per second.
+     */
+    public double getLastBytesPerSecond() {
+        return this.lastBytes * 1e9 / Math.max(1, this.lastNanos);
+    }
+
+    /**
+     * Expects the current token to be the first one.
+     */
+    private int parseLines(int countLimit) {
+        int vehicleCapacity = -1;
+        boolean hasToken = true;
+        while (hasToken) {
+            if (this.tokenEquals(CAPACITY_TOKEN)) {
+                this.expectToken();
+                vehicleCapacity = this.parseInt();
+            } else {
+                double x = this.parseDouble();
+                this.expectToken();
+                double y = this.parseDouble();
+                this.expectToken();
+                int demand = this.parseInt();
+                this.expectToken();
+                int fromT = this.parseInt();
+                this.expectToken();
+                int toT = this.parseInt();
+                this.expectToken();
+                int delayT = this.parseInt();
+                this.expectToken();
+                if (countLimit == -1 || this.stopsNumber < countLimit) {
+                    this.addStop(this.tokenToString(), x, y, demand, fromT, toT, delayT);
+                }
+            }
+            hasToken = this.nextToken();
+        }
+        if (vehicleCapacity == -1) {
+            throw new IllegalArgumentException("Vehicle capacity is not specified!");
+        }
+        return vehicleCapacity;
+    }
+
+    /**
+     * Expects the current token to be the name of the instance.
+     */
+    private int parseSolomon(int countLimit) {
+        this.skipTo("VEHICLE");
+        this.skipToNumber();
+        this.parseInt();
+        this.expectToken();
+        int vehicleCapacity = this.parseInt();
+        this.skipTo("CUSTOMER");
+        this.skipToNumber();
+        boolean hasToken = true;
+        while (hasToken) {
+            int number = this.parseInt();
+            this.expectToken();
+            double x = this.parseDouble();
+            this.expectToken();
+            double y = this.parseDouble();
+            this.expectToken();
+            int demand = this.parseInt();
+            this.expectToken();
+            int fromT = this.parseInt();
+            this.expectToken();
+            int toT = this.parseInt();
+            this.expectToken();
+            int delayT = this.parseInt();
+            if (countLimit == -1 || this.stopsNumber < countLimit) {
+                String name = this.stopsNumber == 0 ? "Depot" : Integer.toString(number);
+                this.addStop(name, x, y, demand, fromT, toT, delayT);
+            }
+            hasToken = this.nextToken();
+        }
+        return vehicleCapacity;
+    }
+
+    private void addStop(String name, double x, double y, int demand, int fromT, int toT, int delayT) {
+        if (this.stopsNumber == this.names.length) {
+            int capacity = 2 * this.stopsNumber;
+            this.x = Arrays.copyOf(this.x, capacity);
+            this.y = Arrays.copyOf(this.y, capacity);
+            this.demand = Arrays.copyOf(this.demand, capacity);
+            this.fromT = Arrays.copyOf(this.fromT, capacity);
+            this.toT = Arrays.copyOf(this.toT, capacity);
+            this.delayT = Arrays.copyOf(this.delayT, capacity);
+            this.names = Arrays.copyOf(this.names, capacity);
+        }
+        int i = this.stopsNumber;
+        this.names[i] = name;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.demand[i] = demand;
+        this.fromT[i] = fromT;
+        this.toT[i] = toT;
+        this.delayT[i] = delayT;
+        this.stopsNumber += 1;
+    }
+
+    /**
+     * Reads the next whitespace separated token into {@link #token}.
+     *
+     * @return false if the input is over.
+     */
+    private boolean nextToken() {
+        ByteBuffer input = this.input;
+        int position = this.position;
+        int limit = input.limit();
+        while (position < limit && (input.get(position) & 0xFF) <= ' ') {
+            position += 1;
+        }
+        int length = 0;
+        while (position < limit) {
+            byte b = input.get(position);
+            if ((b & 0xFF) <= ' ') {
+                break;
+            }
+            if (length == this.token.length) {
+                this.token = Arrays.copyOf(this.token, 2 * length);
+            }
+            this.token[length++] = b;
+            position += 1;
+        }
+        this.position = position;
+        this.tokenLength = length;
+        return length > 0;
+    }
+
+    private void expectToken() {
+        if (!this.nextToken()) {
+            throw new IllegalArgumentException("Unexpected end of the instance at byte " + this.position + "!");
+        }
+    }
+
+    private void skipTo(String expected) {
+        while (!this.tokenEquals(expected)) {
+            this.expectToken();
+        }
+    }
+
+    private void skipToNumber() {
+        do {
+            this.expectToken();
+        } while (!this.isNumber());
+    }
+
+    private boolean tokenEquals(String expected) {
+        if (this.tokenLength != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < this.tokenLength; i++) {
+            if (this.token[i] != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isNumber() {
+        int i = this.tokenLength > 0 && this.token[0] == '-' ? 1 : 0;
+        return i < this.tokenLength && this.token[i] >= '0' && this.token[i] <= '9';
+    }
+
+    private int parseInt() {
+        boolean negative = this.tokenLength > 0 && this.token[0] == '-';
+        int i = negative ? 1 : 0;
+        if (i == this.tokenLength || this.tokenLength - i > 9) {
+            return Integer.parseInt(this.tokenToString());
+        }
+        int value = 0;
+        for (; i < this.tokenLength; i++) {
+            int digit = this.token[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Integer expected at byte " + this.position + ": " + this.tokenToString());
+            }
+            value = 10 * value + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Integers are parsed in place, other numbers with {@link Double#parseDouble}, so the values are always exact.
+     */
+    private double parseDouble() {
+        for (int i = 0; i < this.tokenLength; i++) {
+            if (this.token[i] < '0' && this.token[i] != '-' || this.token[i] > '9') {
+                return Double.parseDouble(this.tokenToString());
+            }
+        }
+        return this.parseInt();
+    }
+
+    private String tokenToString() {
+        return new String(this.token, 0, this.tokenLength, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.polarnick.vrp.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Sequence of {@link ByteBuffer} chunks addressed with a {@code long} offset.
+ * Chunk size is a multiple of 4, so an aligned {@code int} or {@code float} never straddles two chunks.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+class LargeBuffer {
+
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = (int) (CHUNK_SIZE - 1);
+
+    private final ByteBuffer[] chunks;
+
+    private LargeBuffer(ByteBuffer[] chunks) {
+        this.chunks = chunks;
+    }
+
+    static LargeBuffer allocateDirect(long bytes) {
+        ByteBuffer[] chunks = new ByteBuffer[chunksNumber(bytes)];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = ByteBuffer.allocateDirect(chunkLength(bytes, i)).order(ByteOrder.nativeOrder());
+        }
+        return new LargeBuffer(chunks);
+    }
+
+    static LargeBuffer map(FileChannel channel, FileChannel.MapMode mode, long position, long bytes) throws IOException {
+        ByteBuffer[] chunks = new ByteBuffer[chunksNumber(bytes)];
+        for (int i = 0; i < chunks.length; i++) {
+            MappedByteBuffer chunk = channel.map(mode, position + i * CHUNK_SIZE, chunkLength(bytes, i));
+            chunks[i] = chunk.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new LargeBuffer(chunks);
+    }
+
+    private static int chunksNumber(long bytes) {
+        return (int) Math.max(1, (bytes + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+    }
+
+    private static int chunkLength(long bytes, int chunk) {
+        return (int) Math.min(CHUNK_SIZE, bytes - chunk * CHUNK_SIZE);
+    }
+
+    float getFloat(long offset) {
+        return chunks[(int) (offset >>> CHUNK_SHIFT)].getFloat((int) offset & CHUNK_MASK);
+    }
+
+    int getInt(long offset) {
+        return chunks[(int) (offset >>> CHUNK_SHIFT)].getInt((int) offset & CHUNK_MASK);
+    }
+
+    void putFloat(long offset, float value) {
+        chunks[(int) (offset >>> CHUNK_SHIFT)].putFloat((int) offset & CHUNK_MASK, value);
+    }
+
+    void putInt(long offset, int value) {
+        chunks[(int) (offset >>> CHUNK_SHIFT)].putInt((int) offset & CHUNK_MASK, value);
+    }
+
+    void force() {
+        for (ByteBuffer chunk: chunks) {
+            if (chunk instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) chunk).force();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.polarnick.vrp.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Matrix stored in a memory-mapped file, so it can be precomputed once and shared by several solver processes.
+ * Layout (little-endian): header of {@link #HEADER_BYTES} bytes (magic, version, size, reserved),
+ * then {@code float} distances, then {@code int} travel times, both row-major.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class MappedDistanceMatrix extends DistanceMatrix {
+
+    public static final int MAGIC = 0x5652504D;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+
+    private final LargeBuffer buffer;
+    private final long timesOffset;
+
+    private MappedDistanceMatrix(int size, LargeBuffer buffer) {
+        super(size);
+        this.buffer = buffer;
+        this.timesOffset = (long) size * size * Float.BYTES;
+    }
+
+    /**
+     * @return number of bytes the matrix of the given size occupies in a file, including the header.
+     */
+    public static long getBytesNumber(int size) {
+        return HEADER_BYTES + (long) size * size * (Float.BYTES + Integer.BYTES);
+    }
+
+    public static void write(Path path, VRProblem problem) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            write(channel, 0, problem);
+        }
+    }
+
+    /**
+     * Writes the matrix of the problem to the channel starting at the given position.
+     */
+    public static void write(FileChannel channel, long position, VRProblem problem) throws IOException {
+        Stop[] stops = toStops(problem.depot, problem.customers);
+        int size = stops.length;
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(0);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header, position + header.position());
+        }
+
+        long bodyBytes = getBytesNumber(size) - HEADER_BYTES;
+        LargeBuffer body = LargeBuffer.map(channel, FileChannel.MapMode.READ_WRITE, position + HEADER_BYTES, bodyBytes);
+        OffHeapDistanceMatrix.fill(body, 0, (long) size * size * Float.BYTES, stops);
+        body.force();
+    }
+
+    public static MappedDistanceMatrix open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return map(channel, 0);
+        }
+    }
+
+    /**
+     * Maps the matrix written at the given position of the channel, the mapping stays valid after the channel is closed.
+     */
+    public static MappedDistanceMatrix map(FileChannel channel, long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, position + header.position()) < 0) {
+                throw new IOException("Unexpected end of the distance matrix header!");
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a distance matrix!");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported distance matrix version: " + version);
+        }
+        int size = header.getInt();
+        if (size <= 0 || (long) size * size > (channel.size() - position - HEADER_BYTES) / (Float.BYTES + Integer.BYTES)) {
+            throw new IOException("Distance matrix of " + size + " stops does not fit into " + channel.size() + " bytes!");
+        }
+
+        long bodyBytes = getBytesNumber(size) - HEADER_BYTES;
+        LargeBuffer body = LargeBuffer.map(channel, FileChannel.MapMode.READ_ONLY, position + HEADER_BYTES, bodyBytes);
+        return new MappedDistanceMatrix(size, body);
+    }
+
+    @Override
+    public double getDistance(int from, int to) {
+        return this.buffer.getFloat(flatIndex(size, from, to) * Float.BYTES);
+    }
+
+    @Override
+    public int getTimeDistance(int from, int to) {
+        return this.buffer.getInt(this.timesOffset + flatIndex(size, from, to) * Integer.BYTES);
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.polarnick.vrp.model;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Travel times stored in a memory-mapped file ({@code int}, row-major, little-endian), while the distances are
+ * computed from the coordinates of the stops. So the distances are exactly the ones of the {@code DOUBLE} backend
+ * and the file takes 4 bytes per pair of stops.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class MappedTimeMatrix extends DistanceMatrix {
+
+    private final double[] x;
+    private final double[] y;
+    private final LargeBuffer times;
+
+    private MappedTimeMatrix(double[] x, double[] y, LargeBuffer times) {
+        super(x.length);
+        this.x = x;
+        this.y = y;
+        this.times = times;
+    }
+
+    /**
+     * @return number of bytes the times of the given number of stops occupy in a file.
+     */
+    public static long getBytesNumber(int size) {
+        return (long) size * size * Integer.BYTES;
+    }
+
+    /**
+     * Writes the travel times between the stops to the channel starting at the given position.
+     */
+    static void write(FileChannel channel, long position, Stop[] stops) throws IOException {
+        int size = stops.length;
+        LargeBuffer body = LargeBuffer.map(channel, FileChannel.MapMode.READ_WRITE, position, getBytesNumber(size));
+        for (int i = 0; i < size; i++) {
+            body.putInt(flatIndex(size, i, i) * Integer.BYTES, 0);
+            for (int j = i + 1; j < size; j++) {
+                int timeDistance = toTimeDistance(stops[i].calcDistanceTo(stops[j]));
+                body.putInt(flatIndex(size, i, j) * Integer.BYTES, timeDistance);
+                body.putInt(flatIndex(size, j, i) * Integer.BYTES, timeDistance);
+            }
+        }
+        body.force();
+    }
+
+    /**
+     * Maps the times of the stops with the given coordinates written at the given position of the channel,
+     * the mapping stays valid after the channel is closed.
+     */
+    static MappedTimeMatrix map(FileChannel channel, long position, double[] x, double[] y) throws IOException {
+        int size = x.length;
+        if (position < 0 || getBytesNumber(size) > channel.size() - position) {
+            throw new IOException("Travel times of " + size + " stops at " + position + " do not fit into " + channel.size() + " bytes!");
+        }
+        LargeBuffer times = LargeBuffer.map(channel, FileChannel.MapMode.READ_ONLY, position, getBytesNumber(size));
+        return new MappedTimeMatrix(x, y, times);
+    }
+
+    @Override
+    public double getDistance(int from, int to) {
+        double dx = this.x[from] - this.x[to];
+        double dy = this.y[from] - this.y[to];
+        return Math.sqrt(dx*dx + dy*dy);
+    }
+
+    @Override
+    public int getTimeDistance(int from, int to) {
+        return this.times.getInt(flatIndex(size, from, to) * Integer.BYTES);
+    }
+
+}
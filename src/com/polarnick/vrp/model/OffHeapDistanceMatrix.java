@@ -0,0 +1,48 @@
+package com.polarnick.vrp.model;
+
+/**
+ * Matrix outside of the Java heap: {@code float} distances followed by {@code int} travel times,
+ * both addressed with {@code long} offsets.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class OffHeapDistanceMatrix extends DistanceMatrix {
+
+    private final LargeBuffer buffer;
+    private final long timesOffset;
+
+    OffHeapDistanceMatrix(Stop[] stops) {
+        super(stops.length);
+        long entries = (long) size * size;
+        this.timesOffset = entries * Float.BYTES;
+        this.buffer = LargeBuffer.allocateDirect(entries * (Float.BYTES + Integer.BYTES));
+        fill(this.buffer, 0, this.timesOffset, stops);
+    }
+
+    static void fill(LargeBuffer buffer, long distancesOffset, long timesOffset, Stop[] stops) {
+        int size = stops.length;
+        for (int i = 0; i < size; i++) {
+            buffer.putFloat(distancesOffset + flatIndex(size, i, i) * Float.BYTES, 0.0f);
+            buffer.putInt(timesOffset + flatIndex(size, i, i) * Integer.BYTES, 0);
+            for (int j = i + 1; j < size; j++) {
+                double distance = stops[i].calcDistanceTo(stops[j]);
+                int timeDistance = toTimeDistance(distance);
+                buffer.putFloat(distancesOffset + flatIndex(size, i, j) * Float.BYTES, (float) distance);
+                buffer.putFloat(distancesOffset + flatIndex(size, j, i) * Float.BYTES, (float) distance);
+                buffer.putInt(timesOffset + flatIndex(size, i, j) * Integer.BYTES, timeDistance);
+                buffer.putInt(timesOffset + flatIndex(size, j, i) * Integer.BYTES, timeDistance);
+            }
+        }
+    }
+
+    @Override
+    public double getDistance(int from, int to) {
+        return this.buffer.getFloat(flatIndex(size, from, to) * Float.BYTES);
+    }
+
+    @Override
+    public int getTimeDistance(int from, int to) {
+        return this.buffer.getInt(this.timesOffset + flatIndex(size, from, to) * Integer.BYTES);
+    }
+
+}
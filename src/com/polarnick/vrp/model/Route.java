@@ -2,28 +2,63 @@ package com.polarnick.vrp.model;
 
 import com.polarnick.vrp.acs.model.AntColonyProblem;
 
-import java.util.Iterator;
-import java.util.List;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 
 /**
+ * Tours of the vehicles separated by the depots.
+ * <p>
+ * Besides the residual, a route can evaluate small moves (insertion, removal or exchange of customers) without
+ * building the resulting route, see {@link Delta}. The aggregates of the tours it needs (travel cost, load, earliest
+ * and latest starts of the service) are computed on the first such call.
+ *
  * @author Polyarnyi Nickolay, PolarNick239
  */
 public class Route implements Iterable<Integer> {
 
+    /**
+     * Change made by a move. Cost is the travel part of the residual: distances of the arcs leaving the customers
+     * and their service times, the time window part of the residual is not included. Feasibility is that of the tours
+     * after the move: time windows with waiting allowed and the service time spent at each stop, and vehicle capacity.
+     */
+    public static class Delta {
+
+        public final double cost;
+        public final boolean feasible;
+
+        public Delta(double cost, boolean feasible) {
+            this.cost = cost;
+            this.feasible = feasible;
+        }
+
+        @Override
+        public String toString() {
+            return "Delta{cost=" + cost + " feasible=" + feasible + "}";
+        }
+    }
+
     public final AntColonyProblem problem;
-    private final List<Integer> nodes;
+    private final int[] nodes;
+    private final int[] depotPositions;
     private final double residual;
     private final int vehiclesNumber;
     private final int customersNumber;
     private final boolean feasible;
+    private volatile Tours tours;
 
-    public Route(AntColonyProblem problem, List<Integer> nodes) {
+    /**
+     * The route takes ownership of {@code nodes}, it must not be modified afterwards.
+     */
+    public Route(AntColonyProblem problem, int[] nodes) {
         this.problem = problem;
         this.nodes = nodes;
+        this.depotPositions = this.calculateDepotPositions();
         this.residual = this.calculateResidual();
-        this.vehiclesNumber = this.calculateVehiclesNumber();
-        this.customersNumber = this.calculateCustomersNumber();
-        this.feasible = this.calculateIsFeasible();
+        this.vehiclesNumber = this.depotPositions.length - 1;
+        this.customersNumber = nodes.length - this.depotPositions.length;
+        this.feasible = this.customersNumber == problem.customersNumber;
+        this.tours = null;
     }
 
     public double getResidual() {
@@ -38,42 +73,87 @@ public class Route implements Iterable<Integer> {
         return customersNumber;
     }
 
+    /**
+     * @return whether all the customers are served, the time windows of each tour are checked by {@link #isTourFeasible}.
+     */
     public boolean isFeasible() {
         return feasible;
     }
 
+    public int size() {
+        return nodes.length;
+    }
+
+    public int getNode(int position) {
+        return nodes[position];
+    }
+
+    /**
+     * @return position of the depot the tour of the given vehicle starts from.
+     */
+    public int getTourStart(int vehicle) {
+        return depotPositions[vehicle];
+    }
+
+    /**
+     * @return position of the depot the tour of the given vehicle finishes at.
+     */
+    public int getTourEnd(int vehicle) {
+        return depotPositions[vehicle + 1];
+    }
+
+    public int[] toArray() {
+        return nodes.clone();
+    }
+
+    private int[] calculateDepotPositions() {
+        int[] positions = new int[Math.min(nodes.length, problem.vehiclesNumber + 1)];
+        int depotsNumber = 0;
+        for (int position = 0; position < nodes.length; position++) {
+            if (problem.isDepot[nodes[position]]) {
+                if (depotsNumber == positions.length) {
+                    positions = Arrays.copyOf(positions, 2 * positions.length);
+                }
+                positions[depotsNumber] = position;
+                depotsNumber += 1;
+            }
+        }
+        return depotsNumber == positions.length ? positions : Arrays.copyOf(positions, depotsNumber);
+    }
+
     private double calculateResidual() {
-        int curI = nodes.get(nodes.size() - 1);
+        int curI = nodes[nodes.length - 1];
 
-        int fromT = problem.stops[curI].fromT;
-        int toT = problem.stops[curI].toT;
+        int fromT = problem.fromT[curI];
+        int toT = problem.toT[curI];
         int load = problem.vehicleCapacity;
         double residual = 0.0;
 
-        for (int i = nodes.size() - 2; i >= 0; i--) {
-            int prevI = nodes.get(i);
-            Stop prev = this.problem.stops[prevI];
+        for (int i = nodes.length - 2; i >= 0; i--) {
+            int prevI = nodes[i];
             int distance = this.problem.getTimeDistance(prevI, curI);
             fromT -= distance;
             toT -= distance;
-            fromT -= prev.delayT;
-            toT -= prev.delayT;
-            toT = Math.min(prev.toT, toT);
-            fromT = Math.max(prev.fromT, fromT);
-            assert prev.fromT <= toT;
+            fromT -= problem.delayT[prevI];
+            toT -= problem.delayT[prevI];
+            toT = Math.min(problem.toT[prevI], toT);
+            fromT = Math.max(problem.fromT[prevI], fromT);
+            // no assertion that the node opens before its latest start (problem.fromT[prevI] <= toT): the ants do not
+            // account for the service times of the customers, so their tours may be late. Such a tour is reported by
+            // isTourFeasible and the moves around its late part are rejected by the evaluations
 
-            load -= prev.demand;
+            load -= problem.demand[prevI];
             assert load >= 0;
 
-            if (!prev.isDepot()) {
-                residual += this.problem.distances[prevI][curI] + prev.delayT;
+            if (!problem.isDepot[prevI]) {
+                residual += this.problem.getDistance(prevI, curI) + problem.delayT[prevI];
                 if (fromT > toT) {
                     residual += toT - fromT;
                     fromT = toT;
                 }
             } else {
-                fromT = prev.fromT;
-                toT = prev.toT;
+                fromT = problem.fromT[prevI];
+                toT = problem.toT[prevI];
                 load = problem.vehicleCapacity;
             }
 
@@ -83,33 +163,317 @@ public class Route implements Iterable<Integer> {
         return residual;
     }
 
-    private int calculateVehiclesNumber() {
-        int depotsNumber = 0;
-        for (int i: nodes) {
-            if (problem.stops[i].isDepot()) {
-                depotsNumber += 1;
-            }
+    /**
+     * @return travel part of the residual in the tour of the vehicle, see {@link Delta}.
+     */
+    public double getTourCost(int vehicle) {
+        return this.getTours().cost[vehicle];
+    }
+
+    public int getTourLoad(int vehicle) {
+        return this.getTours().load[vehicle];
+    }
+
+    /**
+     * @return whether the tour of the vehicle satisfies the time windows and the capacity, see {@link Delta}.
+     */
+    public boolean isTourFeasible(int vehicle) {
+        return this.getTours().feasible[vehicle];
+    }
+
+    /**
+     * @return earliest start of the service at the node at the given position, the vehicle leaves its depot
+     * as soon as it opens.
+     */
+    public int getEarliestStart(int position) {
+        return this.getTours().earliestStart[position];
+    }
+
+    /**
+     * @return latest start of the service at the node at the given position that still allows to finish the tour in time.
+     */
+    public int getLatestStart(int position) {
+        return this.getTours().latestStart[position];
+    }
+
+    /**
+     * @return vehicle whose tour goes through the arc from the node at the given position to the next one.
+     */
+    public int getVehicle(int position) {
+        return this.getTours().vehicle[position];
+    }
+
+    /**
+     * Evaluates the insertion of the customer between the nodes at positions {@code position - 1} and {@code position}.
+     * All the evaluations take O(1) unless stated otherwise.
+     */
+    public Delta evaluateInsertion(int customer, int position) {
+        return this.getInsertionPoint(position).evaluate(customer);
+    }
+
+    /**
+     * @return gap between the nodes at positions {@code position - 1} and {@code position} to evaluate insertions into.
+     */
+    public InsertionPoint getInsertionPoint(int position) {
+        int prev = nodes[position - 1];
+        return new InsertionPoint(position, prev, this.getTours().earliestStart[position - 1] + problem.delayT[prev], 0);
+    }
+
+    /**
+     * @return gap in front of the node at the given position when other customers are inserted into the tour before it:
+     * the vehicle leaves {@code prev} (the last of them or the node at {@code position - 1}) at {@code departure},
+     * carrying {@code addedLoad} more than its tour does.
+     */
+    public InsertionPoint getInsertionPoint(int position, int prev, int departure, int addedLoad) {
+        return new InsertionPoint(position, prev, departure, addedLoad);
+    }
+
+    /**
+     * Evaluates the removal of the customer at the given position.
+     */
+    public Delta evaluateRemoval(int position) {
+        Tours tours = this.getTours();
+        int prev = nodes[position - 1];
+        int customer = nodes[position];
+        int next = nodes[position + 1];
+        double cost = this.getArcCost(prev, next) - this.getArcCost(prev, customer) - this.getArcCost(customer, next);
+
+        int vehicle = tours.vehicle[position];
+        boolean feasible = tours.isFeasibleUntil(position - 1) && tours.isFeasibleFrom(vehicle, position + 1)
+                && tours.load[vehicle] - problem.demand[customer] <= problem.vehicleCapacity
+                && this.getStartAfter(position - 1, next) <= tours.latestStart[position + 1];
+        return new Delta(cost, feasible);
+    }
+
+    /**
+     * Evaluates the exchange of the customers at the given positions. It takes O(1) if they are in different tours,
+     * otherwise the customers between them are looked through.
+     */
+    public Delta evaluateExchange(int position1, int position2) {
+        if (position1 > position2) {
+            return evaluateExchange(position2, position1);
+        }
+        Tours tours = this.getTours();
+        int customer1 = nodes[position1];
+        int customer2 = nodes[position2];
+        int vehicle1 = tours.vehicle[position1];
+        int vehicle2 = tours.vehicle[position2];
+        if (position1 == position2) {
+            return new Delta(0.0, tours.feasible[vehicle1]);
+        }
+        if (vehicle1 != vehicle2) {
+            double cost = this.getReplacementCost(position1, customer2) + this.getReplacementCost(position2, customer1);
+            int demandChange = problem.demand[customer2] - problem.demand[customer1];
+            boolean feasible = tours.isFeasibleUntil(position1 - 1) && tours.isFeasibleUntil(position2 - 1)
+                    && tours.isFeasibleFrom(vehicle1, position1 + 1) && tours.isFeasibleFrom(vehicle2, position2 + 1)
+                    && tours.load[vehicle1] + demandChange <= problem.vehicleCapacity
+                    && tours.load[vehicle2] - demandChange <= problem.vehicleCapacity
+                    && this.canReplace(position1, customer2) && this.canReplace(position2, customer1);
+            return new Delta(cost, feasible);
+        }
+
+        double cost;
+        if (position2 == position1 + 1) {
+            int prev = nodes[position1 - 1];
+            int next = nodes[position2 + 1];
+            cost = this.getArcCost(prev, customer2) + this.getArcCost(customer2, customer1) + this.getArcCost(customer1, next)
+                    - this.getArcCost(prev, customer1) - this.getArcCost(customer1, customer2) - this.getArcCost(customer2, next);
+        } else {
+            cost = this.getReplacementCost(position1, customer2) + this.getReplacementCost(position2, customer1);
+        }
+        if (!tours.isFeasibleUntil(position1 - 1) || !tours.isFeasibleFrom(vehicle1, position2 + 1)
+                || tours.load[vehicle1] > problem.vehicleCapacity) {
+            return new Delta(cost, false);
+        }
+        int node = customer2;
+        int start = this.getStartAfter(position1 - 1, node);
+        for (int position = position1 + 1; position <= position2 + 1 && start <= problem.toT[node]; position++) {
+            int nextNode = position == position2 ? customer1 : nodes[position];
+            start = Math.max(start + problem.delayT[node] + problem.getTimeDistance(node, nextNode), problem.fromT[nextNode]);
+            node = nextNode;
         }
-        return depotsNumber -  1;
+        return new Delta(cost, start <= tours.latestStart[position2 + 1] && start <= problem.toT[node]);
     }
 
-    private int calculateCustomersNumber() {
-        int n = 0;
-        for (int i: nodes) {
-            if (!problem.stops[i].isDepot()) {
-                n += 1;
+    /**
+     * Gap in front of the node at a position of the route, the facts of the tour that do not depend on the customer
+     * to insert are looked up once, so each evaluation takes O(1).
+     */
+    public class InsertionPoint {
+
+        public final int position;
+        private final int prev;
+        private final int next;
+        private final int departure;
+        private final int freeCapacity;
+        private final int latestNextStart;
+        private final boolean feasible;
+
+        private InsertionPoint(int position, int prev, int departure, int addedLoad) {
+            Tours tours = getTours();
+            int vehicle = tours.vehicle[position - 1];
+            this.position = position;
+            this.prev = prev;
+            this.next = nodes[position];
+            this.departure = departure;
+            this.freeCapacity = problem.vehicleCapacity - tours.load[vehicle] - addedLoad;
+            this.latestNextStart = tours.latestStart[position];
+            // the inserted customers only delay the rest of the tour, so a late start of the tour stays late
+            this.feasible = tours.isFeasibleUntil(position - 1) && tours.isFeasibleFrom(vehicle, position);
+        }
+
+        public boolean canInsert(int customer) {
+            if (!this.feasible || problem.demand[customer] > this.freeCapacity) {
+                return false;
             }
+            int start = Math.max(this.departure + problem.getTimeDistance(this.prev, customer), problem.fromT[customer]);
+            return start <= problem.toT[customer]
+                    && start + problem.delayT[customer] + problem.getTimeDistance(customer, this.next) <= this.latestNextStart;
+        }
+
+        public Delta evaluate(int customer) {
+            double cost = getArcCost(this.prev, customer) + getArcCost(customer, this.next) - getArcCost(this.prev, this.next);
+            return new Delta(cost, this.canInsert(customer));
+        }
+    }
+
+    /**
+     * @return earliest start of the service at {@code node} if it goes right after the node at the given position.
+     */
+    private int getStartAfter(int position, int node) {
+        int prev = nodes[position];
+        int departure = this.getTours().earliestStart[position] + problem.delayT[prev];
+        return Math.max(departure + problem.getTimeDistance(prev, node), problem.fromT[node]);
+    }
+
+    private double getReplacementCost(int position, int customer) {
+        int prev = nodes[position - 1];
+        int old = nodes[position];
+        int next = nodes[position + 1];
+        return this.getArcCost(prev, customer) + this.getArcCost(customer, next) - this.getArcCost(prev, old) - this.getArcCost(old, next);
+    }
+
+    private boolean canReplace(int position, int customer) {
+        int start = this.getStartAfter(position - 1, customer);
+        return start <= problem.toT[customer]
+                && start + problem.delayT[customer] + problem.getTimeDistance(customer, nodes[position + 1]) <= this.getTours().latestStart[position + 1];
+    }
+
+    private double getArcCost(int from, int to) {
+        return problem.isDepot[from] ? 0.0 : problem.getDistance(from, to) + problem.delayT[from];
+    }
+
+    private Tours getTours() {
+        Tours tours = this.tours;
+        if (tours == null) {
+            tours = new Tours();
+            this.tours = tours;
         }
-        return n;
+        return tours;
     }
 
-    private boolean calculateIsFeasible() {
-        return this.calculateCustomersNumber() == problem.customersNumber;
+    /**
+     * Aggregates of the tours, computed at most a few times if several threads ask for them at once.
+     */
+    private class Tours {
+
+        private final int[] vehicle;
+        private final int[] earliestStart;
+        private final int[] latestStart;
+        private final int[] load;
+        private final double[] cost;
+        private final boolean[] feasible;
+        private final int[] firstLate;
+        private final int[] lastEarly;
+
+        private Tours() {
+            int vehiclesNumber = Math.max(0, depotPositions.length - 1);
+            this.vehicle = new int[nodes.length];
+            this.earliestStart = new int[nodes.length];
+            this.latestStart = new int[nodes.length];
+            this.load = new int[vehiclesNumber];
+            this.cost = new double[vehiclesNumber];
+            this.feasible = new boolean[vehiclesNumber];
+            this.firstLate = new int[vehiclesNumber];
+            this.lastEarly = new int[vehiclesNumber];
+
+            for (int v = 0; v < vehiclesNumber; v++) {
+                int start = depotPositions[v];
+                int end = depotPositions[v + 1];
+                this.firstLate[v] = Integer.MAX_VALUE;
+                this.earliestStart[start] = problem.fromT[nodes[start]];
+                for (int position = start; position < end; position++) {
+                    int from = nodes[position];
+                    int to = nodes[position + 1];
+                    this.vehicle[position] = v;
+                    this.cost[v] += getArcCost(from, to);
+                    this.earliestStart[position + 1] = Math.max(this.earliestStart[position] + problem.delayT[from]
+                            + problem.getTimeDistance(from, to), problem.fromT[to]);
+                    if (this.earliestStart[position + 1] > problem.toT[to] && this.firstLate[v] == Integer.MAX_VALUE) {
+                        this.firstLate[v] = position + 1;
+                    }
+                    if (!problem.isDepot[to]) {
+                        this.load[v] += problem.demand[to];
+                    }
+                }
+                this.feasible[v] = this.firstLate[v] == Integer.MAX_VALUE && this.load[v] <= problem.vehicleCapacity;
+
+                this.latestStart[end] = problem.toT[nodes[end]];
+                this.lastEarly[v] = problem.fromT[nodes[end]] > this.latestStart[end] ? end : Integer.MIN_VALUE;
+                for (int position = end - 1; position > start; position--) {
+                    int node = nodes[position];
+                    this.latestStart[position] = Math.min(problem.toT[node], this.latestStart[position + 1]
+                            - problem.getTimeDistance(node, nodes[position + 1]) - problem.delayT[node]);
+                    if (problem.fromT[node] > this.latestStart[position] && this.lastEarly[v] == Integer.MIN_VALUE) {
+                        this.lastEarly[v] = position;
+                    }
+                }
+                this.latestStart[start] = problem.toT[nodes[start]];
+            }
+            if (depotPositions.length > 0) {
+                int last = depotPositions[depotPositions.length - 1];
+                this.vehicle[last] = vehiclesNumber - 1;
+                if (vehiclesNumber == 0) {
+                    this.earliestStart[last] = problem.fromT[nodes[last]];
+                    this.latestStart[last] = problem.toT[nodes[last]];
+                }
+            }
+        }
+
+        /**
+         * @return whether the service is in time at the nodes of the tour up to the given position.
+         */
+        private boolean isFeasibleUntil(int position) {
+            return this.firstLate[this.vehicle[position]] > position;
+        }
+
+        /**
+         * @return whether the rest of the tour of the vehicle from the given position can be served in time when the vehicle
+         * comes to this position not later than its latest start: no node of it opens after its own latest start.
+         */
+        private boolean isFeasibleFrom(int vehicle, int position) {
+            return this.lastEarly[vehicle] < position;
+        }
     }
 
     @Override
-    public Iterator<Integer> iterator() {
-        return this.nodes.iterator();
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < nodes.length;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next >= nodes.length) {
+                    throw new NoSuchElementException();
+                }
+                return nodes[next++];
+            }
+        };
     }
 
     public String toString() {
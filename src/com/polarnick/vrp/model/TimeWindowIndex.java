@@ -0,0 +1,171 @@
+package com.polarnick.vrp.model;
+
+import java.util.Arrays;
+
+/**
+ * Static time window facts of a {@link VRProblem}, stops are indexed as in {@link DistanceMatrix}:
+ * <ul>
+ * <li>whether stop {@code to} can follow stop {@code from} at all, i.e. when moving on from {@code from}
+ * as early as possible (see {@link #getEarliestTime});</li>
+ * <li>the latest delivery time at each customer that still allows to return to the depot in time;</li>
+ * <li>customers that can be served at all, sorted by the end of their time windows.</li>
+ * </ul>
+ * Up to {@link #DENSE_MAX_SIZE} stops the first one is a bitset of all the pairs of stops, for larger problems
+ * it is checked on each call from the earliest departures, the ends of the time windows and the travel times,
+ * so the index stays linear in the number of stops.
+ *
+ * @author Polyarnyi Nickolay, PolarNick239
+ */
+public class TimeWindowIndex {
+
+    /**
+     * Maximal number of stops with the pairs that can follow each other in a bitset, it takes 8 MB at most.
+     */
+    public static final int DENSE_MAX_SIZE = 8192;
+
+    private final DistanceMatrix matrix;
+    private final int[] earliestTime;
+    private final int[] toT;
+    private final long[][] canFollow;
+    private final int[] latestDelivery;
+    private final int[] customersByToT;
+    private final int[] toTByToT;
+    private final int[] positionByToT;
+
+    private TimeWindowIndex(DistanceMatrix matrix, int[] earliestTime, int[] toT, long[][] canFollow,
+                            int[] latestDelivery, int[] customersByToT, int[] toTByToT, int[] positionByToT) {
+        this.matrix = matrix;
+        this.earliestTime = earliestTime;
+        this.toT = toT;
+        this.canFollow = canFollow;
+        this.latestDelivery = latestDelivery;
+        this.customersByToT = customersByToT;
+        this.toTByToT = toTByToT;
+        this.positionByToT = positionByToT;
+    }
+
+    public static TimeWindowIndex build(VRProblem problem) {
+        return build(problem, DENSE_MAX_SIZE);
+    }
+
+    static TimeWindowIndex build(VRProblem problem, int denseMaxSize) {
+        DistanceMatrix matrix = problem.getDistanceMatrix();
+        Stop[] stops = DistanceMatrix.toStops(problem.depot, problem.customers);
+        Stop depot = problem.depot;
+        int size = stops.length;
+
+        int[] earliestTime = new int[size];
+        int[] toT = new int[size];
+        for (int i = 0; i < size; i++) {
+            earliestTime[i] = getEarliestTime(stops[i]);
+            toT[i] = stops[i].toT;
+        }
+        long[][] canFollow = null;
+        if (size <= denseMaxSize) {
+            canFollow = new long[size][(size + 63) >>> 6];
+            for (int from = 0; from < size; from++) {
+                for (int to = 0; to < size; to++) {
+                    if (earliestTime[from] + matrix.getTimeDistance(from, to) <= toT[to]) {
+                        canFollow[from][to >>> 6] |= 1L << to;
+                    }
+                }
+            }
+        }
+
+        int[] latestDelivery = new int[size];
+        latestDelivery[0] = depot.toT - depot.delayT;
+        for (int i = 1; i < size; i++) {
+            double returnDistance = matrix.getDistance(i, 0);
+            int t = (int) Math.floor(depot.toT - stops[i].delayT - returnDistance);
+            while (t + stops[i].delayT + returnDistance > depot.toT) {
+                t -= 1;
+            }
+            while (t + 1 + stops[i].delayT + returnDistance <= depot.toT) {
+                t += 1;
+            }
+            latestDelivery[i] = t;
+        }
+
+        int depotDeparture = getEarliestTime(depot);
+        long[] keys = new long[problem.customersNumber];
+        int keysNumber = 0;
+        for (int i = 1; i < size; i++) {
+            int arrival = depotDeparture + matrix.getTimeDistance(0, i);
+            if (arrival > stops[i].toT || Math.max(arrival, stops[i].fromT) > latestDelivery[i]) {
+                continue;
+            }
+            keys[keysNumber] = ((long) stops[i].toT << 32) | i;
+            keysNumber += 1;
+        }
+        Arrays.sort(keys, 0, keysNumber);
+        int[] customersByToT = new int[keysNumber];
+        int[] toTByToT = new int[keysNumber];
+        int[] positionByToT = new int[size];
+        Arrays.fill(positionByToT, -1);
+        for (int k = 0; k < keysNumber; k++) {
+            customersByToT[k] = (int) keys[k];
+            toTByToT[k] = stops[customersByToT[k]].toT;
+            positionByToT[customersByToT[k]] = k;
+        }
+        return new TimeWindowIndex(matrix, earliestTime, toT, canFollow, latestDelivery, customersByToT, toTByToT, positionByToT);
+    }
+
+    /**
+     * @return the earliest time an ant can move on from the stop. Ants account for the service time only at the depot,
+     * so for a customer it is the start of its time window.
+     */
+    public static int getEarliestTime(Stop stop) {
+        return stop.isDepot() ? stop.fromT + stop.delayT : stop.fromT;
+    }
+
+    /**
+     * @return false if {@code to} can not be served after {@code from} even when moving on from {@code from} as early as possible.
+     */
+    public boolean canFollow(int from, int to) {
+        if (this.canFollow == null) {
+            return this.earliestTime[from] + this.matrix.getTimeDistance(from, to) <= this.toT[to];
+        }
+        return (this.canFollow[from][to >>> 6] & (1L << to)) != 0;
+    }
+
+    /**
+     * @return true if the pairs of stops that can follow each other are kept in a bitset (see {@link #DENSE_MAX_SIZE}).
+     */
+    public boolean isDense() {
+        return this.canFollow != null;
+    }
+
+    /**
+     * @return the latest delivery time at the stop that allows to return to the depot in time,
+     * for the depot itself the latest return that leaves time for its service.
+     */
+    public int getLatestDelivery(int stopIndex) {
+        return this.latestDelivery[stopIndex];
+    }
+
+    /**
+     * @return number of customers that can be served directly from the depot, the others can not be served at all.
+     */
+    public int getReachableCustomersNumber() {
+        return this.customersByToT.length;
+    }
+
+    /**
+     * @return the reachable customer with the given position in the order of the ends of the time windows.
+     */
+    public int getCustomerByToT(int position) {
+        return this.customersByToT[position];
+    }
+
+    public int getToTByToT(int position) {
+        return this.toTByToT[position];
+    }
+
+    /**
+     * @return position of the customer in the order of the ends of the time windows, -1 if it is not reachable.
+     */
+    public int getPositionByToT(int stopIndex) {
+        return this.positionByToT[stopIndex];
+    }
+
+}
@@ -2,24 +2,35 @@ package com.polarnick.vrp.model;
 
 import com.polarnick.vrp.utils.Commons;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.Paths;
 import java.util.Collection;
-import java.util.List;
-import java.util.StringTokenizer;
+import java.util.logging.Logger;
 
 /**
  * @author Polyarnyi Nickolay, PolarNick239
  */
 public class VRProblem {
 
+    private static final Logger logger = Logger.getLogger("VRProblem");
+
     public final Stop depot;
     public final Stop[] customers;
     public final int customersNumber;
     public final int vehicleCapacity;
 
+    private volatile DistanceMatrix distanceMatrix;
+    private CandidateLists candidateLists;
+    private TimeWindowIndex timeWindowIndex;
+    private InsertionIndex insertionIndex;
+
+    public VRProblem(Stop depot, Stop[] customers, int vehicleCapacity) {
+        this.depot = depot;
+        this.customers = customers;
+        this.customersNumber = customers.length;
+        this.vehicleCapacity = vehicleCapacity;
+    }
+
     public VRProblem(Stop[] stops, int vehicleCapacity) {
         this.customers = new Stop[stops.length - 1];
         this.customersNumber = stops.length - 1;
@@ -41,64 +52,97 @@ public class VRProblem {
         this.depot = depot;
     }
 
+    /**
+     * @return distance matrix of the problem. Unless one was set with {@link #setDistanceMatrix},
+     * a {@link DistanceMatrix.Backend#DOUBLE} matrix is built on the first call and shared afterwards.
+     */
+    public DistanceMatrix getDistanceMatrix() {
+        DistanceMatrix matrix = this.distanceMatrix;
+        if (matrix == null) {
+            synchronized (this) {
+                matrix = this.distanceMatrix;
+                if (matrix == null) {
+                    matrix = DistanceMatrix.build(this.depot, this.customers);
+                    this.distanceMatrix = matrix;
+                }
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Makes the problem use the given matrix (e.g. a {@link MappedDistanceMatrix} precomputed beforehand).
+     * Should be called before any colony is built for the problem.
+     */
+    public synchronized void setDistanceMatrix(DistanceMatrix matrix) {
+        if (matrix.size != this.customersNumber + 1) {
+            throw new IllegalArgumentException("Matrix of size " + matrix.size + " does not match "
+                    + this.customersNumber + " customers!");
+        }
+        this.distanceMatrix = matrix;
+    }
+
+    public void setDistanceMatrix(DistanceMatrix.Backend backend) {
+        setDistanceMatrix(DistanceMatrix.build(this.depot, this.customers, backend));
+    }
+
+    /**
+     * @return time window index of the problem, built on the first call and shared afterwards.
+     */
+    public synchronized TimeWindowIndex getTimeWindowIndex() {
+        if (this.timeWindowIndex == null) {
+            this.timeWindowIndex = TimeWindowIndex.build(this);
+        }
+        return this.timeWindowIndex;
+    }
+
+    /**
+     * @return order of the customers for the insertion procedure, built on the first call and shared afterwards.
+     */
+    public synchronized InsertionIndex getInsertionIndex() {
+        if (this.insertionIndex == null) {
+            this.insertionIndex = InsertionIndex.build(this);
+        }
+        return this.insertionIndex;
+    }
+
+    /**
+     * @return lists of {@code k} nearest customers, built on the first call and shared afterwards.
+     */
+    public synchronized CandidateLists getCandidateLists(int k) {
+        if (this.candidateLists == null || this.candidateLists.k != k) {
+            this.candidateLists = CandidateLists.build(this, k);
+        }
+        return this.candidateLists;
+    }
+
+    /**
+     * Makes the problem use the given precomputed candidate lists, see {@link BinaryInstance}.
+     */
+    synchronized void setCandidateLists(CandidateLists candidateLists) {
+        this.candidateLists = candidateLists;
+    }
+
     public static VRProblem readFromString(String input) {
         return readFromString(input, -1);
     }
 
+    /**
+     * @param countLimit maximal number of the stops to read (including the depot), -1 for all of them.
+     * @see InstanceParser for the accepted formats.
+     */
     public static VRProblem readFromString(String input, int countLimit) {
-        int vehiclesCapacity = -1;
-        List<Stop> stops = new ArrayList<>();
-
-        StringTokenizer tok = new StringTokenizer(input);
-        while (tok.hasMoreTokens()) {
-            String token = tok.nextToken();
-            if (token.equals("capacity")) {
-                vehiclesCapacity = Integer.parseInt(tok.nextToken());
-            } else {
-                int x = Integer.parseInt(token);
-                int y = Integer.parseInt(tok.nextToken());
-                int demand = Integer.parseInt(tok.nextToken());
-                int from = Integer.parseInt(tok.nextToken());
-                int to = Integer.parseInt(tok.nextToken());
-                int delay = Integer.parseInt(tok.nextToken());
-                String name = tok.nextToken();
-                Stop stop = new Stop(name, x, y, demand, from, to, delay);
-                if (countLimit == -1 || stops.size() < countLimit) {
-                    stops.add(stop);
-                }
-            }
-        }
-        assert vehiclesCapacity != -1;
-        Stop[] stopsA = stops.toArray(new Stop[stops.size()]);
-        return new VRProblem(stopsA, vehiclesCapacity);
+        return new InstanceParser().parse(input, countLimit);
     }
 
+    /**
+     * @see InstanceParser for the accepted formats.
+     */
     public static VRProblem readFromFile(String path) throws IOException {
-        int vehiclesCapacity = -1;
-        List<Stop> stops = new ArrayList<>();
-
-        BufferedReader in = new BufferedReader(new FileReader(path));
-        String s = in.readLine();
-        while (s != null) {
-            StringTokenizer tok = new StringTokenizer(s);
-            String token = tok.nextToken();
-            if (token.equals("capacity")) {
-                vehiclesCapacity = Integer.parseInt(tok.nextToken());
-            } else {
-                int x = Integer.parseInt(token);
-                int y = Integer.parseInt(tok.nextToken());
-                int demand = Integer.parseInt(tok.nextToken());
-                int from = Integer.parseInt(tok.nextToken());
-                int to = Integer.parseInt(tok.nextToken());
-                int delay = Integer.parseInt(tok.nextToken());
-                String name = tok.nextToken();
-                Stop stop = new Stop(name, x, y, demand, from, to, delay);
-                stops.add(stop);
-            }
-            s = in.readLine();
-        }
-        assert vehiclesCapacity != -1;
-        Stop[] stopsA = stops.toArray(new Stop[stops.size()]);
-        return new VRProblem(stopsA, vehiclesCapacity);
+        InstanceParser parser = new InstanceParser();
+        VRProblem problem = parser.parseFile(Paths.get(path));
+        logger.info("Read " + (problem.customersNumber + 1) + " stops from " + path + " in " + parser.getLastNanos() / 1000000
+                + " ms (" + Math.round(parser.getLastBytesPerSecond() / (1 << 20)) + " MB/s)");
+        return problem;
     }
-}
\ No newline at end of file
+}
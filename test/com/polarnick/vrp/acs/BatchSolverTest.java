@@ -0,0 +1,87 @@
+package com.polarnick.vrp.acs;
+
+import com.polarnick.vrp.model.Route;
+import com.polarnick.vrp.model.VRProblem;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+public class BatchSolverTest {
+
+    private static final String INPUT =
+            "capacity 3 " +
+                    //x   y   demand from  to   delay name
+                    "0   0   0      0     28   0     Depot " +
+                    "0   3   1      3     3    1     A1 " +
+                    "2   3   1      6     6    1     A2 " +
+                    "4   3   1      9     9    1     A3 " +
+                    "1   3   1      4     4    1     B1 " +
+                    "3   3   1      7     7    1     B2 ";
+
+    @Test
+    public void testFair() throws Exception {
+        try (BatchSolver batch = new BatchSolver(2, 2, BatchSolver.Policy.FAIR)) {
+            long start = System.nanoTime();
+            List<CompletableFuture<Route>> results = new ArrayList<>();
+            for (int k = 0; k < 4; k++) {
+                results.add(batch.submit(VRProblem.readFromString(INPUT), new SolveOptions(200).withSeed(k)));
+            }
+            assertEquals(batch.getRunningJobsNumber(), 2);
+            assertEquals(batch.getPendingJobsNumber(), 2);
+            for (CompletableFuture<Route> result: results) {
+                assertTrue(result.get(10, TimeUnit.SECONDS).isFeasible());
+            }
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(400));
+            assertEquals(batch.getCompletedJobsNumber(), 4);
+            assertTrue(batch.getJobsPerMinute() > 0);
+        }
+    }
+
+    @Test
+    public void testPriority() throws Exception {
+        try (BatchSolver batch = new BatchSolver(1, 1, BatchSolver.Policy.PRIORITY)) {
+            List<String> finished = Collections.synchronizedList(new ArrayList<>());
+            List<CompletableFuture<Route>> results = new ArrayList<>();
+            String[] names = {"first", "low", "high", "cancelled"};
+            int[] priorities = {0, 0, 10, 5};
+            for (int k = 0; k < names.length; k++) {
+                String name = names[k];
+                CompletableFuture<Route> result = batch.submit(VRProblem.readFromString(INPUT), new SolveOptions(100), priorities[k]);
+                result.whenComplete((Route route, Throwable e) -> finished.add(name));
+                results.add(result);
+            }
+            assertTrue(results.get(3).cancel(false));
+            for (int k = 0; k < 3; k++) {
+                results.get(k).get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(finished, List.of("cancelled", "first", "high", "low"));
+            assertEquals(batch.getCompletedJobsNumber(), 3);
+        }
+    }
+
+    @Test
+    public void testFailedStart() throws Exception {
+        try (BatchSolver batch = new BatchSolver(1, 1, BatchSolver.Policy.FAIR)) {
+            CompletableFuture<Route> failed = batch.submit(null, new SolveOptions(100));
+            CompletableFuture<Route> next = batch.submit(VRProblem.readFromString(INPUT), new SolveOptions(1000));
+            try {
+                failed.get(10, TimeUnit.SECONDS);
+                fail("Solve of a missing problem should fail!");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof NullPointerException);
+            }
+            // the only slot is freed by the failed job, otherwise the next one is never started
+            assertTrue(next.get(10, TimeUnit.SECONDS).isFeasible());
+            assertEquals(batch.getRunningJobsNumber(), 0);
+            assertEquals(batch.getCompletedJobsNumber(), 2);
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.polarnick.vrp.acs;
+
+import com.polarnick.vrp.model.Route;
+import com.polarnick.vrp.model.VRProblem;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+public class ImprovementPublisherTest {
+
+    private static class RecordingSubscriber implements Flow.Subscriber<Improvement> {
+
+        private final long initialRequest;
+        private final List<Improvement> received = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+
+        private RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (this.initialRequest > 0) {
+                subscription.request(this.initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(Improvement item) {
+            this.received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            fail("Unexpected error", throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed.countDown();
+        }
+    }
+
+    private static Route route(VRProblem problem) {
+        return MACSVRPTW.calculateNearestNeighbourhoodHeuristic(problem);
+    }
+
+    @Test
+    public void testLatestWins() {
+        VRProblem problem = VRProblem.readFromString("capacity 10 0 0 0 0 100 0 Depot 1 1 1 0 100 0 A 2 2 1 0 100 0 B");
+        Route route = route(problem);
+        ImprovementPublisher publisher = new ImprovementPublisher(Runnable::run, 2);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+        for (int k = 0; k < 5; k++) {
+            publisher.submit(new Improvement(route, k, false));
+        }
+        assertTrue(subscriber.received.isEmpty());
+
+        subscriber.subscription.request(10);
+        assertEquals(subscriber.received.size(), 2);
+        assertEquals(subscriber.received.get(0).elapsedNanos, 3);
+        assertEquals(subscriber.received.get(1).elapsedNanos, 4);
+
+        publisher.submit(new Improvement(route, 5, false));
+        publisher.close();
+        assertEquals(subscriber.received.size(), 3);
+        assertEquals(subscriber.completed.getCount(), 0);
+        assertEquals(publisher.getSubscribersNumber(), 0);
+    }
+
+    @Test
+    public void testSolverImprovements() throws Exception {
+        String input =
+                "capacity 3 " +
+                        //x   y   demand from  to   delay name
+                        "0   0   0      0     28   0     Depot " +
+                        "0   3   1      3     3    1     A1 " +
+                        "2   3   1      6     6    1     A2 " +
+                        "4   3   1      9     9    1     A3 " +
+                        "1   3   1      4     4    1     B1 " +
+                        "3   3   1      7     7    1     B2 ";
+        MACSVRPTW solver = new MACSVRPTW(VRProblem.readFromString(input), 239);
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        solver.getImprovements().subscribe(subscriber);
+
+        Thread thread = new Thread(solver);
+        thread.start();
+        Thread.sleep(500);
+        solver.stop();
+        thread.join();
+
+        assertTrue(subscriber.completed.await(10, TimeUnit.SECONDS));
+        assertFalse(subscriber.received.isEmpty());
+        Improvement first = subscriber.received.get(0);
+        assertTrue(first.vehiclesNumberImproved);
+        Improvement last = subscriber.received.get(subscriber.received.size() - 1);
+        assertEquals(last.route, solver.getCurrentBestRoute());
+    }
+
+}
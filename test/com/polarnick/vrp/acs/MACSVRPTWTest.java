@@ -1,6 +1,9 @@
 package com.polarnick.vrp.acs;
 
 import com.polarnick.vrp.acs.colonies.AbstractACS;
+import com.polarnick.vrp.acs.colonies.MinDistanceACS;
+import com.polarnick.vrp.acs.colonies.helpers.Params;
+import com.polarnick.vrp.acs.metrics.SolverMetrics;
 import com.polarnick.vrp.acs.model.AntColonyProblem;
 import com.polarnick.vrp.model.Route;
 import com.polarnick.vrp.model.Stop;
@@ -9,6 +12,9 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.testng.Assert.*;
 
@@ -97,8 +103,117 @@ public class MACSVRPTWTest {
 
         solver.run();
         Route route = solver.getCurrentBestRoute();
-        Assert.assertEquals(route.toString(), "Route{residual=20.242640687119284 vehicles=2 nodes=[Depot, A1, A2, A3, Depot, B1, B2, Depot, ]}");
+        Assert.assertEquals(route.toString(), "Route{residual=18.605551275463988 vehicles=2 nodes=[Depot, A1, A2, Depot, B1, B2, A3, Depot, ]}");
     }
 
-}
+    private static final String SIMPLE_CASE =
+            "capacity 1000 " +
+                    //x   y   demand from  to   delay name
+                    "0   0   0      0     28   0     Depot " +
+                    "0   3   1000   5     5    2     Fat " +
+                    "3   3   2      7     7    2     A " +
+                    "3   0   2      12    12   2     B " +
+                    "0  -4   2      4     4    2     X1 " +
+                    "3  -4   2      9     9    2     X2 " +
+                    "3  -6   2      14    14   2     X3 " +
+                    "0  -6   1      19    19   2     X4";
+
+    @Test
+    public void testSolveWithDeadline() throws Exception {
+        long start = System.nanoTime();
+        CompletableFuture<Route> result = MACSVRPTW.solve(VRProblem.readFromString(SIMPLE_CASE), new SolveOptions(300));
+        Route route = result.get(5, TimeUnit.SECONDS);
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        assertTrue(elapsedMillis >= 300 && elapsedMillis < 5000, "Elapsed: " + elapsedMillis + " ms");
+        assertEquals(route.getVehiclesNumber(), 3);
+        assertTrue(route.isFeasible());
+    }
+
+    @Test
+    public void testSlowDependentDoesNotDelayOtherDeadlines() throws Exception {
+        CountDownLatch otherSolved = new CountDownLatch(1);
+        CompletableFuture<Route> slow = MACSVRPTW.solve(VRProblem.readFromString(SIMPLE_CASE), new SolveOptions(100));
+        CompletableFuture<Void> slowDependent = slow.thenRun(() -> {
+            try {
+                otherSolved.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        slow.get(5, TimeUnit.SECONDS);
 
+        Route route = MACSVRPTW.solve(VRProblem.readFromString(SIMPLE_CASE), new SolveOptions(300)).get(5, TimeUnit.SECONDS);
+        otherSolved.countDown();
+        assertTrue(route.isFeasible());
+        slowDependent.get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Light customers near the depot and heavy ones far from it: the nearest neighbourhood heuristic packs
+     * the light ones in pairs, so the colonies soon find a solution with fewer vehicles.
+     */
+    private static VRProblem generatePackingProblem(int pairsNumber, long seed) {
+        Random random = new Random(seed);
+        Stop depot = new Stop("Depot", 50, 50, 0, 0, 1000, 0);
+        Stop[] customers = new Stop[3 * pairsNumber];
+        for (int i = 0; i < customers.length; i++) {
+            boolean light = i < 2 * pairsNumber;
+            double angle = 2 * Math.PI * random.nextDouble();
+            int radius = light ? 10 : 40;
+            customers[i] = new Stop("C" + i, 50 + (int) (radius * Math.cos(angle)), 50 + (int) (radius * Math.sin(angle)),
+                    light ? 40 : 60, 0, 1000, 0);
+        }
+        return new VRProblem(depot, customers, 100);
+    }
+
+    @Test
+    public void testSlowCallbackDoesNotDelayDeadline() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch solved = new CountDownLatch(1);
+        // the first improvement is the initial solution, the next ones are dispatched by the callbacks thread of the solver
+        SolverMetrics slowMetrics = new SolverMetrics("slow") {
+            @Override
+            public void distanceImproved(Route oldRoute, Route newRoute) {
+                super.distanceImproved(oldRoute, newRoute);
+                if (oldRoute != null) {
+                    blocked.countDown();
+                    try {
+                        solved.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        SolveOptions options = new SolveOptions(2000).withMetrics(slowMetrics);
+        Route route = MACSVRPTW.solve(generatePackingProblem(10, 239), options).get(5, TimeUnit.SECONDS);
+        solved.countDown();
+        assertEquals(blocked.getCount(), 0);
+        assertTrue(route.isFeasible());
+    }
+
+    @Test
+    public void testSolveWithTarget() throws Exception {
+        long start = System.nanoTime();
+        SolveOptions options = new SolveOptions(60 * 1000).withTargetVehiclesNumber(3);
+        Route route = MACSVRPTW.solve(VRProblem.readFromString(SIMPLE_CASE), options).get(10, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+        assertTrue(options.isTargetReached(route));
+    }
+
+    @Test
+    public void testSolveWithIslands() throws Exception {
+        Params params = MACSVRPTW.DEFAULT_PARAMS.withIslands(3, 5, MinDistanceACS.Migration.PHEROMONE_BLEND);
+        Route route = MACSVRPTW.solve(VRProblem.readFromString(SIMPLE_CASE), new SolveOptions(300).withParams(params)).get(5, TimeUnit.SECONDS);
+        assertEquals(route.getVehiclesNumber(), 3);
+        assertTrue(route.isFeasible());
+    }
+
+    @Test
+    public void testSolveCancel() throws Exception {
+        CompletableFuture<Route> result = MACSVRPTW.solve(VRProblem.readFromString(SIMPLE_CASE), new SolveOptions(60 * 1000));
+        assertTrue(result.cancel(true));
+        assertTrue(result.isCancelled());
+    }
+
+}
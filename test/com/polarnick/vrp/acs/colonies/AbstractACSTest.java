@@ -1,5 +1,8 @@
 package com.polarnick.vrp.acs.colonies;
 
+import com.polarnick.vrp.acs.colonies.helpers.AntWorkspace;
+import com.polarnick.vrp.acs.colonies.helpers.MinVehiclesRouteStorage;
+import com.polarnick.vrp.acs.colonies.helpers.Params;
 import com.polarnick.vrp.acs.model.AntColonyProblem;
 import com.polarnick.vrp.model.Stop;
 import com.polarnick.vrp.model.VRProblem;
@@ -11,6 +14,8 @@ import org.testng.annotations.Test;
 import java.lang.reflect.Array;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.testng.Assert.*;
 
@@ -27,20 +32,21 @@ public class AbstractACSTest {
         }
         AntColonyProblem problem = AntColonyProblem.buildProblem(new VRProblem(stops, vehicleCapacity), vehicleNumber);
         boolean[] used = new boolean[problem.n];
-        List<Integer> nodes = new ArrayList<>();
+        int[] nodes = new int[initialRoute.length];
+        int nodesNumber = 0;
         for (String name: initialRoute) {
             boolean found = false;
             for (int i = 0; i < problem.n; i++) {
                 if (!used[i] && problem.stops[i].name.equals(name)) {
                     used[i] = true;
-                    nodes.add(i);
+                    nodes[nodesNumber++] = i;
                     found = true;
                     break;
                 }
             }
             assert found;
         }
-        List<Integer> foundRoute = AbstractACS.insertionProcedure(nodes, problem);
+        int[] foundRoute = AbstractACS.insertionProcedure(nodes, problem);
         List<String> foundNames = new ArrayList<>();
         for (int i: foundRoute) {
             foundNames.add(problem.stops[i].name);
@@ -152,5 +158,128 @@ public class AbstractACSTest {
                 new String[]{"Depot", "A", "Depot", "X3", "X4", "Depot"});
     }
 
+    /**
+     * Straightforward insertion procedure: rescans all the customers left in the order of demand after each insertion.
+     */
+    private static int[] insertionProcedureReference(int[] nodes, AntColonyProblem problem) {
+        Set<Integer> visited = Arrays.stream(nodes).boxed().collect(Collectors.toSet());
+        int[] customersToInsert = IntStream.range(problem.vehiclesNumber + 1, problem.n)
+                .filter(customer -> !visited.contains(customer)).boxed()
+                .sorted(Comparator.comparingInt((Integer customer) -> -problem.demand[customer]).thenComparingInt(customer -> customer))
+                .mapToInt(Integer::intValue).toArray();
+        boolean[] insertedCustomers = new boolean[customersToInsert.length];
+        List<Integer> newNodes = new ArrayList<>();
+        int[] maxT = new int[nodes.length];
+        int[] requiredDemand = new int[nodes.length];
+        maxT[nodes.length - 1] = problem.stops[nodes[nodes.length - 1]].toT;
+        for (int nextI = nodes.length - 1; nextI > 0; nextI--) {
+            Stop prev = problem.stops[nodes[nextI - 1]];
+            if (prev.isDepot()) {
+                maxT[nextI - 1] = prev.toT;
+            } else {
+                maxT[nextI - 1] = Math.min(maxT[nextI] - problem.getTimeDistance(nodes[nextI - 1], nodes[nextI]) - prev.delayT, prev.toT);
+                requiredDemand[nextI - 1] = requiredDemand[nextI] + prev.demand;
+            }
+        }
+        int minTAfterCur = problem.stops[nodes[0]].fromT + problem.stops[nodes[0]].delayT;
+        int curLoad = problem.vehicleCapacity;
+        for (int i = 0; i < nodes.length - 1; i++) {
+            int curI = nodes[i];
+            int nextI = nodes[i + 1];
+            newNodes.add(curI);
+            boolean inserted;
+            do {
+                inserted = false;
+                for (int k = 0; k < customersToInsert.length; k++) {
+                    Stop candidate = problem.stops[customersToInsert[k]];
+                    if (insertedCustomers[k] || curLoad - candidate.demand < requiredDemand[i + 1]) {
+                        continue;
+                    }
+                    int start = Math.max(minTAfterCur + problem.getTimeDistance(curI, customersToInsert[k]), candidate.fromT);
+                    if (start > candidate.toT
+                            || start + candidate.delayT + problem.getTimeDistance(customersToInsert[k], nextI) > maxT[i + 1]) {
+                        continue;
+                    }
+                    inserted = true;
+                    insertedCustomers[k] = true;
+                    newNodes.add(customersToInsert[k]);
+                    curI = customersToInsert[k];
+                    curLoad -= candidate.demand;
+                    minTAfterCur = start + candidate.delayT;
+                    break;
+                }
+            } while (inserted);
+            Stop next = problem.stops[nextI];
+            curLoad -= next.demand;
+            minTAfterCur = Math.max(minTAfterCur + problem.getTimeDistance(curI, nextI), next.fromT) + next.delayT;
+            if (next.isDepot()) {
+                curLoad = problem.vehicleCapacity;
+                minTAfterCur = next.fromT + next.delayT;
+            }
+        }
+        newNodes.add(nodes[nodes.length - 1]);
+        return newNodes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    public void testInsertionProcedureMatchesReference() throws Exception {
+        Random random = new Random(239);
+        int customersNumber = 300;
+        Stop depot = new Stop("Depot", 50, 50, 0, 0, 1500, 0);
+        Stop[] customers = new Stop[customersNumber];
+        for (int i = 0; i < customersNumber; i++) {
+            int fromT = 60 + random.nextInt(1200);
+            customers[i] = new Stop("C" + i, random.nextInt(100), random.nextInt(100), 1 + random.nextInt(10),
+                    fromT, fromT + 20 + random.nextInt(150), 5);
+        }
+        VRProblem problem = new VRProblem(depot, customers, 100);
+        for (int vehiclesNumber: new int[]{3, 10, 30}) {
+            AntColonyProblem acProblem = AntColonyProblem.buildProblem(problem, vehiclesNumber);
+            // tours of the vehicles going straight to the depot and one customer per vehicle in the order of indices
+            int[] nodes = new int[2 * vehiclesNumber + 1];
+            for (int v = 0; v < vehiclesNumber; v++) {
+                nodes[2 * v] = v;
+                nodes[2 * v + 1] = acProblem.getCustomerNode(1 + random.nextInt(customersNumber / vehiclesNumber) + v * (customersNumber / vehiclesNumber));
+            }
+            nodes[2 * vehiclesNumber] = vehiclesNumber;
+            Assert.assertEquals(AbstractACS.insertionProcedure(nodes, acProblem), insertionProcedureReference(nodes, acProblem),
+                    vehiclesNumber + " vehicles");
+        }
+    }
+
+    @Test
+    public void testConstructTourWithDepotServiceTime() throws Exception {
+        Random random = new Random(239);
+        int customersNumber = 60;
+        // the depot takes time to serve a returning vehicle, it should be done before the depot closes
+        Stop depot = new Stop("Depot", 50, 50, 0, 0, 250, 40);
+        Stop[] customers = new Stop[customersNumber];
+        for (int i = 0; i < customersNumber; i++) {
+            int fromT = 40 + random.nextInt(190);
+            customers[i] = new Stop("C" + i, 30 + random.nextInt(40), 30 + random.nextInt(40), 1 + random.nextInt(10),
+                    fromT, fromT + 10 + random.nextInt(60), 5);
+        }
+        AntColonyProblem problem = AntColonyProblem.buildProblem(new VRProblem(depot, customers, 50), 3);
+        // the candidates are chosen uniformly, so the ants do not return to the depot at once
+        Params params = new Params(0.0, 0, 0.1, 1e-3);
+        MinDistanceACS colony = new MinDistanceACS(problem, 1, new MinVehiclesRouteStorage(), 239, params);
+        for (double[] row: colony.state.pheromone) {
+            Arrays.fill(row, 1.0);
+        }
+        AntWorkspace workspace = new AntWorkspace(problem, params);
+        for (int tour = 0; tour < 100; tour++) {
+            int nodesNumber = colony.constructTour(workspace, random);
+            int curTime = problem.fromT[workspace.nodes[0]] + problem.delayT[workspace.nodes[0]];
+            for (int k = 1; k < nodesNumber; k++) {
+                int from = workspace.nodes[k - 1];
+                int to = workspace.nodes[k];
+                curTime = Math.max(curTime + problem.getTimeDistance(from, to), problem.fromT[to]);
+                if (problem.isDepot[to]) {
+                    assertTrue(curTime + problem.delayT[to] <= problem.toT[to], "Late return to the depot at " + curTime);
+                    curTime = problem.fromT[to] + problem.delayT[to];
+                }
+            }
+        }
+    }
 
-}
\ No newline at end of file
+}
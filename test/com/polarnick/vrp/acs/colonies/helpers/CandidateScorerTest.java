@@ -0,0 +1,36 @@
+package com.polarnick.vrp.acs.colonies.helpers;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+public class CandidateScorerTest {
+
+    @Test
+    public void testScoresMatchPow() throws Exception {
+        Random random = new Random(239);
+        int valuesNumber = 100;
+        double[] pheromones = new double[valuesNumber];
+        int[] distances = new int[valuesNumber];
+        for (int k = 0; k < valuesNumber; k++) {
+            pheromones[k] = random.nextDouble();
+            distances[k] = 1 + random.nextInt(1000);
+        }
+        for (double heuristicValueImportance: new double[]{0, 1, 2, 3, 5, 2.5, 0.5, 12}) {
+            CandidateScorer scorer = CandidateScorer.create(heuristicValueImportance);
+            double[] values = pheromones.clone();
+            scorer.score(values, distances, valuesNumber - 1);
+            for (int k = 0; k < valuesNumber - 1; k++) {
+                double expected = pheromones[k] * Math.pow(1.0 / distances[k], heuristicValueImportance);
+                if (heuristicValueImportance == 1) {
+                    Assert.assertEquals(values[k], expected, 0.0);
+                } else {
+                    Assert.assertEquals(values[k], expected, 1e-12 * expected, "Beta " + heuristicValueImportance);
+                }
+            }
+            Assert.assertEquals(values[valuesNumber - 1], pheromones[valuesNumber - 1]);
+        }
+    }
+
+}
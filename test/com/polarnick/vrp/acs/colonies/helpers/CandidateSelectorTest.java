@@ -0,0 +1,51 @@
+package com.polarnick.vrp.acs.colonies.helpers;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+public class CandidateSelectorTest {
+
+    private void testProportional(CandidateSelector.Rule rule, double[] values) {
+        CandidateSelector selector = CandidateSelector.create(rule, values.length);
+        Random random = new Random(239);
+        double valuesSum = 0;
+        for (double value: values) {
+            valuesSum += value;
+        }
+        int samples = 200000;
+        int[] counts = new int[values.length];
+        for (int i = 0; i < samples; i++) {
+            counts[selector.select(values, values.length, valuesSum, random)] += 1;
+        }
+        for (int i = 0; i < values.length; i++) {
+            double expected = valuesSum > 0 ? values[i] / valuesSum : 1.0 / values.length;
+            Assert.assertEquals(counts[i] / (double) samples, expected, 0.005, rule + ": candidate #" + i);
+        }
+    }
+
+    @Test
+    public void testSelectionIsProportional() throws Exception {
+        for (CandidateSelector.Rule rule: new CandidateSelector.Rule[]{
+                CandidateSelector.Rule.CUMULATIVE, CandidateSelector.Rule.GUMBEL, CandidateSelector.Rule.TOP_K}) {
+            testProportional(rule, new double[]{1, 2, 3, 4});
+            testProportional(rule, new double[]{0, 5, 0, 1e-3, 2});
+            testProportional(rule, new double[]{0, 0, 0});
+        }
+    }
+
+    @Test
+    public void testTopK() throws Exception {
+        // proportional among the two largest values
+        CandidateSelector selector = CandidateSelector.create(CandidateSelector.Rule.TOP_K, 5, 2);
+        Random random = new Random(239);
+        int[] counts = new int[5];
+        for (int i = 0; i < 100000; i++) {
+            counts[selector.select(new double[]{3, 1, 4, 1, 5}, 5, 14, random)] += 1;
+        }
+        Assert.assertEquals(counts[0] + counts[1] + counts[3], 0);
+        Assert.assertEquals(counts[2] / 100000.0, 4.0 / 9, 0.005);
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.polarnick.vrp.acs.colonies.helpers;
+
+import com.polarnick.vrp.acs.model.AntColonyProblem;
+import com.polarnick.vrp.model.Stop;
+import com.polarnick.vrp.model.VRProblem;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class LocalSearchTest {
+
+    private static VRProblem generateProblem(int customersNumber, long seed) {
+        Random random = new Random(seed);
+        Stop depot = new Stop("Depot", 50, 50, 0, 0, 2000, 0);
+        Stop[] customers = new Stop[customersNumber];
+        for (int i = 0; i < customersNumber; i++) {
+            int fromT = 100 + random.nextInt(1200);
+            customers[i] = new Stop("C" + i, random.nextInt(100), random.nextInt(100), 1 + random.nextInt(20),
+                    fromT, fromT + 50 + random.nextInt(200), 10);
+        }
+        return new VRProblem(depot, customers, 100);
+    }
+
+    /**
+     * @return total distance of the route, or -1 if some time window or the capacity is violated.
+     */
+    private static double checkRoute(AntColonyProblem problem, int[] nodes) {
+        double distance = 0.0;
+        int time = 0;
+        int load = 0;
+        for (int k = 0; k < nodes.length; k++) {
+            Stop stop = problem.stops[nodes[k]];
+            if (k > 0) {
+                distance += problem.getDistance(nodes[k - 1], nodes[k]);
+                time += problem.getTimeDistance(nodes[k - 1], nodes[k]);
+            }
+            if (stop.isDepot()) {
+                if (k > 0 && time > stop.toT) {
+                    return -1;
+                }
+                time = stop.fromT + stop.delayT;
+                load = 0;
+            } else {
+                time = Math.max(time, stop.fromT);
+                if (time > stop.toT) {
+                    return -1;
+                }
+                time += stop.delayT;
+                load += stop.demand;
+                if (load > problem.vehicleCapacity) {
+                    return -1;
+                }
+            }
+        }
+        return distance;
+    }
+
+    @Test
+    public void testImprovesAndKeepsFeasibility() throws Exception {
+        int customersNumber = 60;
+        AntColonyProblem problem = AntColonyProblem.buildProblem(generateProblem(customersNumber, 239), customersNumber);
+        // each customer is served by its own vehicle
+        int[] nodes = new int[2 * customersNumber + 1];
+        for (int i = 0; i < customersNumber; i++) {
+            nodes[2 * i] = i;
+            nodes[2 * i + 1] = problem.getCustomerNode(i + 1);
+        }
+        nodes[2 * customersNumber] = customersNumber;
+        double initialDistance = checkRoute(problem, nodes);
+        Assert.assertTrue(initialDistance > 0);
+
+        LocalSearch localSearch = new LocalSearch(problem);
+        int[] improved = localSearch.improve(nodes);
+        double improvedDistance = checkRoute(problem, improved);
+        Assert.assertTrue(improvedDistance > 0, "Infeasible route: " + Arrays.toString(improved));
+        Assert.assertTrue(improvedDistance < 0.5 * initialDistance, improvedDistance + " vs " + initialDistance);
+        Assert.assertTrue(localSearch.getMovesEvaluated() > 0);
+
+        int[] sortedNodes = nodes.clone();
+        int[] sortedImproved = improved.clone();
+        Arrays.sort(sortedNodes);
+        Arrays.sort(sortedImproved);
+        Assert.assertEquals(sortedImproved, sortedNodes);
+        Assert.assertEquals(Arrays.stream(improved).filter(i -> problem.stops[i].isDepot()).toArray(),
+                Arrays.stream(nodes).filter(i -> problem.stops[i].isDepot()).toArray());
+        Assert.assertSame(localSearch.improve(improved), improved, "Local optimum should not change");
+    }
+
+}
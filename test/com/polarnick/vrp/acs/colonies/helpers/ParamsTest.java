@@ -0,0 +1,33 @@
+package com.polarnick.vrp.acs.colonies.helpers;
+
+import com.polarnick.vrp.acs.MACSVRPTW;
+import com.polarnick.vrp.acs.colonies.MinDistanceACS;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class ParamsTest {
+
+    @Test
+    public void testIslands() {
+        Params params = MACSVRPTW.DEFAULT_PARAMS.withIslands(3, 5, MinDistanceACS.Migration.PHEROMONE_BLEND);
+        assertEquals(params.islandsNumber, 3);
+        assertEquals(params.migrationInterval, 5);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNoIslands() {
+        MACSVRPTW.DEFAULT_PARAMS.withIslands(0, 5, MinDistanceACS.Migration.ELITE_ROUTE);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testZeroMigrationInterval() {
+        MACSVRPTW.DEFAULT_PARAMS.withIslands(3, 0, MinDistanceACS.Migration.ELITE_ROUTE);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeMigrationInterval() {
+        MACSVRPTW.DEFAULT_PARAMS.withIslands(3, -1, MinDistanceACS.Migration.ELITE_ROUTE);
+    }
+
+}
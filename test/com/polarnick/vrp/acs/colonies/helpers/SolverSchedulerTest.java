@@ -0,0 +1,147 @@
+package com.polarnick.vrp.acs.colonies.helpers;
+
+import com.polarnick.vrp.acs.colonies.MinDistanceACS;
+import com.polarnick.vrp.acs.colonies.MinVehiclesACS;
+import com.polarnick.vrp.acs.model.AntColonyProblem;
+import com.polarnick.vrp.model.Stop;
+import com.polarnick.vrp.model.VRProblem;
+import com.polarnick.vrp.acs.MACSVRPTW;
+import com.polarnick.vrp.model.Route;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SolverSchedulerTest {
+
+    private static VRProblem generateProblem(int customersNumber, long seed) {
+        Random random = new Random(seed);
+        Stop depot = new Stop("Depot", 50, 50, 0, 0, 1000, 0);
+        Stop[] customers = new Stop[customersNumber];
+        for (int i = 0; i < customersNumber; i++) {
+            int fromT = random.nextInt(800);
+            customers[i] = new Stop("C" + i, random.nextInt(100), random.nextInt(100), 1 + random.nextInt(20),
+                    fromT, fromT + 100 + random.nextInt(100), 10);
+        }
+        return new VRProblem(depot, customers, 100);
+    }
+
+    /**
+     * The nearest neighbourhood heuristic pairs the light customers near the depot and leaves a vehicle to each of
+     * the heavy ones, while a heavy and a light customer fit in a vehicle together, so the vehicles number
+     * can be decreased from {@code 2 * pairsNumber} to {@code 1.5 * pairsNumber}.
+     */
+    private static VRProblem generatePackingProblem(int pairsNumber, long seed) {
+        Random random = new Random(seed);
+        Stop depot = new Stop("Depot", 50, 50, 0, 0, 1000, 0);
+        Stop[] customers = new Stop[3 * pairsNumber];
+        for (int i = 0; i < customers.length; i++) {
+            boolean light = i < 2 * pairsNumber;
+            double angle = 2 * Math.PI * random.nextDouble();
+            int radius = light ? 10 : 40;
+            customers[i] = new Stop("C" + i, 50 + (int) (radius * Math.cos(angle)), 50 + (int) (radius * Math.sin(angle)),
+                    light ? 40 : 60, 0, 1000, 0);
+        }
+        return new VRProblem(depot, customers, 100);
+    }
+
+    private void testThreadsAreBounded(SolverScheduler.Mode mode) throws Exception {
+        VRProblem problem = generateProblem(30, 239);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int parallelism = 2;
+        SolverScheduler scheduler = new SolverScheduler(mode, parallelism);
+        int threadsBefore = threads.getThreadCount();
+        int maxThreads = threadsBefore;
+        try {
+            Params params = new Params(0.9, 1, 0.1, 1e-4);
+            Random random = new Random(239);
+            // as if the vehicles number was decreased a hundred times, each time with a fresh pair of colonies
+            for (int iteration = 0; iteration < 100; iteration++) {
+                int vehiclesNumber = 30 - iteration % 20;
+                MinVehiclesRouteStorage storage = new MinVehiclesRouteStorage();
+                MinDistanceACS minDistance = new MinDistanceACS(AntColonyProblem.buildProblem(problem, vehiclesNumber),
+                        10, storage, random.nextLong(), params, scheduler);
+                MinVehiclesACS minVehicles = new MinVehiclesACS(AntColonyProblem.buildProblem(problem, vehiclesNumber - 1),
+                        10, storage, random.nextLong(), params, scheduler);
+                for (int generation = 0; generation < 3; generation++) {
+                    minDistance.runAnts();
+                    minVehicles.runAnts();
+                    maxThreads = Math.max(maxThreads, threads.getThreadCount());
+                }
+            }
+        } finally {
+            scheduler.stop();
+        }
+        Assert.assertTrue(scheduler.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertTrue(maxThreads <= threadsBefore + parallelism + 2,
+                mode + ": " + maxThreads + " threads with " + threadsBefore + " threads before");
+    }
+
+    private void testSolverThreadsAreBounded(SolverScheduler.Mode mode) throws Exception {
+        VRProblem problem = generatePackingProblem(6, 239);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int parallelism = 2;
+        SolverScheduler scheduler = new SolverScheduler(mode, parallelism);
+        MACSVRPTW solver = new MACSVRPTW(problem, 239, scheduler);
+        AtomicInteger vehiclesDecreases = new AtomicInteger(-1); // the first call is the initial solution
+        solver.addVehiclesImprovedCallback((Route oldRoute, Route newRoute) -> vehiclesDecreases.incrementAndGet());
+        int threadsBefore = threads.getThreadCount();
+        threads.resetPeakThreadCount();
+        Thread thread = new Thread(solver);
+        thread.start();
+        try {
+            long deadline = System.currentTimeMillis() + 60 * 1000;
+            while (vehiclesDecreases.get() < 3 && thread.isAlive() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            solver.stop();
+            thread.join();
+            scheduler.stop();
+        }
+        int maxThreads = threads.getPeakThreadCount();
+        Assert.assertTrue(scheduler.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertTrue(vehiclesDecreases.get() >= 3, "Only " + vehiclesDecreases.get() + " vehicles number decreases");
+        // the solver thread, the callbacks dispatcher, a thread per colony and the workers of the scheduler,
+        // with some slack for the common pool that delivers the improvements
+        int colonyThreads = MACSVRPTW.DEFAULT_PARAMS.islandsNumber + 1;
+        Assert.assertTrue(maxThreads <= threadsBefore + 2 + colonyThreads + parallelism + 2,
+                mode + ": " + maxThreads + " threads with " + threadsBefore + " threads before");
+    }
+
+    private static void skipUnlessSupported(SolverScheduler.Mode mode) {
+        SolverScheduler scheduler = new SolverScheduler(mode, 1);
+        scheduler.stop();
+        if (scheduler.mode != mode) {
+            throw new SkipException(mode + " is not supported by this JVM, " + scheduler.mode + " is used instead");
+        }
+    }
+
+    @Test
+    public void testForkJoinThreadsAreBounded() throws Exception {
+        testThreadsAreBounded(SolverScheduler.Mode.FORK_JOIN);
+    }
+
+    @Test
+    public void testVirtualThreadsAreBounded() throws Exception {
+        skipUnlessSupported(SolverScheduler.Mode.VIRTUAL_THREADS);
+        testThreadsAreBounded(SolverScheduler.Mode.VIRTUAL_THREADS);
+    }
+
+    @Test
+    public void testForkJoinSolverThreadsAreBounded() throws Exception {
+        testSolverThreadsAreBounded(SolverScheduler.Mode.FORK_JOIN);
+    }
+
+    @Test
+    public void testVirtualThreadsSolverThreadsAreBounded() throws Exception {
+        skipUnlessSupported(SolverScheduler.Mode.VIRTUAL_THREADS);
+        testSolverThreadsAreBounded(SolverScheduler.Mode.VIRTUAL_THREADS);
+    }
+
+}
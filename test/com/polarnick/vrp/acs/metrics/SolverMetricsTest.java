@@ -0,0 +1,80 @@
+package com.polarnick.vrp.acs.metrics;
+
+import com.polarnick.vrp.acs.MACSVRPTW;
+import com.polarnick.vrp.acs.colonies.MinDistanceACS;
+import com.polarnick.vrp.model.VRProblem;
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import static org.testng.Assert.*;
+
+public class SolverMetricsTest {
+
+    @Test
+    public void testHistogram() {
+        Histogram histogram = new Histogram();
+        assertEquals(histogram.getPercentile(0.5), 0);
+        for (int value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        histogram.record(0);
+        assertEquals(histogram.getCount(), 101);
+        assertEquals(histogram.getSum(), 5050);
+        assertEquals(histogram.getMax(), 100);
+        assertEquals(histogram.getMean(), 50.0);
+        assertEquals(histogram.getPercentile(0.0), 0);
+        assertEquals(histogram.getPercentile(0.5), 63);
+        assertEquals(histogram.getPercentile(1.0), 100);
+    }
+
+    @Test
+    public void testSolverMetrics() throws Exception {
+        String input =
+                "capacity 1000 " +
+                        //x   y   demand from  to   delay name
+                        "0   0   0      0     28   0     Depot " +
+                        "0   3   1000   5     5    2     Fat " +
+                        "3   3   2      7     7    2     A " +
+                        "3   0   2      12    12   2     B " +
+                        "0  -4   2      4     4    2     X1 " +
+                        "3  -4   2      9     9    2     X2 " +
+                        "3  -6   2      14    14   2     X3 " +
+                        "0  -6   1      19    19   2     X4";
+        SolverMetrics metrics = new SolverMetrics("test");
+        metrics.register();
+        try {
+            MACSVRPTW solver = new MACSVRPTW(VRProblem.readFromString(input), 239, null, metrics);
+            Timer timer = new Timer();
+            timer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    solver.stop();
+                }
+            }, 500);
+            solver.run();
+
+            ColonyMetrics minDistance = metrics.getColonyMetrics(MinDistanceACS.COLONY_NAME);
+            assertTrue(minDistance.getToursNumber() > 0);
+            assertTrue(minDistance.getGenerationsNumber() > 0);
+            assertEquals(minDistance.construction.getCount(), minDistance.getToursNumber());
+            assertTrue(minDistance.getFeasibleToursRatio() >= 0.0 && minDistance.getFeasibleToursRatio() <= 1.0);
+            assertTrue(metrics.getVehiclesImprovementsNumber() >= 1);
+            assertEquals(metrics.getBestVehiclesNumber(), solver.getCurrentBestRoute().getVehiclesNumber());
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName colonyName = new ObjectName("com.polarnick.vrp:type=Colony,solver=\"test\",name=\"ACS-MIN\"");
+            assertTrue((Long) server.getAttribute(colonyName, "ToursNumber") >= minDistance.getToursNumber());
+            assertEquals(server.getAttribute(new ObjectName("com.polarnick.vrp:type=Solver,name=\"test\""), "BestVehiclesNumber"),
+                    metrics.getBestVehiclesNumber());
+        } finally {
+            metrics.unregister();
+        }
+        assertTrue(ManagementFactory.getPlatformMBeanServer().queryNames(new ObjectName("com.polarnick.vrp:*"), null).isEmpty());
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.polarnick.vrp.model;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+public class BinaryInstanceTest {
+
+    private VRProblem generateProblem(int customersNumber) {
+        Random random = new Random(239);
+        Stop[] stops = new Stop[customersNumber + 1];
+        stops[0] = new Stop("Depot", 50, 50, 0, 0, 1000, 0);
+        for (int i = 1; i <= customersNumber; i++) {
+            int fromT = random.nextInt(500);
+            stops[i] = new Stop("Клиент " + i, random.nextInt(100) + 0.25, random.nextInt(100), 1 + random.nextInt(10),
+                    fromT, fromT + 100 + random.nextInt(400), 10);
+        }
+        return new VRProblem(stops, 100);
+    }
+
+    private void assertSameStop(Stop expected, Stop found) {
+        Assert.assertEquals(found.name, expected.name);
+        Assert.assertEquals(found.x, expected.x);
+        Assert.assertEquals(found.y, expected.y);
+        Assert.assertEquals(found.demand, expected.demand);
+        Assert.assertEquals(found.fromT, expected.fromT);
+        Assert.assertEquals(found.toT, expected.toT);
+        Assert.assertEquals(found.delayT, expected.delayT);
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        VRProblem problem = generateProblem(50);
+        Path path = Files.createTempFile("instance", ".bin");
+        try {
+            for (boolean precomputed: new boolean[]{false, true}) {
+                BinaryInstance.write(path, problem, precomputed ? 10 : 0, precomputed);
+                VRProblem read = BinaryInstance.read(path);
+                Assert.assertEquals(read.vehicleCapacity, problem.vehicleCapacity);
+                Assert.assertEquals(read.customersNumber, problem.customersNumber);
+                assertSameStop(problem.depot, read.depot);
+                for (int i = 0; i < problem.customersNumber; i++) {
+                    assertSameStop(problem.customers[i], read.customers[i]);
+                }
+                Assert.assertEquals(read.getDistanceMatrix() instanceof MappedTimeMatrix, precomputed);
+                for (int i = 0; i <= problem.customersNumber; i++) {
+                    for (int j = 0; j <= problem.customersNumber; j++) {
+                        Assert.assertEquals(read.getDistanceMatrix().getTimeDistance(i, j), problem.getDistanceMatrix().getTimeDistance(i, j));
+                        Assert.assertEquals(read.getDistanceMatrix().getDistance(i, j), problem.getDistanceMatrix().getDistance(i, j));
+                    }
+                    Assert.assertEquals(read.getCandidateLists(10).get(i), problem.getCandidateLists(10).get(i));
+                }
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private void assertNotRead(Path path) {
+        try {
+            BinaryInstance.read(path);
+            Assert.fail("Corrupted instance is read: " + path);
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void testCorruptedFiles() throws Exception {
+        VRProblem problem = generateProblem(50);
+        Path path = Files.createTempFile("instance", ".bin");
+        try {
+            BinaryInstance.write(path, problem, 10, true);
+            long size = Files.size(path);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(size - 1);
+            }
+            assertNotRead(path);
+
+            BinaryInstance.write(path, problem, 10, false);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                ByteBuffer stopsNumber = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(0);
+                stopsNumber.flip();
+                channel.write(stopsNumber, 2 * Integer.BYTES);
+            }
+            assertNotRead(path);
+
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(BinaryInstance.HEADER_BYTES - 1);
+            }
+            assertNotRead(path);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.polarnick.vrp.model;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+public class DistanceMatrixTest {
+
+    private VRProblem generateProblem(int customersNumber) {
+        Random random = new Random(239);
+        Stop[] stops = new Stop[customersNumber + 1];
+        stops[0] = new Stop("Depot", 50, 50, 0, 0, 1000, 0);
+        for (int i = 1; i <= customersNumber; i++) {
+            stops[i] = new Stop("C" + i, random.nextInt(100), random.nextInt(100), 1 + random.nextInt(10), 0, 1000, 10);
+        }
+        return new VRProblem(stops, 100);
+    }
+
+    private void assertSameMatrix(DistanceMatrix expected, DistanceMatrix found) {
+        Assert.assertEquals(found.size, expected.size);
+        for (int i = 0; i < expected.size; i++) {
+            for (int j = 0; j < expected.size; j++) {
+                Assert.assertEquals(found.getTimeDistance(i, j), expected.getTimeDistance(i, j));
+                Assert.assertEquals(found.getDistance(i, j), expected.getDistance(i, j), 1e-4);
+            }
+        }
+    }
+
+    @Test
+    public void testBackendsAreEquivalent() throws Exception {
+        VRProblem problem = generateProblem(50);
+        DistanceMatrix expected = DistanceMatrix.build(problem.depot, problem.customers, DistanceMatrix.Backend.DOUBLE);
+        for (DistanceMatrix.Backend backend: DistanceMatrix.Backend.values()) {
+            assertSameMatrix(expected, DistanceMatrix.build(problem.depot, problem.customers, backend));
+        }
+    }
+
+    @Test
+    public void testMappedMatrix() throws Exception {
+        VRProblem problem = generateProblem(50);
+        Path path = Files.createTempFile("distances", ".bin");
+        try {
+            MappedDistanceMatrix.write(path, problem);
+            Assert.assertEquals(Files.size(path), MappedDistanceMatrix.getBytesNumber(51));
+            assertSameMatrix(problem.getDistanceMatrix(), MappedDistanceMatrix.open(path));
+
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(MappedDistanceMatrix.getBytesNumber(51) - 1);
+            }
+            try {
+                MappedDistanceMatrix.open(path);
+                Assert.fail("Truncated matrix is opened");
+            } catch (IOException expected) {
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+}
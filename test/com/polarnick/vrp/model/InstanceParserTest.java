@@ -0,0 +1,65 @@
+package com.polarnick.vrp.model;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class InstanceParserTest {
+
+    private static final String SOLOMON_INSTANCE = "C101\n" +
+            "\n" +
+            "VEHICLE\n" +
+            "NUMBER     CAPACITY\n" +
+            "  25         200\n" +
+            "\n" +
+            "CUSTOMER\n" +
+            "CUST NO.  XCOORD.   YCOORD.    DEMAND   READY TIME  DUE DATE   SERVICE   TIME\n" +
+            " \n" +
+            "    0      40         50          0          0       1236          0   \n" +
+            "    1      45         68         10        912        967         90   \n" +
+            "    2      45         70         30        825        870         90   \n" +
+            "    3      42         66         10         65        146         90   \n";
+
+    private static void assertStop(Stop stop, String name, double x, double y, int demand, int fromT, int toT, int delayT) {
+        Assert.assertEquals(stop.name, name);
+        Assert.assertEquals(stop.x, x);
+        Assert.assertEquals(stop.y, y);
+        Assert.assertEquals(stop.demand, demand);
+        Assert.assertEquals(stop.fromT, fromT);
+        Assert.assertEquals(stop.toT, toT);
+        Assert.assertEquals(stop.delayT, delayT);
+    }
+
+    @Test
+    public void testLinesFormat() throws Exception {
+        InstanceParser parser = new InstanceParser();
+        VRProblem problem = parser.parse("capacity 15\n" +
+                "0 0 0 0 100 0 Depot\n" +
+                "1.5 -2 5 10 20 3 A1\n" +
+                "3 4 7 0 50 1 B1", -1);
+        Assert.assertEquals(parser.getLastFormat(), InstanceParser.Format.LINES);
+        Assert.assertEquals(problem.vehicleCapacity, 15);
+        Assert.assertEquals(problem.customersNumber, 2);
+        assertStop(problem.depot, "Depot", 0, 0, 0, 0, 100, 0);
+        assertStop(problem.customers[0], "A1", 1.5, -2, 5, 10, 20, 3);
+        assertStop(problem.customers[1], "B1", 3, 4, 7, 0, 50, 1);
+
+        VRProblem limited = parser.parse("0 0 0 0 100 0 Depot 1 1 5 10 20 3 A1 2 2 5 10 20 3 A2 capacity 10", 2);
+        Assert.assertEquals(limited.vehicleCapacity, 10);
+        Assert.assertEquals(limited.customersNumber, 1);
+        Assert.assertEquals(limited.customers[0].name, "A1");
+    }
+
+    @Test
+    public void testSolomonFormat() throws Exception {
+        InstanceParser parser = new InstanceParser();
+        VRProblem problem = parser.parse(SOLOMON_INSTANCE, -1);
+        Assert.assertEquals(parser.getLastFormat(), InstanceParser.Format.SOLOMON);
+        Assert.assertEquals(problem.vehicleCapacity, 200);
+        Assert.assertEquals(problem.customersNumber, 3);
+        assertStop(problem.depot, "Depot", 40, 50, 0, 0, 1236, 0);
+        assertStop(problem.customers[0], "1", 45, 68, 10, 912, 967, 90);
+        assertStop(problem.customers[2], "3", 42, 66, 10, 65, 146, 90);
+        Assert.assertTrue(parser.getLastBytes() == SOLOMON_INSTANCE.length() && parser.getLastBytesPerSecond() > 0);
+    }
+
+}
@@ -0,0 +1,283 @@
+package com.polarnick.vrp.model;
+
+import com.polarnick.vrp.acs.model.AntColonyProblem;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class RouteTest {
+
+    private static final int VEHICLES_NUMBER = 8;
+    private static final int CUSTOMERS_NUMBER = 40;
+    private static final int UNROUTED_NUMBER = 5;
+
+    private static AntColonyProblem generateProblem(Random random) {
+        Stop depot = new Stop("Depot", 50, 50, 0, 0, 1000, 0);
+        Stop[] customers = new Stop[CUSTOMERS_NUMBER];
+        for (int i = 0; i < CUSTOMERS_NUMBER; i++) {
+            int fromT = random.nextInt(500);
+            customers[i] = new Stop("C" + i, random.nextInt(100), random.nextInt(100), 1 + random.nextInt(20),
+                    fromT, fromT + 150 + random.nextInt(300), 10);
+        }
+        return AntColonyProblem.buildProblem(new VRProblem(depot, customers, 60), VEHICLES_NUMBER);
+    }
+
+    /**
+     * @return route with the customers in random order split evenly between the vehicles, the last customers are left out.
+     * Each tour is sorted by the ends of the time windows.
+     */
+    private static int[] generateNodes(AntColonyProblem problem, Random random) {
+        int[] customers = new int[CUSTOMERS_NUMBER];
+        for (int i = 0; i < CUSTOMERS_NUMBER; i++) {
+            customers[i] = problem.getCustomerNode(i + 1);
+        }
+        for (int i = CUSTOMERS_NUMBER - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int customer = customers[i];
+            customers[i] = customers[j];
+            customers[j] = customer;
+        }
+        int routed = CUSTOMERS_NUMBER - UNROUTED_NUMBER;
+        int[] nodes = new int[routed + VEHICLES_NUMBER + 1];
+        int nodesNumber = 0;
+        int next = 0;
+        for (int v = 0; v < VEHICLES_NUMBER; v++) {
+            nodes[nodesNumber++] = v;
+            int tourLength = routed / VEHICLES_NUMBER + (v < routed % VEHICLES_NUMBER ? 1 : 0);
+            int tourStart = nodesNumber;
+            for (int k = 0; k < tourLength; k++) {
+                nodes[nodesNumber++] = customers[next++];
+            }
+            for (int i = tourStart + 1; i < nodesNumber; i++) {
+                for (int j = i; j > tourStart && problem.stops[nodes[j]].toT < problem.stops[nodes[j - 1]].toT; j--) {
+                    int customer = nodes[j];
+                    nodes[j] = nodes[j - 1];
+                    nodes[j - 1] = customer;
+                }
+            }
+        }
+        nodes[nodesNumber] = VEHICLES_NUMBER;
+        return nodes;
+    }
+
+    /**
+     * @return travel part of the residual of the nodes.
+     */
+    private static double getCost(AntColonyProblem problem, int[] nodes) {
+        double cost = 0.0;
+        for (int k = 0; k + 1 < nodes.length; k++) {
+            if (!problem.stops[nodes[k]].isDepot()) {
+                cost += problem.getDistance(nodes[k], nodes[k + 1]) + problem.stops[nodes[k]].delayT;
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * @return whether the tour of the given vehicle is in time and within the capacity.
+     */
+    private static boolean isTourFeasible(AntColonyProblem problem, int[] nodes, int vehicle) {
+        int depots = 0;
+        int k = 0;
+        while (depots <= vehicle) {
+            if (problem.stops[nodes[k]].isDepot()) {
+                depots += 1;
+            }
+            k += 1;
+        }
+        Stop depot = problem.stops[nodes[k - 1]];
+        int time = depot.fromT + depot.delayT;
+        int load = 0;
+        for (int prev = nodes[k - 1]; ; k++) {
+            Stop stop = problem.stops[nodes[k]];
+            time = Math.max(time + problem.getTimeDistance(prev, nodes[k]), stop.fromT);
+            if (time > stop.toT) {
+                return false;
+            }
+            if (stop.isDepot()) {
+                return load <= problem.vehicleCapacity;
+            }
+            time += stop.delayT;
+            load += stop.demand;
+            prev = nodes[k];
+        }
+    }
+
+    private static boolean isWithinCapacity(AntColonyProblem problem, int[] nodes) {
+        int load = 0;
+        for (int node: nodes) {
+            load = problem.stops[node].isDepot() ? 0 : load + problem.stops[node].demand;
+            if (load > problem.vehicleCapacity) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] getUnrouted(Route route) {
+        boolean[] routed = new boolean[route.problem.n];
+        for (int node: route) {
+            routed[node] = true;
+        }
+        int[] unrouted = new int[route.problem.n];
+        int unroutedNumber = 0;
+        for (int node = 0; node < route.problem.n; node++) {
+            if (!routed[node]) {
+                unrouted[unroutedNumber++] = node;
+            }
+        }
+        return Arrays.copyOf(unrouted, unroutedNumber);
+    }
+
+    private static int randomCustomerPosition(Route route, Random random) {
+        int position;
+        do {
+            position = random.nextInt(route.size());
+        } while (route.problem.stops[route.getNode(position)].isDepot());
+        return position;
+    }
+
+    /**
+     * Checks random moves of the route against the routes they lead to.
+     *
+     * @return numbers of the feasible and of the infeasible moves.
+     */
+    private static int[] checkRandomMoves(Route route, Random random, int movesNumber) {
+        AntColonyProblem problem = route.problem;
+        int feasibleMoves = 0;
+        int infeasibleMoves = 0;
+        int[] unrouted = getUnrouted(route);
+        for (int move = 0; move < movesNumber; move++) {
+            int[] nodes = route.toArray();
+            Route.Delta delta;
+            int[] newNodes;
+            int[] vehicles;
+            int kind = random.nextInt(3);
+            if (kind == 0) {
+                int customer = unrouted[random.nextInt(unrouted.length)];
+                int position = 1 + random.nextInt(nodes.length - 1);
+                delta = route.evaluateInsertion(customer, position);
+                newNodes = new int[nodes.length + 1];
+                System.arraycopy(nodes, 0, newNodes, 0, position);
+                newNodes[position] = customer;
+                System.arraycopy(nodes, position, newNodes, position + 1, nodes.length - position);
+                vehicles = new int[]{route.getVehicle(position - 1)};
+            } else if (kind == 1) {
+                int position = randomCustomerPosition(route, random);
+                delta = route.evaluateRemoval(position);
+                newNodes = new int[nodes.length - 1];
+                System.arraycopy(nodes, 0, newNodes, 0, position);
+                System.arraycopy(nodes, position + 1, newNodes, position, nodes.length - position - 1);
+                vehicles = new int[]{route.getVehicle(position)};
+            } else {
+                int position1 = randomCustomerPosition(route, random);
+                int position2 = randomCustomerPosition(route, random);
+                delta = route.evaluateExchange(position1, position2);
+                newNodes = nodes.clone();
+                newNodes[position1] = nodes[position2];
+                newNodes[position2] = nodes[position1];
+                vehicles = new int[]{route.getVehicle(position1), route.getVehicle(position2)};
+            }
+            boolean feasible = true;
+            for (int vehicle: vehicles) {
+                feasible &= isTourFeasible(problem, newNodes, vehicle);
+            }
+            Assert.assertEquals(delta.cost, getCost(problem, newNodes) - getCost(problem, nodes), 1e-6, "Move " + kind);
+            Assert.assertEquals(delta.feasible, feasible, "Move " + kind);
+            if (feasible) {
+                feasibleMoves += 1;
+            } else {
+                infeasibleMoves += 1;
+            }
+        }
+        return new int[]{feasibleMoves, infeasibleMoves};
+    }
+
+    @Test
+    public void testDeltasMatchNewRoutes() throws Exception {
+        Random random = new Random(239);
+        int feasibleMoves = 0;
+        int infeasibleMoves = 0;
+        for (int attempt = 0; attempt < 20; attempt++) {
+            AntColonyProblem problem = generateProblem(random);
+            int[] initialNodes;
+            boolean feasible;
+            do {
+                initialNodes = generateNodes(problem, random);
+                feasible = true;
+                for (int v = 0; v < VEHICLES_NUMBER; v++) {
+                    feasible &= isTourFeasible(problem, initialNodes, v);
+                }
+            } while (!feasible);
+            Route route = new Route(problem, initialNodes);
+            for (int v = 0; v < VEHICLES_NUMBER; v++) {
+                Assert.assertTrue(route.isTourFeasible(v));
+            }
+            int[] moves = checkRandomMoves(route, random, 100);
+            feasibleMoves += moves[0];
+            infeasibleMoves += moves[1];
+        }
+        Assert.assertTrue(feasibleMoves > 100 && infeasibleMoves > 100, feasibleMoves + " feasible and " + infeasibleMoves + " infeasible moves");
+    }
+
+    @Test
+    public void testDeltasOfInfeasibleTours() throws Exception {
+        Random random = new Random(239);
+        int feasibleMoves = 0;
+        int infeasibleMoves = 0;
+        for (int attempt = 0; attempt < 20; attempt++) {
+            AntColonyProblem problem = generateProblem(random);
+            int[] initialNodes;
+            int infeasibleTours;
+            do {
+                initialNodes = generateNodes(problem, random);
+                infeasibleTours = 0;
+                for (int v = 0; v < VEHICLES_NUMBER; v++) {
+                    infeasibleTours += isTourFeasible(problem, initialNodes, v) ? 0 : 1;
+                }
+            } while (infeasibleTours == 0 || infeasibleTours == VEHICLES_NUMBER || !isWithinCapacity(problem, initialNodes));
+            Route route = new Route(problem, initialNodes);
+            for (int v = 0; v < VEHICLES_NUMBER; v++) {
+                Assert.assertEquals(route.isTourFeasible(v), isTourFeasible(problem, initialNodes, v));
+            }
+            int[] moves = checkRandomMoves(route, random, 100);
+            feasibleMoves += moves[0];
+            infeasibleMoves += moves[1];
+        }
+        Assert.assertTrue(feasibleMoves > 100 && infeasibleMoves > 100, feasibleMoves + " feasible and " + infeasibleMoves + " infeasible moves");
+    }
+
+    @Test
+    public void testMovesBeforeCustomerThatOpensTooLate() throws Exception {
+        VRProblem vrProblem = VRProblem.readFromString("capacity 100 " +
+                //x  y   demand from to    delay name
+                "0   0   0      0    1000  0     Depot " +
+                "0   5   1      0    1000  0     A " +
+                "0   8   1      0    1000  0     D " +
+                "0   10  1      50   100   0     B " +
+                "0   11  1      0    49    0     C " +
+                "0   6   1      0    1000  0     X " +
+                "0   4   1      0    1000  0     Y");
+        AntColonyProblem problem = AntColonyProblem.buildProblem(vrProblem, 2);
+        int a = problem.getCustomerNode(1);
+        int d = problem.getCustomerNode(2);
+        int b = problem.getCustomerNode(3);
+        int c = problem.getCustomerNode(4);
+        int x = problem.getCustomerNode(5);
+        int y = problem.getCustomerNode(6);
+        // B opens at 50, while C closes at 49 and the latest start at B is 48, so the first tour is late at C
+        // whenever the vehicle comes to B
+        Route route = new Route(problem, new int[]{0, a, d, b, c, 1, y, 2});
+        Assert.assertFalse(route.isTourFeasible(0));
+        Assert.assertTrue(route.getLatestStart(3) < problem.fromT[b]);
+
+        Assert.assertFalse(route.evaluateInsertion(x, 1).feasible);
+        Assert.assertFalse(route.evaluateRemoval(1).feasible);
+        Assert.assertFalse(route.evaluateExchange(1, 6).feasible);
+        Assert.assertFalse(route.evaluateExchange(1, 2).feasible);
+        Assert.assertTrue(route.evaluateRemoval(3).feasible);
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.polarnick.vrp.model;
+
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public class TimeWindowIndexTest {
+
+    private VRProblem generateProblem(int customersNumber) {
+        Random random = new Random(239);
+        Stop[] stops = new Stop[customersNumber + 1];
+        stops[0] = new Stop("Depot", 50, 50, 0, 0, 1000, 0);
+        for (int i = 1; i <= customersNumber; i++) {
+            int fromT = random.nextInt(900);
+            stops[i] = new Stop("C" + i, random.nextInt(100), random.nextInt(100), 1 + random.nextInt(10),
+                    fromT, fromT + random.nextInt(100), 10);
+        }
+        return new VRProblem(stops, 100);
+    }
+
+    @Test
+    public void testSparseIsEquivalent() {
+        VRProblem problem = generateProblem(200);
+        TimeWindowIndex dense = TimeWindowIndex.build(problem, TimeWindowIndex.DENSE_MAX_SIZE);
+        TimeWindowIndex sparse = TimeWindowIndex.build(problem, 0);
+        assertTrue(dense.isDense());
+        assertFalse(sparse.isDense());
+        int canFollowNumber = 0;
+        for (int from = 0; from <= problem.customersNumber; from++) {
+            for (int to = 0; to <= problem.customersNumber; to++) {
+                assertEquals(sparse.canFollow(from, to), dense.canFollow(from, to));
+                canFollowNumber += dense.canFollow(from, to) ? 1 : 0;
+            }
+        }
+        assertTrue(canFollowNumber > 0 && canFollowNumber < 201 * 201);
+        assertEquals(sparse.getReachableCustomersNumber(), dense.getReachableCustomersNumber());
+    }
+
+    @Test
+    public void testLargeProblemIsNotDense() {
+        VRProblem problem = generateProblem(50000);
+        Stop[] stops = DistanceMatrix.toStops(problem.depot, problem.customers);
+        // distances are computed on each call, as the large matrices are off-heap or mapped
+        problem.setDistanceMatrix(new DistanceMatrix(stops.length) {
+            @Override
+            public double getDistance(int from, int to) {
+                return stops[from].calcDistanceTo(stops[to]);
+            }
+
+            @Override
+            public int getTimeDistance(int from, int to) {
+                return toTimeDistance(this.getDistance(from, to));
+            }
+        });
+        TimeWindowIndex index = problem.getTimeWindowIndex();
+        assertFalse(index.isDense());
+        Random random = new Random(239);
+        for (int k = 0; k < 1000; k++) {
+            int from = random.nextInt(stops.length);
+            int to = random.nextInt(stops.length);
+            boolean expected = TimeWindowIndex.getEarliestTime(stops[from])
+                    + DistanceMatrix.toTimeDistance(stops[from].calcDistanceTo(stops[to])) <= stops[to].toT;
+            assertEquals(index.canFollow(from, to), expected);
+        }
+    }
+
+}